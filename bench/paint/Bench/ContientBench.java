@@ -0,0 +1,103 @@
+/**
+ * Benchmarks du test d'appartenance d'un point ({@code contient}) pour chaque
+ * type de forme, avec des tracés à main levée de longueur variable, ainsi que
+ * de la recherche de la forme sous le curseur dans l'index spatial.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Bench;
+
+import java.awt.*;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import paint.Model.Forme;
+import paint.Model.GrilleSpatiale;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class ContientBench {
+
+    /**
+     * Nombre de points de requête parcourus à chaque appel, tirés autour de la
+     * forme pour mêler points dedans et dehors.
+     */
+    private static final int NB_REQUETES = 1024;
+
+    /**
+     * Type de la forme testée.
+     */
+    @Param({ "RECTANGLE", "LIGNE", "TRIANGLE", "CERCLE", "MAIN_LEVEE" })
+    public GenerateurDessin.Type type;
+
+    /**
+     * Nombre de points des tracés à main levée (ignoré pour les autres formes).
+     */
+    @Param({ "100", "10000", "100000" })
+    public int nbPoints;
+
+    /**
+     * Nombre de formes du dessin pour la recherche dans l'index.
+     */
+    @Param({ "10000" })
+    public int nbFormes;
+
+    private Forme forme;
+    private Point[] requetes;
+    private GrilleSpatiale index;
+    private Point[] clics;
+    private int suivant;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        Random random = new Random(7);
+        forme = GenerateurDessin.forme(type, random, 1920, 1080, nbPoints);
+        Rectangle zone = forme.getBounds();
+        zone.grow(10, 10);
+        requetes = GenerateurDessin.points(NB_REQUETES, zone, 11);
+
+        List<Forme> formes = GenerateurDessin.formesMelangees(nbFormes, 1920, 1080, 42);
+        index = new GrilleSpatiale();
+        for (Forme f : formes) {
+            index.ajouter(f);
+        }
+        clics = GenerateurDessin.points(NB_REQUETES, new Rectangle(0, 0, 1920, 1080), 13);
+    }
+
+    /**
+     * Test direct d'un point sur la forme.
+     */
+    @Benchmark
+    public boolean contient() {
+        Point p = requetes[suivant++ & (NB_REQUETES - 1)];
+        return forme.contient(p);
+    }
+
+    /**
+     * Recherche de la forme la plus haute sous un clic, comme à la suppression.
+     */
+    @Benchmark
+    public void formeAuPoint(Blackhole bh) {
+        Point p = clics[suivant++ & (NB_REQUETES - 1)];
+        bh.consume(index.formeAuPoint(p, 5));
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Benchmarks des filtres d'image sur un calque rendu en 1920x1080, avec les
+ * boucles vectorielles puis avec les seules boucles scalaires
+ * ({@code -Dpaint.simd=off}), chacune dans sa propre JVM.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Bench;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import paint.Model.Filtre;
+import paint.Model.Forme;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules", "jdk.incubator.vector" })
+public class FiltreBench {
+
+    private static final int LARGEUR = 1920, HAUTEUR = 1080;
+
+    /**
+     * Filtre mesuré.
+     */
+    @Param({ "FLOU", "NETTETE", "LUMINOSITE_CONTRASTE", "NIVEAUX_DE_GRIS" })
+    public Filtre.Type type;
+
+    private Filtre filtre;
+    private int[] calque;
+    private int[] pixels;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        switch (type) {
+            case FLOU:
+                filtre = Filtre.flou(5);
+                break;
+            case NETTETE:
+                filtre = Filtre.nettete(150);
+                break;
+            case LUMINOSITE_CONTRASTE:
+                filtre = Filtre.luminositeContraste(20, 40);
+                break;
+            default:
+                filtre = Filtre.niveauxDeGris();
+                break;
+        }
+
+        BufferedImage image = new BufferedImage(LARGEUR, HAUTEUR, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        for (Forme forme : GenerateurDessin.formesMelangees(2000, LARGEUR, HAUTEUR, 42)) {
+            forme.draw(g2d);
+        }
+        g2d.dispose();
+        calque = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        pixels = new int[calque.length];
+    }
+
+    @Setup(Level.Invocation)
+    public void recopier() {
+        System.arraycopy(calque, 0, pixels, 0, calque.length);
+    }
+
+    @Benchmark
+    public int[] vectoriel() {
+        filtre.appliquer(pixels, LARGEUR, HAUTEUR);
+        return pixels;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = { "-Djava.awt.headless=true", "--add-modules", "jdk.incubator.vector",
+            "-Dpaint.simd=off" })
+    public int[] scalaire() {
+        filtre.appliquer(pixels, LARGEUR, HAUTEUR);
+        return pixels;
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Générateur de dessins synthétiques pour les benchmarks.
+ * Les dessins sont reproductibles : une même graine produit toujours les mêmes
+ * formes, ce qui permet de comparer les mesures d'une version à l'autre.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Bench;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import paint.Model.CircleForme;
+import paint.Model.Forme;
+import paint.Model.FreeHandForme;
+import paint.Model.LigneForme;
+import paint.Model.RectangleForme;
+import paint.Model.TriangleForme;
+
+public final class GenerateurDessin {
+
+    /**
+     * Couleurs utilisées par les formes générées.
+     */
+    private static final Color[] COULEURS = { Color.BLACK, Color.RED, Color.BLUE, Color.GREEN, Color.ORANGE,
+            Color.MAGENTA, Color.CYAN, Color.GRAY };
+
+    /**
+     * Types de formes que le générateur sait produire.
+     */
+    public enum Type {
+        RECTANGLE, LIGNE, TRIANGLE, CERCLE, MAIN_LEVEE
+    }
+
+    private GenerateurDessin() {
+    }
+
+    /**
+     * Génère un dessin mélangeant tous les types de formes en proportions égales.
+     * Les tracés à main levée comptent entre 20 et 200 points.
+     *
+     * @param nombre  Nombre de formes.
+     * @param largeur Largeur de la zone de dessin.
+     * @param hauteur Hauteur de la zone de dessin.
+     * @param graine  Graine du générateur aléatoire.
+     * @return Les formes, dans l'ordre du dessin.
+     */
+    public static List<Forme> formesMelangees(int nombre, int largeur, int hauteur, long graine) {
+        Random random = new Random(graine);
+        Type[] types = Type.values();
+        List<Forme> formes = new ArrayList<>(nombre);
+        for (int i = 0; i < nombre; i++) {
+            Type type = types[random.nextInt(types.length)];
+            int nbPoints = 20 + random.nextInt(181);
+            formes.add(forme(type, random, largeur, hauteur, nbPoints));
+        }
+        return formes;
+    }
+
+    /**
+     * Génère une forme d'un type donné à une position aléatoire.
+     *
+     * @param type     Type de la forme.
+     * @param random   Générateur aléatoire.
+     * @param largeur  Largeur de la zone de dessin.
+     * @param hauteur  Hauteur de la zone de dessin.
+     * @param nbPoints Nombre de points d'un tracé à main levée.
+     * @return La forme générée.
+     */
+    public static Forme forme(Type type, Random random, int largeur, int hauteur, int nbPoints) {
+        Color couleur = COULEURS[random.nextInt(COULEURS.length)];
+        int x = random.nextInt(largeur);
+        int y = random.nextInt(hauteur);
+        int w = 10 + random.nextInt(Math.max(1, largeur / 8));
+        int h = 10 + random.nextInt(Math.max(1, hauteur / 8));
+
+        switch (type) {
+            case RECTANGLE:
+                return new RectangleForme(x, y, x + w, y + h, couleur);
+            case LIGNE:
+                return new LigneForme(x, y, x + w, y + h, couleur);
+            case TRIANGLE:
+                return new TriangleForme(x, y, x + w, y + h, couleur);
+            case CERCLE:
+                return new CircleForme(x, y, x + w, y + h, couleur);
+            default:
+                return trace(random, x, y, nbPoints, couleur, 1 + random.nextInt(5));
+        }
+    }
+
+    /**
+     * Génère un tracé à main levée par marche aléatoire, comme le produirait la
+     * souris : des pas de quelques pixels avec une direction qui varie peu.
+     * Le tracé n'est pas simplifié et compte exactement le nombre de points
+     * demandé.
+     *
+     * @param random    Générateur aléatoire.
+     * @param x         Coordonnée X du premier point.
+     * @param y         Coordonnée Y du premier point.
+     * @param nbPoints  Nombre de points du tracé.
+     * @param couleur   Couleur du tracé.
+     * @param lineWidth Largeur du trait.
+     * @return Le tracé généré.
+     */
+    public static FreeHandForme trace(Random random, int x, int y, int nbPoints, Color couleur, int lineWidth) {
+        FreeHandForme trace = new FreeHandForme(x, y, couleur, lineWidth);
+        double angle = random.nextDouble() * 2 * Math.PI;
+        double px = x;
+        double py = y;
+        for (int i = 1; i < nbPoints; i++) {
+            angle += random.nextGaussian() * 0.3;
+            double pas = 1 + random.nextDouble() * 4;
+            px += Math.cos(angle) * pas;
+            py += Math.sin(angle) * pas;
+            trace.addPoint((int) Math.round(px), (int) Math.round(py));
+        }
+        trace.terminer();
+        return trace;
+    }
+
+    /**
+     * Génère des points de requête répartis uniformément dans une zone.
+     *
+     * @param nombre Nombre de points.
+     * @param zone   Zone dans laquelle tirer les points.
+     * @param graine Graine du générateur aléatoire.
+     * @return Les points générés.
+     */
+    public static Point[] points(int nombre, Rectangle zone, long graine) {
+        Random random = new Random(graine);
+        Point[] points = new Point[nombre];
+        for (int i = 0; i < nombre; i++) {
+            points[i] = new Point(zone.x + random.nextInt(Math.max(1, zone.width)),
+                    zone.y + random.nextInt(Math.max(1, zone.height)));
+        }
+        return points;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Benchmarks de l'enregistrement et du chargement d'un projet au format
+ * binaire, sur un fichier temporaire.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Bench;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import paint.Model.Calque;
+import paint.Model.FormatProjet;
+import paint.Model.Projet;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class PersistanceBench {
+
+    /**
+     * Nombre de formes du projet.
+     */
+    @Param({ "1000", "10000", "100000" })
+    public int nbFormes;
+
+    private Projet projet;
+    private Path fichier;
+    private Path copie;
+
+    @Setup(Level.Trial)
+    public void preparer() throws IOException {
+        Calque calque = new Calque(Calque.nomParDefaut(1), GenerateurDessin.formesMelangees(nbFormes, 1920, 1080, 42));
+        projet = new Projet(List.of(calque), Color.BLACK, 1920, 1080);
+        fichier = Files.createTempFile("paint-bench", ".pnt");
+        copie = Files.createTempFile("paint-bench-copie", ".pnt");
+        FormatProjet.ecrire(fichier, projet);
+    }
+
+    @TearDown(Level.Trial)
+    public void nettoyer() throws IOException {
+        Files.deleteIfExists(fichier);
+        Files.deleteIfExists(copie);
+    }
+
+    /**
+     * Enregistrement du projet.
+     */
+    @Benchmark
+    public Path enregistrer() throws IOException {
+        FormatProjet.ecrire(copie, projet);
+        return copie;
+    }
+
+    /**
+     * Chargement complet du projet.
+     */
+    @Benchmark
+    public Projet charger() throws IOException {
+        return FormatProjet.lire(fichier);
+    }
+
+    /**
+     * Enregistrement suivi du chargement du fichier écrit.
+     */
+    @Benchmark
+    public Projet allerRetour() throws IOException {
+        FormatProjet.ecrire(copie, projet);
+        return FormatProjet.lire(copie);
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * Benchmarks du rendu d'un dessin de formes mélangées : rendu complet dans une
+ * image comme à l'export, et peinture du panneau par tuiles avec un cache
+ * froid (toutes les tuiles à rastériser) ou chaud (simple recopie).
+ *
+ * @author Baptiste Borie
+ */
+package paint.Bench;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import paint.Model.Forme;
+import paint.Model.GrilleSpatiale;
+import paint.Model.SuiviProgression;
+import paint.View.RenduImage;
+import paint.View.RenduTuiles;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djava.awt.headless=true")
+public class RenduBench {
+
+    /**
+     * Nombre de formes du dessin.
+     */
+    @Param({ "1000", "10000", "100000" })
+    public int nbFormes;
+
+    /**
+     * Dimensions de la zone affichée.
+     */
+    @Param({ "1920" })
+    public int largeur;
+
+    @Param({ "1080" })
+    public int hauteur;
+
+    /**
+     * Recopie des tuiles depuis des images accélérées ou depuis leurs images
+     * logicielles.
+     */
+    @Param({ "false", "true" })
+    public boolean accelere;
+
+    /**
+     * Échelle de rastérisation des tuiles, comme le zoom de la vue ; en dessous
+     * de 1, les tracés sont dessinés avec un niveau de détail réduit.
+     */
+    @Param({ "1", "0.25" })
+    public double echelle;
+
+    private List<Forme> formes;
+    private RenduTuiles rendu;
+    private BufferedImage ecran;
+    private Graphics2D g2d;
+    private Rectangle zone;
+
+    @Setup(Level.Trial)
+    public void preparer() {
+        formes = GenerateurDessin.formesMelangees(nbFormes, largeur, hauteur, 42);
+        GrilleSpatiale index = new GrilleSpatiale();
+        for (Forme forme : formes) {
+            index.ajouter(forme);
+        }
+        rendu = new RenduTuiles(index, accelere);
+        rendu.setEchelle(echelle);
+        ecran = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_RGB);
+        g2d = ecran.createGraphics();
+        zone = new Rectangle(0, 0, largeur, hauteur);
+        rendu.peindre(g2d, zone);
+    }
+
+    @TearDown(Level.Trial)
+    public void liberer() {
+        g2d.dispose();
+    }
+
+    /**
+     * Rendu de toutes les formes dans une nouvelle image, comme à l'export.
+     */
+    @Benchmark
+    public BufferedImage rendreImage() throws InterruptedIOException {
+        return RenduImage.rendre(formes, largeur, hauteur, SuiviProgression.AUCUN);
+    }
+
+    /**
+     * Peinture du panneau après invalidation de toutes les tuiles, comme après un
+     * chargement.
+     */
+    @Benchmark
+    public BufferedImage peindreCacheFroid() {
+        rendu.invaliderTout();
+        rendu.peindre(g2d, zone);
+        return ecran;
+    }
+
+    /**
+     * Peinture du panneau sans modification, par simple recopie des tuiles.
+     */
+    @Benchmark
+    public BufferedImage peindreCacheChaud() {
+        rendu.peindre(g2d, zone);
+        return ecran;
+    }
+}
@@ -0,0 +1,189 @@
+/**
+ * Classe représentant un calque du dessin : une pile de formes avec un nom, une
+ * visibilité, un verrou et une opacité. Les calques sont empilés les uns sur
+ * les autres ; l'opacité s'applique au calque entier, une fois ses formes
+ * dessinées.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class Calque {
+
+    /**
+     * Nom du calque.
+     */
+    private String nom;
+
+    /**
+     * Indique si le calque est affiché.
+     */
+    private boolean visible;
+
+    /**
+     * Indique si le calque est protégé contre les modifications.
+     */
+    private boolean verrouille;
+
+    /**
+     * Opacité du calque, en pourcentage.
+     */
+    private int opacite;
+
+    /**
+     * Formes du calque, de la plus basse à la plus haute.
+     */
+    private List<Forme> formes;
+
+    /**
+     * Constructeur d'un calque vide, visible, non verrouillé et opaque.
+     *
+     * @param nom Nom du calque.
+     */
+    public Calque(String nom) {
+        this(nom, new ArrayList<>());
+    }
+
+    /**
+     * Constructeur d'un calque visible, non verrouillé et opaque.
+     *
+     * @param nom    Nom du calque.
+     * @param formes Formes du calque, de la plus basse à la plus haute.
+     */
+    public Calque(String nom, List<Forme> formes) {
+        this.nom = nom;
+        this.visible = true;
+        this.verrouille = false;
+        this.opacite = 100;
+        this.formes = formes;
+    }
+
+    /**
+     * Retourne le nom donné par défaut à un calque.
+     *
+     * @param numero Numéro du calque, à partir de 1.
+     * @return Le nom du calque.
+     */
+    public static String nomParDefaut(int numero) {
+        return "Calque " + numero;
+    }
+
+    /**
+     * Retourne le nom du calque.
+     *
+     * @return Nom du calque.
+     */
+    public String getNom() {
+        return nom;
+    }
+
+    /**
+     * Définit le nom du calque.
+     *
+     * @param nom Nouveau nom.
+     */
+    public void setNom(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Indique si le calque est affiché.
+     *
+     * @return {@code true} s'il est visible.
+     */
+    public boolean isVisible() {
+        return visible;
+    }
+
+    /**
+     * Affiche ou masque le calque.
+     *
+     * @param visible {@code true} pour l'afficher.
+     */
+    public void setVisible(boolean visible) {
+        this.visible = visible;
+    }
+
+    /**
+     * Indique si le calque est protégé contre les modifications.
+     *
+     * @return {@code true} s'il est verrouillé.
+     */
+    public boolean isVerrouille() {
+        return verrouille;
+    }
+
+    /**
+     * Verrouille ou déverrouille le calque.
+     *
+     * @param verrouille {@code true} pour le verrouiller.
+     */
+    public void setVerrouille(boolean verrouille) {
+        this.verrouille = verrouille;
+    }
+
+    /**
+     * Retourne l'opacité du calque.
+     *
+     * @return Opacité en pourcentage, entre 0 et 100.
+     */
+    public int getOpacite() {
+        return opacite;
+    }
+
+    /**
+     * Définit l'opacité du calque.
+     *
+     * @param opacite Opacité en pourcentage, ramenée entre 0 et 100.
+     */
+    public void setOpacite(int opacite) {
+        this.opacite = Math.max(0, Math.min(100, opacite));
+    }
+
+    /**
+     * Retourne les formes du calque.
+     *
+     * @return Liste des formes, de la plus basse à la plus haute.
+     */
+    public List<Forme> getFormes() {
+        return formes;
+    }
+
+    /**
+     * Retire toutes les formes du calque. Le calque repart d'une liste neuve, la
+     * liste retournée n'est plus partagée avec lui.
+     *
+     * @return Les formes retirées.
+     */
+    public List<Forme> retirerFormes() {
+        List<Forme> retirees = formes;
+        formes = new ArrayList<>();
+        return retirees;
+    }
+
+    /**
+     * Copie les propriétés du calque et fige la liste de ses formes, par exemple
+     * pour l'enregistrer en arrière-plan pendant que le dessin continue.
+     *
+     * @return Une copie du calque, dont la liste des formes n'est pas modifiable.
+     */
+    public Calque copie() {
+        Calque copie = new Calque(nom, List.copyOf(formes));
+        copie.copierProprietes(this);
+        return copie;
+    }
+
+    /**
+     * Recopie la visibilité, le verrou et l'opacité d'un autre calque.
+     *
+     * @param modele Le calque dont les propriétés sont recopiées.
+     */
+    public void copierProprietes(Calque modele) {
+        this.visible = modele.visible;
+        this.verrouille = modele.verrouille;
+        this.opacite = modele.opacite;
+    }
+}
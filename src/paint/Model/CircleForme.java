@@ -11,6 +11,13 @@ package paint.Model;
 import java.awt.*;
 
 public class CircleForme extends Forme {
+    private static final long serialVersionUID = -56088779945428437L;
+
+    /**
+     * Rayon du cercle et son carré, calculés avec la géométrie de la forme.
+     */
+    private transient int rayon;
+    private transient long rayonCarre;
 
     /**
      * Constructeur de la classe CircleForme.
@@ -35,13 +42,39 @@ public class CircleForme extends Forme {
     @Override
     public void draw(Graphics g) {
         g.setColor(color);
-        int radius = (int) Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setStroke(TRAIT);
+        int radius = getRayon();
         int diameter = radius * 2;
         int x = startX - radius;
         int y = startY - radius;
         g.drawOval(x, y, diameter, diameter);
     }
 
+    /**
+     * Calcule le rayon du cercle, arrondi au pixel inférieur, son carré et le
+     * carré englobant le cercle.
+     */
+    @Override
+    protected void calculerGeometrie() {
+        long dx = endX - startX;
+        long dy = endY - startY;
+        int radius = (int) Math.sqrt((double) (dx * dx + dy * dy));
+        rayon = radius;
+        rayonCarre = (long) radius * radius;
+        definirLimites(startX - radius, startY - radius, startX + radius, startY + radius);
+    }
+
+    /**
+     * Retourne le rayon du cercle.
+     *
+     * @return Rayon en pixels, arrondi au pixel inférieur.
+     */
+    public int getRayon() {
+        assurerGeometrie();
+        return rayon;
+    }
+
     /**
      * Vérifie si un point donné est contenu dans le cercle.
      *
@@ -51,16 +84,16 @@ public class CircleForme extends Forme {
      */
     @Override
     public boolean contient(Point p) {
-        // Calcul du rayon du cercle
-        int radius = (int) Math.sqrt(Math.pow(endX - startX, 2) + Math.pow(endY - startY, 2));
+        assurerGeometrie();
 
-        // Calcul de la distance entre le centre du cercle (startX, startY) et le point
-        // donné (p)
-        double distance = Math.sqrt(Math.pow(p.x - startX, 2) + Math.pow(p.y - startY, 2));
+        // Distance au carré entre le centre du cercle (startX, startY) et le point
+        // donné (p), comparée au carré du rayon : pas de racine carrée
+        long dx = p.x - startX;
+        long dy = p.y - startY;
 
         // Si la distance est inférieure ou égale au rayon, le point est à l'intérieur
         // ou sur le cercle
-        return distance <= radius;
+        return dx * dx + dy * dy <= rayonCarre;
     }
 
 }
@@ -0,0 +1,226 @@
+/**
+ * Lecture bufferisée de données binaires compactes depuis un canal NIO.
+ * Symétrique de {@link SortieBinaire}.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+class EntreeBinaire {
+
+    /**
+     * Taille du tampon de lecture.
+     */
+    private static final int TAILLE_TAMPON = 1 << 16;
+
+    /**
+     * Longueur maximale en octets d'une chaîne lue.
+     */
+    private static final int TAILLE_MAX_CHAINE = 1 << 16;
+
+    /**
+     * Canal source, ou {@code null} pour une lecture en mémoire.
+     */
+    private final ReadableByteChannel canal;
+
+    /**
+     * Tampon rempli depuis le canal au fur et à mesure de la lecture.
+     */
+    private final ByteBuffer tampon;
+
+    /**
+     * Nombre d'octets déjà lus depuis le canal.
+     */
+    private long lus;
+
+    /**
+     * Nombre total d'octets à lire, ou {@link Long#MAX_VALUE} s'il est
+     * inconnu.
+     */
+    private final long taille;
+
+    /**
+     * Constructeur de la classe EntreeBinaire, pour un flux de taille inconnue.
+     *
+     * @param canal Canal source.
+     */
+    EntreeBinaire(ReadableByteChannel canal) {
+        this(canal, Long.MAX_VALUE);
+    }
+
+    /**
+     * Constructeur de la classe EntreeBinaire.
+     *
+     * @param canal  Canal source.
+     * @param taille Nombre total d'octets du canal, qui borne les nombres
+     *               d'éléments lus par {@link #nombre(int)}.
+     */
+    EntreeBinaire(ReadableByteChannel canal, long taille) {
+        this.canal = canal;
+        this.taille = taille;
+        this.tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+        this.tampon.flip();
+    }
+
+    /**
+     * Constructeur de la classe EntreeBinaire pour lire des octets déjà en
+     * mémoire.
+     *
+     * @param contenu Octets à lire, de sa position à sa limite.
+     */
+    EntreeBinaire(ByteBuffer contenu) {
+        this.canal = null;
+        this.tampon = contenu;
+        this.lus = contenu.remaining();
+        this.taille = lus;
+    }
+
+    /**
+     * Lit un octet.
+     *
+     * @return Octet lu, entre 0 et 255.
+     * @throws IOException En cas d'erreur de lecture ou de fin de flux.
+     */
+    int octet() throws IOException {
+        exiger(1);
+        return tampon.get() & 0xFF;
+    }
+
+    /**
+     * Lit un entier sur quatre octets.
+     *
+     * @return Entier lu.
+     * @throws IOException En cas d'erreur de lecture ou de fin de flux.
+     */
+    int entier() throws IOException {
+        exiger(4);
+        return tampon.getInt();
+    }
+
+    /**
+     * Lit un entier positif écrit en varint.
+     *
+     * @return Entier lu.
+     * @throws IOException En cas d'erreur de lecture, de fin de flux ou de varint
+     *                     invalide.
+     */
+    int varint() throws IOException {
+        int valeur = 0;
+        for (int decalage = 0; decalage < 35; decalage += 7) {
+            int b = octet();
+            valeur |= (b & 0x7F) << decalage;
+            if ((b & 0x80) == 0) {
+                return valeur;
+            }
+        }
+        throw new IOException("Varint invalide");
+    }
+
+    /**
+     * Lit un nombre d'éléments écrit en varint, avant d'allouer de quoi les
+     * ranger. Un nombre négatif, ou que les octets restants ne peuvent pas
+     * contenir, vient d'un fichier corrompu : il est refusé plutôt que de
+     * provoquer une allocation démesurée. Le produit du nombre par la taille
+     * minimale d'un élément tient toujours dans un {@code int}.
+     *
+     * @param octetsParElement Nombre minimal d'octets occupés par un élément.
+     * @return Nombre lu.
+     * @throws IOException En cas d'erreur de lecture ou de nombre invalide.
+     */
+    int nombre(int octetsParElement) throws IOException {
+        int n = varint();
+        if (n < 0 || n > Integer.MAX_VALUE / octetsParElement
+                || n > (taille - position()) / octetsParElement) {
+            throw new IOException("Projet corrompu : nombre d'éléments invalide (" + n + ")");
+        }
+        return n;
+    }
+
+    /**
+     * Lit un entier signé écrit en varint zigzag.
+     *
+     * @return Entier lu.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    int signe() throws IOException {
+        int v = varint();
+        return (v >>> 1) ^ -(v & 1);
+    }
+
+    /**
+     * Lit une chaîne écrite par {@link SortieBinaire#chaine(String)}.
+     *
+     * @return Chaîne lue.
+     * @throws IOException En cas d'erreur de lecture ou de longueur invalide.
+     */
+    String chaine() throws IOException {
+        int longueur = varint();
+        if (longueur < 0 || longueur > TAILLE_MAX_CHAINE) {
+            throw new IOException("Chaîne trop longue : " + longueur);
+        }
+        byte[] octets = new byte[longueur];
+        for (int i = 0; i < longueur; i++) {
+            octets[i] = (byte) octet();
+        }
+        return new String(octets, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Lit des octets bruts écrits par
+     * {@link SortieBinaire#octets(byte[], int, int)}.
+     *
+     * @param octets Tableau rempli entièrement.
+     * @throws IOException En cas d'erreur de lecture ou de fin de flux.
+     */
+    void octets(byte[] octets) throws IOException {
+        int debut = 0;
+        while (debut < octets.length) {
+            if (!tampon.hasRemaining()) {
+                exiger(1);
+            }
+            int n = Math.min(octets.length - debut, tampon.remaining());
+            tampon.get(octets, debut, n);
+            debut += n;
+        }
+    }
+
+    /**
+     * Retourne le nombre d'octets consommés depuis le début du flux.
+     *
+     * @return Nombre d'octets lus.
+     */
+    long position() {
+        return lus - tampon.remaining();
+    }
+
+    /**
+     * Remplit le tampon jusqu'à disposer d'au moins le nombre d'octets demandé.
+     *
+     * @param octets Nombre d'octets nécessaires.
+     * @throws IOException En cas d'erreur de lecture ou de fin de flux.
+     */
+    private void exiger(int octets) throws IOException {
+        if (tampon.remaining() >= octets) {
+            return;
+        }
+        if (canal == null) {
+            throw new EOFException("Fin des données inattendue");
+        }
+
+        tampon.compact();
+        while (tampon.position() < octets) {
+            int n = canal.read(tampon);
+            if (n < 0) {
+                throw new EOFException("Fin de fichier inattendue");
+            }
+            lus += n;
+        }
+        tampon.flip();
+    }
+}
@@ -0,0 +1,528 @@
+/**
+ * Filtre d'image appliqué aux pixels d'un calque : flou, netteté, luminosité
+ * et contraste ou niveaux de gris.
+ *
+ * Un filtre travaille en place sur le tableau d'entiers ARGB prémultipliés
+ * d'une image, ligne par ligne. Chaque étape est découpée en bandes de lignes
+ * traitées en parallèle par le pool ForkJoin commun. Les calculs sont faits en
+ * entiers, à virgule fixe, et sur les composantes prémultipliées : une
+ * composante reste toujours inférieure ou égale à l'alpha du pixel. Lorsque le
+ * module {@code jdk.incubator.vector} est chargé, les boucles sur les pixels
+ * passent par {@link FiltresVectoriels}, plusieurs pixels à la fois ; les
+ * pixels restants, et toute l'image sans ce module, sont traités par les
+ * boucles scalaires, qui donnent exactement le même résultat.
+ *
+ * Le flou est un flou boîte répété trois fois dans chaque sens, proche d'un
+ * flou gaussien. Chaque passe fait glisser une somme par colonne de ligne en
+ * ligne, ce qui se prête au calcul vectoriel ; les passes horizontales sont
+ * faites de la même façon sur l'image transposée.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class Filtre {
+
+    /**
+     * Types de filtres.
+     */
+    public enum Type {
+        FLOU("Flou"),
+        NETTETE("Netteté"),
+        LUMINOSITE_CONTRASTE("Luminosité et contraste"),
+        NIVEAUX_DE_GRIS("Niveaux de gris");
+
+        private final String nom;
+
+        Type(String nom) {
+            this.nom = nom;
+        }
+
+        @Override
+        public String toString() {
+            return nom;
+        }
+    }
+
+    /**
+     * Rayon maximal du flou, en pixels.
+     */
+    public static final int RAYON_MAX = 20;
+
+    /**
+     * Nombre de passes du flou boîte.
+     */
+    private static final int PASSES_FLOU = 3;
+
+    /**
+     * Rayon du flou retranché de l'image pour accentuer la netteté.
+     */
+    private static final int RAYON_NETTETE = 1;
+
+    /**
+     * Nombre minimal de pixels d'une bande traitée d'un seul tenant : en
+     * dessous, le découpage coûte plus qu'il ne rapporte.
+     */
+    private static final int PIXELS_MIN_BANDE = 1 << 14;
+
+    /**
+     * Côté des blocs de la transposition.
+     */
+    private static final int BLOC_TRANSPOSITION = 32;
+
+    /**
+     * Pool des bandes de lignes.
+     */
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    /**
+     * Indique si les boucles vectorielles sont utilisées. Elles peuvent être
+     * désactivées avec {@code -Dpaint.simd=off}.
+     */
+    private static final boolean VECTORIEL = detecterVectoriel();
+
+    private final Type type;
+
+    /**
+     * Rayon du flou, pourcentage d'accentuation de la netteté ou luminosité,
+     * selon le type.
+     */
+    private final int force;
+
+    /**
+     * Contraste, pour le type {@link Type#LUMINOSITE_CONTRASTE}.
+     */
+    private final int contraste;
+
+    private Filtre(Type type, int force, int contraste) {
+        this.type = type;
+        this.force = force;
+        this.contraste = contraste;
+    }
+
+    /**
+     * Crée un flou.
+     *
+     * @param rayon Rayon de chaque passe du flou, entre 0 et {@link #RAYON_MAX}.
+     * @return Le filtre.
+     */
+    public static Filtre flou(int rayon) {
+        return new Filtre(Type.FLOU, Math.max(0, Math.min(RAYON_MAX, rayon)), 0);
+    }
+
+    /**
+     * Crée une accentuation de la netteté, par masque flou : l'écart entre
+     * l'image et sa version floutée est ajouté à l'image.
+     *
+     * @param pourcentage Part de l'écart ajoutée, en pourcentage.
+     * @return Le filtre.
+     */
+    public static Filtre nettete(int pourcentage) {
+        return new Filtre(Type.NETTETE, Math.max(0, pourcentage), 0);
+    }
+
+    /**
+     * Crée un réglage de la luminosité et du contraste.
+     *
+     * @param luminosite Luminosité ajoutée, entre -100 et 100.
+     * @param contraste  Contraste, entre -100 (gris uni) et 100 (contraste
+     *                   doublé).
+     * @return Le filtre.
+     */
+    public static Filtre luminositeContraste(int luminosite, int contraste) {
+        return new Filtre(Type.LUMINOSITE_CONTRASTE, Math.max(-100, Math.min(100, luminosite)),
+                Math.max(-100, Math.min(100, contraste)));
+    }
+
+    /**
+     * Crée un passage en niveaux de gris.
+     *
+     * @return Le filtre.
+     */
+    public static Filtre niveauxDeGris() {
+        return new Filtre(Type.NIVEAUX_DE_GRIS, 0, 0);
+    }
+
+    /**
+     * Retourne le type du filtre.
+     *
+     * @return Le type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Retourne la distance en pixels jusqu'à laquelle le filtre étale un pixel
+     * : l'image filtrée doit avoir cette marge autour du dessin.
+     *
+     * @return La marge en pixels.
+     */
+    public int getMarge() {
+        switch (type) {
+            case FLOU:
+                return PASSES_FLOU * force;
+            case NETTETE:
+                return PASSES_FLOU * RAYON_NETTETE;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Retourne le même filtre pour une image réduite, dont le flou est réduit
+     * dans la même proportion.
+     *
+     * @param facteur Échelle de l'image réduite, au plus 1.
+     * @return Le filtre adapté.
+     */
+    public Filtre reduit(double facteur) {
+        if (type != Type.FLOU || facteur >= 1) {
+            return this;
+        }
+        return flou((int) Math.round(force * facteur));
+    }
+
+    /**
+     * Indique si les boucles vectorielles sont utilisées.
+     *
+     * @return {@code true} si le module {@code jdk.incubator.vector} est chargé
+     *         et n'a pas été désactivé.
+     */
+    public static boolean isVectoriel() {
+        return VECTORIEL;
+    }
+
+    /**
+     * Applique le filtre en place.
+     *
+     * @param pixels  Pixels ARGB prémultipliés de l'image, ligne par ligne.
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     */
+    public void appliquer(int[] pixels, int largeur, int hauteur) {
+        if (pixels.length < largeur * hauteur) {
+            throw new IllegalArgumentException("Image plus grande que son tableau de pixels");
+        }
+        switch (type) {
+            case FLOU:
+                flouter(pixels, largeur, hauteur, force);
+                break;
+            case NETTETE:
+                accentuer(pixels, largeur, hauteur, force * 256 / 100);
+                break;
+            case LUMINOSITE_CONTRASTE:
+                // Composante c' = c * k + (128 + l) * a - 128 * k * a, en
+                // 256es pour k et en unités pour le décalage
+                int k = (int) Math.round(256 * (100 + contraste) / 100.0);
+                int decalage = 128 + force * 255 / 100 - ((128 * k) >> 8);
+                parBandes(largeur, hauteur, (debut, fin) -> {
+                    int i = VECTORIEL
+                            ? FiltresVectoriels.luminositeContraste(pixels, debut * largeur, fin * largeur, k, decalage)
+                            : debut * largeur;
+                    luminositeContraste(pixels, i, fin * largeur, k, decalage);
+                });
+                break;
+            case NIVEAUX_DE_GRIS:
+                parBandes(largeur, hauteur, (debut, fin) -> {
+                    int i = VECTORIEL ? FiltresVectoriels.niveauxDeGris(pixels, debut * largeur, fin * largeur)
+                            : debut * largeur;
+                    niveauxDeGris(pixels, i, fin * largeur);
+                });
+                break;
+        }
+    }
+
+    /**
+     * Floute une image en place par trois passes de flou boîte verticales puis
+     * trois horizontales.
+     *
+     * @param pixels  Pixels de l'image.
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     * @param rayon   Rayon de chaque passe.
+     */
+    private static void flouter(int[] pixels, int largeur, int hauteur, int rayon) {
+        if (rayon == 0 || largeur == 0 || hauteur == 0) {
+            return;
+        }
+        int[] temporaire = new int[largeur * hauteur];
+        flouterColonnes(pixels, temporaire, largeur, hauteur, rayon);
+        parBandes(largeur, hauteur, (debut, fin) -> transposer(temporaire, pixels, largeur, hauteur, debut, fin));
+        flouterColonnes(pixels, temporaire, hauteur, largeur, rayon);
+        parBandes(hauteur, largeur, (debut, fin) -> transposer(temporaire, pixels, hauteur, largeur, debut, fin));
+    }
+
+    /**
+     * Floute les colonnes d'une image par trois passes de flou boîte.
+     *
+     * @param pixels   Pixels de l'image, modifiés par les passes.
+     * @param resultat Tableau qui reçoit l'image floutée.
+     * @param largeur  Largeur de l'image.
+     * @param hauteur  Hauteur de l'image.
+     * @param rayon    Rayon de chaque passe.
+     */
+    private static void flouterColonnes(int[] pixels, int[] resultat, int largeur, int hauteur, int rayon) {
+        int[] source = pixels;
+        int[] destination = resultat;
+        for (int passe = 0; passe < PASSES_FLOU; passe++) {
+            int[] s = source;
+            int[] d = destination;
+            parBandes(largeur, hauteur, (debut, fin) -> {
+                int x = VECTORIEL ? FiltresVectoriels.boiteVerticale(s, d, largeur, hauteur, rayon, debut, fin) : 0;
+                boiteVerticale(s, d, largeur, hauteur, rayon, debut, fin, x);
+            });
+            source = d;
+            destination = s;
+        }
+    }
+
+    /**
+     * Accentue la netteté d'une image en place : chaque composante s'écarte de
+     * celle de l'image floutée.
+     *
+     * @param pixels  Pixels de l'image.
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     * @param part    Part de l'écart ajoutée, en 256es.
+     */
+    private static void accentuer(int[] pixels, int largeur, int hauteur, int part) {
+        if (part == 0) {
+            return;
+        }
+        int[] floue = pixels.clone();
+        flouter(floue, largeur, hauteur, RAYON_NETTETE);
+        parBandes(largeur, hauteur, (debut, fin) -> {
+            int i = VECTORIEL ? FiltresVectoriels.accentuer(pixels, floue, debut * largeur, fin * largeur, part)
+                    : debut * largeur;
+            accentuer(pixels, floue, i, fin * largeur, part);
+        });
+    }
+
+    /**
+     * Traitement d'une bande de lignes.
+     */
+    @FunctionalInterface
+    private interface Bande {
+        /**
+         * Traite les lignes d'une bande.
+         *
+         * @param debut Première ligne.
+         * @param fin   Ligne suivant la dernière.
+         */
+        void traiter(int debut, int fin);
+    }
+
+    /**
+     * Découpe les lignes d'une image en bandes traitées en parallèle, jusqu'à
+     * des bandes de {@link #PIXELS_MIN_BANDE} pixels environ. Une petite image,
+     * comme un aperçu, est traitée d'un seul tenant.
+     *
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     * @param bande   Traitement d'une bande.
+     */
+    private static void parBandes(int largeur, int hauteur, Bande bande) {
+        int lignesMin = Math.max(1, PIXELS_MIN_BANDE / Math.max(1, largeur));
+        if (hauteur <= lignesMin || POOL.getParallelism() == 1) {
+            bande.traiter(0, hauteur);
+            return;
+        }
+        POOL.invoke(new Bandes(bande, 0, hauteur, lignesMin));
+    }
+
+    /**
+     * Tâche ForkJoin qui coupe une bande de lignes en deux jusqu'à la taille
+     * minimale.
+     */
+    private static final class Bandes extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Bande bande;
+        private final int debut;
+        private final int fin;
+        private final int lignesMin;
+
+        private Bandes(Bande bande, int debut, int fin, int lignesMin) {
+            this.bande = bande;
+            this.debut = debut;
+            this.fin = fin;
+            this.lignesMin = lignesMin;
+        }
+
+        @Override
+        protected void compute() {
+            if (fin - debut <= lignesMin) {
+                bande.traiter(debut, fin);
+                return;
+            }
+            int milieu = (debut + fin) >>> 1;
+            invokeAll(new Bandes(bande, debut, milieu, lignesMin), new Bandes(bande, milieu, fin, lignesMin));
+        }
+    }
+
+    /**
+     * Transpose des lignes d'une image par blocs carrés, pour que les lectures
+     * comme les écritures restent dans le cache.
+     *
+     * @param source      Pixels lus.
+     * @param destination Pixels écrits, l'image transposée ayant pour largeur
+     *                    la hauteur de l'image lue.
+     * @param largeur     Largeur de l'image lue.
+     * @param hauteur     Hauteur de l'image lue.
+     * @param debut       Première ligne lue.
+     * @param fin         Ligne suivant la dernière.
+     */
+    static void transposer(int[] source, int[] destination, int largeur, int hauteur, int debut, int fin) {
+        for (int y0 = debut; y0 < fin; y0 += BLOC_TRANSPOSITION) {
+            int y1 = Math.min(fin, y0 + BLOC_TRANSPOSITION);
+            for (int x0 = 0; x0 < largeur; x0 += BLOC_TRANSPOSITION) {
+                int x1 = Math.min(largeur, x0 + BLOC_TRANSPOSITION);
+                for (int y = y0; y < y1; y++) {
+                    int ligne = y * largeur;
+                    for (int x = x0; x < x1; x++) {
+                        destination[x * hauteur + y] = source[ligne + x];
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Passe verticale du flou boîte, pour les colonnes à partir de {@code x0}
+     * : une somme par colonne glisse de ligne en ligne.
+     *
+     * @param source      Pixels lus.
+     * @param destination Pixels écrits.
+     * @param largeur     Largeur de l'image.
+     * @param hauteur     Hauteur de l'image.
+     * @param rayon       Rayon de la boîte.
+     * @param debut       Première ligne.
+     * @param fin         Ligne suivant la dernière.
+     * @param x0          Première colonne traitée.
+     */
+    static void boiteVerticale(int[] source, int[] destination, int largeur, int hauteur, int rayon, int debut,
+            int fin, int x0) {
+        int colonnes = largeur - x0;
+        if (colonnes <= 0) {
+            return;
+        }
+        int inverse = 65536 / (2 * rayon + 1);
+        int derniere = hauteur - 1;
+        int[] sa = new int[colonnes];
+        int[] sr = new int[colonnes];
+        int[] sg = new int[colonnes];
+        int[] sb = new int[colonnes];
+        for (int k = debut - rayon; k <= debut + rayon; k++) {
+            int ligne = Math.max(0, Math.min(derniere, k)) * largeur + x0;
+            for (int x = 0; x < colonnes; x++) {
+                int p = source[ligne + x];
+                sa[x] += p >>> 24;
+                sr[x] += (p >> 16) & 0xFF;
+                sg[x] += (p >> 8) & 0xFF;
+                sb[x] += p & 0xFF;
+            }
+        }
+        for (int y = debut; y < fin; y++) {
+            int ligne = y * largeur + x0;
+            int entree = Math.min(derniere, y + rayon + 1) * largeur + x0;
+            int sortie = Math.max(0, y - rayon) * largeur + x0;
+            for (int x = 0; x < colonnes; x++) {
+                destination[ligne + x] = ((sa[x] * inverse + 32768) >>> 16) << 24
+                        | ((sr[x] * inverse + 32768) >>> 16) << 16
+                        | ((sg[x] * inverse + 32768) >>> 16) << 8
+                        | ((sb[x] * inverse + 32768) >>> 16);
+                int entrant = source[entree + x];
+                int sortant = source[sortie + x];
+                sa[x] += (entrant >>> 24) - (sortant >>> 24);
+                sr[x] += ((entrant >> 16) & 0xFF) - ((sortant >> 16) & 0xFF);
+                sg[x] += ((entrant >> 8) & 0xFF) - ((sortant >> 8) & 0xFF);
+                sb[x] += (entrant & 0xFF) - (sortant & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Ajoute à chaque composante son écart avec l'image floutée, borné entre 0
+     * et l'alpha du pixel, qui ne change pas.
+     *
+     * @param pixels Pixels modifiés.
+     * @param floue  Pixels de l'image floutée.
+     * @param debut  Premier pixel.
+     * @param fin    Pixel suivant le dernier.
+     * @param part   Part de l'écart ajoutée, en 256es.
+     */
+    static void accentuer(int[] pixels, int[] floue, int debut, int fin, int part) {
+        for (int i = debut; i < fin; i++) {
+            int p = pixels[i];
+            int f = floue[i];
+            int a = p >>> 24;
+            int r = (p >> 16) & 0xFF;
+            int g = (p >> 8) & 0xFF;
+            int b = p & 0xFF;
+            r = Math.max(0, Math.min(a, r + ((r - ((f >> 16) & 0xFF)) * part >> 8)));
+            g = Math.max(0, Math.min(a, g + ((g - ((f >> 8) & 0xFF)) * part >> 8)));
+            b = Math.max(0, Math.min(a, b + ((b - (f & 0xFF)) * part >> 8)));
+            pixels[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    /**
+     * Règle la luminosité et le contraste de chaque composante, bornée entre 0
+     * et l'alpha du pixel.
+     *
+     * @param pixels   Pixels modifiés.
+     * @param debut    Premier pixel.
+     * @param fin      Pixel suivant le dernier.
+     * @param k        Facteur de contraste, en 256es.
+     * @param decalage Décalage d'un pixel opaque.
+     */
+    static void luminositeContraste(int[] pixels, int debut, int fin, int k, int decalage) {
+        for (int i = debut; i < fin; i++) {
+            int p = pixels[i];
+            int a = p >>> 24;
+            // Décalage proportionnel à l'alpha, a / 255 étant pris en 65536es
+            int base = ((a * 257 + (a >> 7)) * decalage) >> 16;
+            int r = Math.max(0, Math.min(a, (((p >> 16) & 0xFF) * k >> 8) + base));
+            int g = Math.max(0, Math.min(a, (((p >> 8) & 0xFF) * k >> 8) + base));
+            int b = Math.max(0, Math.min(a, ((p & 0xFF) * k >> 8) + base));
+            pixels[i] = a << 24 | r << 16 | g << 8 | b;
+        }
+    }
+
+    /**
+     * Remplace chaque pixel par sa luminance.
+     *
+     * @param pixels Pixels modifiés.
+     * @param debut  Premier pixel.
+     * @param fin    Pixel suivant le dernier.
+     */
+    static void niveauxDeGris(int[] pixels, int debut, int fin) {
+        for (int i = debut; i < fin; i++) {
+            int p = pixels[i];
+            int gris = (77 * ((p >> 16) & 0xFF) + 150 * ((p >> 8) & 0xFF) + 29 * (p & 0xFF) + 128) >> 8;
+            pixels[i] = (p & 0xFF000000) | gris << 16 | gris << 8 | gris;
+        }
+    }
+
+    /**
+     * Vérifie que le module {@code jdk.incubator.vector} est chargé, que
+     * {@link FiltresVectoriels} peut s'en servir et qu'il n'a pas été désactivé.
+     *
+     * @return {@code true} si les boucles vectorielles sont utilisables.
+     */
+    private static boolean detecterVectoriel() {
+        if ("off".equals(System.getProperty("paint.simd"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return false;
+        }
+        try {
+            return FiltresVectoriels.pixelsParVecteur() > 1;
+        } catch (LinkageError e) {
+            return false;
+        }
+    }
+}
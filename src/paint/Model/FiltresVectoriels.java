@@ -0,0 +1,260 @@
+/**
+ * Boucles vectorielles des filtres d'image, avec l'API Vector
+ * ({@code jdk.incubator.vector}) : chaque itération traite autant de pixels
+ * que le processeur en tient dans un registre vectoriel.
+ *
+ * Cette classe n'est chargée que par {@link Filtre}, et seulement si le module
+ * est présent. Chaque méthode s'arrête au dernier vecteur complet et retourne
+ * la position atteinte, à partir de laquelle la boucle scalaire correspondante
+ * de {@link Filtre} termine le travail ; les calculs, en entiers, sont
+ * identiques à ceux des boucles scalaires.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+final class FiltresVectoriels {
+
+    /**
+     * Vecteurs d'entiers de la taille préférée du processeur.
+     */
+    private static final VectorSpecies<Integer> ESPECE = IntVector.SPECIES_PREFERRED;
+
+    private FiltresVectoriels() {
+    }
+
+    /**
+     * Retourne le nombre de pixels traités à chaque itération.
+     *
+     * @return Nombre d'entiers par vecteur.
+     */
+    static int pixelsParVecteur() {
+        return ESPECE.length();
+    }
+
+    /**
+     * Version vectorielle de {@link Filtre#niveauxDeGris(int[], int, int)}.
+     *
+     * @param pixels Pixels modifiés.
+     * @param debut  Premier pixel.
+     * @param fin    Pixel suivant le dernier.
+     * @return Premier pixel non traité.
+     */
+    static int niveauxDeGris(int[] pixels, int debut, int fin) {
+        int n = ESPECE.length();
+        int borne = debut + ESPECE.loopBound(fin - debut);
+        int i = debut;
+        for (; i < borne; i += n) {
+            IntVector p = IntVector.fromArray(ESPECE, pixels, i);
+            IntVector gris = rouge(p).mul(77).add(vert(p).mul(150)).add(bleu(p).mul(29)).add(128)
+                    .lanewise(VectorOperators.ASHR, 8);
+            p.and(0xFF000000)
+                    .or(gris.lanewise(VectorOperators.LSHL, 16))
+                    .or(gris.lanewise(VectorOperators.LSHL, 8))
+                    .or(gris)
+                    .intoArray(pixels, i);
+        }
+        return i;
+    }
+
+    /**
+     * Version vectorielle de
+     * {@link Filtre#luminositeContraste(int[], int, int, int, int)}.
+     *
+     * @param pixels   Pixels modifiés.
+     * @param debut    Premier pixel.
+     * @param fin      Pixel suivant le dernier.
+     * @param k        Facteur de contraste, en 256es.
+     * @param decalage Décalage d'un pixel opaque.
+     * @return Premier pixel non traité.
+     */
+    static int luminositeContraste(int[] pixels, int debut, int fin, int k, int decalage) {
+        int n = ESPECE.length();
+        int borne = debut + ESPECE.loopBound(fin - debut);
+        int i = debut;
+        for (; i < borne; i += n) {
+            IntVector p = IntVector.fromArray(ESPECE, pixels, i);
+            IntVector a = alpha(p);
+            IntVector base = a.mul(257).add(a.lanewise(VectorOperators.ASHR, 7)).mul(decalage)
+                    .lanewise(VectorOperators.ASHR, 16);
+            IntVector r = borner(rouge(p).mul(k).lanewise(VectorOperators.ASHR, 8).add(base), a);
+            IntVector g = borner(vert(p).mul(k).lanewise(VectorOperators.ASHR, 8).add(base), a);
+            IntVector b = borner(bleu(p).mul(k).lanewise(VectorOperators.ASHR, 8).add(base), a);
+            assembler(a, r, g, b).intoArray(pixels, i);
+        }
+        return i;
+    }
+
+    /**
+     * Version vectorielle de
+     * {@link Filtre#accentuer(int[], int[], int, int, int)}.
+     *
+     * @param pixels Pixels modifiés.
+     * @param floue  Pixels de l'image floutée.
+     * @param debut  Premier pixel.
+     * @param fin    Pixel suivant le dernier.
+     * @param part   Part de l'écart ajoutée, en 256es.
+     * @return Premier pixel non traité.
+     */
+    static int accentuer(int[] pixels, int[] floue, int debut, int fin, int part) {
+        int n = ESPECE.length();
+        int borne = debut + ESPECE.loopBound(fin - debut);
+        int i = debut;
+        for (; i < borne; i += n) {
+            IntVector p = IntVector.fromArray(ESPECE, pixels, i);
+            IntVector f = IntVector.fromArray(ESPECE, floue, i);
+            IntVector a = alpha(p);
+            IntVector r = rouge(p);
+            IntVector g = vert(p);
+            IntVector b = bleu(p);
+            r = borner(r.add(r.sub(rouge(f)).mul(part).lanewise(VectorOperators.ASHR, 8)), a);
+            g = borner(g.add(g.sub(vert(f)).mul(part).lanewise(VectorOperators.ASHR, 8)), a);
+            b = borner(b.add(b.sub(bleu(f)).mul(part).lanewise(VectorOperators.ASHR, 8)), a);
+            assembler(a, r, g, b).intoArray(pixels, i);
+        }
+        return i;
+    }
+
+    /**
+     * Version vectorielle de la passe verticale du flou boîte
+     * ({@link Filtre#boiteVerticale}), pour les premières colonnes de l'image
+     * : les sommes glissantes de plusieurs colonnes avancent ensemble. Chaque
+     * étape d'une ligne passe par une petite méthode : une seule grande boucle
+     * dépasse le budget d'inlining du compilateur, et les vecteurs sont alors
+     * alloués sur le tas.
+     *
+     * @param source      Pixels lus.
+     * @param destination Pixels écrits.
+     * @param largeur     Largeur de l'image.
+     * @param hauteur     Hauteur de l'image.
+     * @param rayon       Rayon de la boîte.
+     * @param debut       Première ligne.
+     * @param fin         Ligne suivant la dernière.
+     * @return Première colonne non traitée.
+     */
+    static int boiteVerticale(int[] source, int[] destination, int largeur, int hauteur, int rayon, int debut,
+            int fin) {
+        int colonnes = ESPECE.loopBound(largeur);
+        if (colonnes == 0) {
+            return 0;
+        }
+        int inverse = 65536 / (2 * rayon + 1);
+        int derniere = hauteur - 1;
+        int[] sommes = new int[4 * colonnes];
+        for (int k = debut - rayon; k <= debut + rayon; k++) {
+            cumuler(source, Math.max(0, Math.min(derniere, k)) * largeur, sommes, colonnes);
+        }
+        for (int y = debut; y < fin; y++) {
+            moyennes(sommes, destination, y * largeur, colonnes, inverse);
+            glisser(source, Math.min(derniere, y + rayon + 1) * largeur, Math.max(0, y - rayon) * largeur,
+                    sommes, colonnes);
+        }
+        return colonnes;
+    }
+
+    /**
+     * Ajoute une ligne de pixels aux sommes des colonnes.
+     *
+     * @param source   Pixels lus.
+     * @param ligne    Premier pixel de la ligne.
+     * @param sommes   Sommes des colonnes, par composante : alpha, rouge, vert
+     *                 puis bleu, {@code colonnes} cases chacune.
+     * @param colonnes Nombre de colonnes, multiple de la taille d'un vecteur.
+     */
+    private static void cumuler(int[] source, int ligne, int[] sommes, int colonnes) {
+        for (int x = 0; x < colonnes; x += ESPECE.length()) {
+            IntVector p = IntVector.fromArray(ESPECE, source, ligne + x);
+            IntVector.fromArray(ESPECE, sommes, x).add(alpha(p)).intoArray(sommes, x);
+            IntVector.fromArray(ESPECE, sommes, colonnes + x).add(rouge(p)).intoArray(sommes, colonnes + x);
+            IntVector.fromArray(ESPECE, sommes, 2 * colonnes + x).add(vert(p)).intoArray(sommes, 2 * colonnes + x);
+            IntVector.fromArray(ESPECE, sommes, 3 * colonnes + x).add(bleu(p)).intoArray(sommes, 3 * colonnes + x);
+        }
+    }
+
+    /**
+     * Écrit une ligne de moyennes des colonnes.
+     *
+     * @param sommes      Sommes des colonnes, par composante.
+     * @param destination Pixels écrits.
+     * @param ligne       Premier pixel de la ligne écrite.
+     * @param colonnes    Nombre de colonnes, multiple de la taille d'un vecteur.
+     * @param inverse     Inverse de la hauteur de la boîte, en 65536es.
+     */
+    private static void moyennes(int[] sommes, int[] destination, int ligne, int colonnes, int inverse) {
+        for (int x = 0; x < colonnes; x += ESPECE.length()) {
+            assembler(moyenne(IntVector.fromArray(ESPECE, sommes, x), inverse),
+                    moyenne(IntVector.fromArray(ESPECE, sommes, colonnes + x), inverse),
+                    moyenne(IntVector.fromArray(ESPECE, sommes, 2 * colonnes + x), inverse),
+                    moyenne(IntVector.fromArray(ESPECE, sommes, 3 * colonnes + x), inverse))
+                    .intoArray(destination, ligne + x);
+        }
+    }
+
+    /**
+     * Fait glisser les sommes des colonnes d'une ligne vers le bas.
+     *
+     * @param source   Pixels lus.
+     * @param entree   Premier pixel de la ligne qui entre dans la boîte.
+     * @param sortie   Premier pixel de la ligne qui en sort.
+     * @param sommes   Sommes des colonnes, par composante.
+     * @param colonnes Nombre de colonnes, multiple de la taille d'un vecteur.
+     */
+    private static void glisser(int[] source, int entree, int sortie, int[] sommes, int colonnes) {
+        for (int x = 0; x < colonnes; x += ESPECE.length()) {
+            IntVector entrant = IntVector.fromArray(ESPECE, source, entree + x);
+            IntVector sortant = IntVector.fromArray(ESPECE, source, sortie + x);
+            IntVector.fromArray(ESPECE, sommes, x).add(alpha(entrant)).sub(alpha(sortant))
+                    .intoArray(sommes, x);
+            IntVector.fromArray(ESPECE, sommes, colonnes + x).add(rouge(entrant)).sub(rouge(sortant))
+                    .intoArray(sommes, colonnes + x);
+            IntVector.fromArray(ESPECE, sommes, 2 * colonnes + x).add(vert(entrant)).sub(vert(sortant))
+                    .intoArray(sommes, 2 * colonnes + x);
+            IntVector.fromArray(ESPECE, sommes, 3 * colonnes + x).add(bleu(entrant)).sub(bleu(sortant))
+                    .intoArray(sommes, 3 * colonnes + x);
+        }
+    }
+
+    private static IntVector alpha(IntVector p) {
+        return p.lanewise(VectorOperators.LSHR, 24);
+    }
+
+    private static IntVector rouge(IntVector p) {
+        return p.lanewise(VectorOperators.LSHR, 16).and(0xFF);
+    }
+
+    private static IntVector vert(IntVector p) {
+        return p.lanewise(VectorOperators.LSHR, 8).and(0xFF);
+    }
+
+    private static IntVector bleu(IntVector p) {
+        return p.and(0xFF);
+    }
+
+    /**
+     * Borne des composantes entre 0 et l'alpha de leur pixel.
+     */
+    private static IntVector borner(IntVector composante, IntVector a) {
+        return composante.max(0).min(a);
+    }
+
+    /**
+     * Divise des sommes par la largeur de la boîte, arrondi compris.
+     */
+    private static IntVector moyenne(IntVector somme, int inverse) {
+        return somme.mul(inverse).add(32768).lanewise(VectorOperators.LSHR, 16);
+    }
+
+    /**
+     * Assemble des composantes en pixels ARGB.
+     */
+    private static IntVector assembler(IntVector a, IntVector r, IntVector g, IntVector b) {
+        return a.lanewise(VectorOperators.LSHL, 24)
+                .or(r.lanewise(VectorOperators.LSHL, 16))
+                .or(g.lanewise(VectorOperators.LSHL, 8))
+                .or(b);
+    }
+}
@@ -0,0 +1,500 @@
+/**
+ * Lecture et écriture des projets dans un format binaire compact et versionné.
+ *
+ * Un fichier commence par un en-tête (signature "PNTB", version, dimensions du
+ * canvas, couleur courante), suivi d'une palette des couleurs utilisées, de la
+ * description des calques (nom, visibilité, verrou, opacité, nombre de formes)
+ * puis des formes de tous les calques, du plus bas au plus haut. Chaque forme est codée par un octet de type, l'indice de sa
+ * couleur dans la palette et ses coordonnées en varint ; les points d'un tracé à
+ * main levée sont codés par différence avec le point précédent, les
+ * rectangles d'une zone remplie par différence avec le rectangle précédent, et
+ * les pixels d'une image compressés par Deflate.
+ *
+ * Les projets de la version 1, sans calques, et ceux enregistrés par
+ * sérialisation Java dans les versions précédentes restent lisibles : leurs
+ * formes forment un seul calque.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.ObjectInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+public final class FormatProjet {
+
+    /**
+     * Signature des fichiers au format binaire ("PNTB").
+     */
+    private static final int SIGNATURE = 0x504E5442;
+
+    /**
+     * Version actuelle du format.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Drapeaux des calques dans le fichier.
+     */
+    private static final int CALQUE_VISIBLE = 1, CALQUE_VERROUILLE = 2;
+
+    /**
+     * Premier octet d'un flux de sérialisation Java (ancien format).
+     */
+    private static final int SIGNATURE_SERIALISATION = 0xACED;
+
+    /**
+     * Types de formes dans le fichier.
+     */
+    static final int RECTANGLE = 1, LIGNE = 2, TRIANGLE = 3, CERCLE = 4, MAIN_LEVEE = 5, REMPLISSAGE = 6,
+            IMAGE = 7;
+
+    private FormatProjet() {
+    }
+
+    /**
+     * Enregistre un projet au format binaire.
+     *
+     * @param fichier Chemin du fichier à écrire.
+     * @param projet  Projet à enregistrer.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    public static void ecrire(Path fichier, Projet projet) throws IOException {
+        ecrire(fichier, projet, SuiviProgression.AUCUN);
+    }
+
+    /**
+     * Enregistre un projet au format binaire en signalant l'avancement. Le projet
+     * est d'abord écrit dans un fichier temporaire qui remplace le fichier cible
+     * une fois complet : une annulation ou une erreur laisse l'ancien fichier
+     * intact.
+     *
+     * @param fichier Chemin du fichier à écrire.
+     * @param projet  Projet à enregistrer.
+     * @param suivi   Suivi de l'avancement et de l'annulation.
+     * @throws InterruptedIOException Si l'enregistrement a été annulé.
+     * @throws IOException            En cas d'erreur d'écriture.
+     */
+    public static void ecrire(Path fichier, Projet projet, SuiviProgression suivi) throws IOException {
+        Path temporaire = fichier.resolveSibling(fichier.getFileName() + ".tmp");
+        try {
+            ecrireContenu(temporaire, projet, suivi);
+            try {
+                Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaire, fichier, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporaire);
+        }
+    }
+
+    /**
+     * Écrit l'en-tête, la palette et les formes d'un projet dans un fichier.
+     *
+     * @param fichier Chemin du fichier à écrire.
+     * @param projet  Projet à enregistrer.
+     * @param suivi   Suivi de l'avancement et de l'annulation.
+     * @throws IOException En cas d'erreur d'écriture ou d'annulation.
+     */
+    private static void ecrireContenu(Path fichier, Projet projet, SuiviProgression suivi) throws IOException {
+        // Palette des couleurs, dans l'ordre de première apparition
+        Map<Integer, Integer> palette = new LinkedHashMap<>();
+        for (Forme forme : projet.getFormes()) {
+            palette.putIfAbsent(forme.getColor().getRGB(), palette.size());
+        }
+
+        try (FileChannel canal = FileChannel.open(fichier, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            SortieBinaire out = new SortieBinaire(canal);
+
+            out.entier(SIGNATURE);
+            out.varint(VERSION);
+            out.varint(projet.getLargeur());
+            out.varint(projet.getHauteur());
+            out.entier(projet.getCouleur().getRGB());
+
+            out.varint(palette.size());
+            for (int argb : palette.keySet()) {
+                out.entier(argb);
+            }
+
+            out.varint(projet.getCalques().size());
+            for (Calque calque : projet.getCalques()) {
+                ecrireCalque(out, calque);
+                out.varint(calque.getFormes().size());
+            }
+
+            int total = projet.getNbFormes();
+            int i = 0;
+            for (Calque calque : projet.getCalques()) {
+                for (Forme forme : calque.getFormes()) {
+                    ecrireForme(out, forme, palette.get(forme.getColor().getRGB()));
+
+                    if (i++ % 1024 == 0) {
+                        if (suivi.estAnnule()) {
+                            throw new InterruptedIOException("Enregistrement annulé");
+                        }
+                        suivi.avancer((double) i / total);
+                    }
+                }
+            }
+            out.vider();
+            suivi.avancer(1);
+        }
+    }
+
+    /**
+     * Charge un projet, au format binaire ou dans l'ancien format sérialisé.
+     *
+     * @param fichier Chemin du fichier à lire.
+     * @return Le projet lu.
+     * @throws IOException En cas d'erreur de lecture ou de fichier invalide.
+     */
+    public static Projet lire(Path fichier) throws IOException {
+        try (LecteurProjet lecteur = new LecteurProjet(fichier)) {
+            List<Calque> calques = lecteur.getCalques();
+            for (int i = 0; i < calques.size(); i++) {
+                calques.get(i).getFormes().addAll(lecteur.lireFormes(lecteur.getNbFormes(i)));
+            }
+            return new Projet(calques, lecteur.getCouleur(), lecteur.getLargeur(), lecteur.getHauteur());
+        }
+    }
+
+    /**
+     * Indique si un fichier commençant par les deux octets donnés est un projet
+     * enregistré par sérialisation Java.
+     *
+     * @param debut Deux premiers octets du fichier.
+     * @return {@code true} pour l'ancien format sérialisé.
+     */
+    static boolean estSerialise(short debut) {
+        return (debut & 0xFFFF) == SIGNATURE_SERIALISATION;
+    }
+
+    /**
+     * Lit et vérifie la signature et la version d'un projet binaire.
+     *
+     * @param in Entrée binaire positionnée au début du fichier.
+     * @return La version du fichier.
+     * @throws IOException Si le fichier n'est pas un projet ou si sa version est
+     *                     trop récente.
+     */
+    static int lireSignature(EntreeBinaire in) throws IOException {
+        if (in.entier() != SIGNATURE) {
+            throw new IOException("Ce fichier n'est pas un projet Paint");
+        }
+        int version = in.varint();
+        if (version > VERSION) {
+            throw new IOException("Version de projet non supportée : " + version);
+        }
+        return version;
+    }
+
+    /**
+     * Écrit les propriétés d'un calque : nom, drapeaux et opacité.
+     *
+     * @param out    Sortie binaire.
+     * @param calque Calque à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    static void ecrireCalque(SortieBinaire out, Calque calque) throws IOException {
+        out.chaine(calque.getNom());
+        out.octet((calque.isVisible() ? CALQUE_VISIBLE : 0) | (calque.isVerrouille() ? CALQUE_VERROUILLE : 0));
+        out.octet(calque.getOpacite());
+    }
+
+    /**
+     * Lit un calque vide écrit par {@link #ecrireCalque}.
+     *
+     * @param in Entrée binaire.
+     * @return Le calque lu, sans formes.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    static Calque lireCalque(EntreeBinaire in) throws IOException {
+        Calque calque = new Calque(in.chaine());
+        int drapeaux = in.octet();
+        calque.setVisible((drapeaux & CALQUE_VISIBLE) != 0);
+        calque.setVerrouille((drapeaux & CALQUE_VERROUILLE) != 0);
+        calque.setOpacite(in.octet());
+        return calque;
+    }
+
+    /**
+     * Écrit une forme : son type, le code de sa couleur puis ses coordonnées.
+     *
+     * @param out          Sortie binaire.
+     * @param forme        Forme à écrire.
+     * @param codeCouleur  Code de la couleur (indice de palette ou valeur ARGB
+     *                     selon l'appelant).
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    static void ecrireForme(SortieBinaire out, Forme forme, int codeCouleur) throws IOException {
+        if (forme instanceof FreeHandForme) {
+            FreeHandForme trace = (FreeHandForme) forme;
+            out.octet(MAIN_LEVEE);
+            out.varint(codeCouleur);
+            out.varint(trace.getLineWidth());
+
+            int n = trace.getNbPoints();
+            out.varint(n);
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < n; i++) {
+                out.signe(trace.getX(i) - x);
+                out.signe(trace.getY(i) - y);
+                x = trace.getX(i);
+                y = trace.getY(i);
+            }
+            return;
+        }
+        if (forme instanceof RemplissageForme) {
+            int[] rectangles = ((RemplissageForme) forme).getRectangles();
+            out.octet(REMPLISSAGE);
+            out.varint(codeCouleur);
+            out.varint(rectangles.length / 4);
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < rectangles.length; i += 4) {
+                out.signe(rectangles[i] - x);
+                out.signe(rectangles[i + 1] - y);
+                out.varint(rectangles[i + 2]);
+                out.varint(rectangles[i + 3]);
+                x = rectangles[i];
+                y = rectangles[i + 1];
+            }
+            return;
+        }
+        if (forme instanceof ImageForme) {
+            ImageForme image = (ImageForme) forme;
+            out.octet(IMAGE);
+            out.varint(codeCouleur);
+            out.signe(image.startX);
+            out.signe(image.startY);
+            out.varint(image.getLargeur());
+            out.varint(image.getHauteur());
+            byte[] compresse = compresser(image.getPixels());
+            out.varint(compresse.length);
+            out.octets(compresse, 0, compresse.length);
+            return;
+        }
+
+        out.octet(type(forme));
+        out.varint(codeCouleur);
+        out.signe(forme.startX);
+        out.signe(forme.startY);
+        out.signe(forme.endX - forme.startX);
+        out.signe(forme.endY - forme.startY);
+    }
+
+    /**
+     * Lit une forme écrite par {@link #ecrireForme}.
+     *
+     * @param in       Entrée binaire.
+     * @param couleurs Conversion du code de couleur lu en couleur.
+     * @return La forme lue.
+     * @throws IOException En cas d'erreur de lecture ou de type inconnu.
+     */
+    static Forme lireForme(EntreeBinaire in, IntFunction<Color> couleurs) throws IOException {
+        int type = in.octet();
+        Color couleur = couleurs.apply(in.varint());
+
+        if (type == MAIN_LEVEE) {
+            int lineWidth = in.varint();
+            // Au moins deux octets par point : un varint par coordonnée
+            int n = in.nombre(2);
+            if (n < 1) {
+                throw new IOException("Tracé à main levée vide");
+            }
+            int[] xs = new int[n];
+            int[] ys = new int[n];
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < n; i++) {
+                x += in.signe();
+                y += in.signe();
+                xs[i] = x;
+                ys[i] = y;
+            }
+            return new FreeHandForme(xs, ys, n, couleur, lineWidth);
+        }
+        if (type == REMPLISSAGE) {
+            // Au moins quatre octets par rectangle : un varint par valeur
+            int n = in.nombre(4);
+            if (n < 1) {
+                throw new IOException("Zone remplie vide");
+            }
+            int[] rectangles = new int[4 * n];
+            int x = 0;
+            int y = 0;
+            for (int i = 0; i < rectangles.length; i += 4) {
+                x += in.signe();
+                y += in.signe();
+                rectangles[i] = x;
+                rectangles[i + 1] = y;
+                rectangles[i + 2] = in.varint();
+                rectangles[i + 3] = in.varint();
+                if (rectangles[i + 2] < 0 || rectangles[i + 3] < 0) {
+                    throw new IOException("Projet corrompu : zone remplie invalide");
+                }
+            }
+            return new RemplissageForme(rectangles, couleur);
+        }
+        if (type == IMAGE) {
+            int x = in.signe();
+            int y = in.signe();
+            int largeur = in.varint();
+            int hauteur = in.varint();
+            if (largeur < 1 || hauteur < 1 || largeur > ImageForme.TAILLE_MAX || hauteur > ImageForme.TAILLE_MAX) {
+                throw new IOException("Image de taille invalide : " + largeur + "x" + hauteur);
+            }
+            int longueur = in.varint();
+            if (longueur < 0 || longueur > 4L * largeur * hauteur + 1024) {
+                throw new IOException("Image compressée invalide");
+            }
+            byte[] compresse = new byte[longueur];
+            in.octets(compresse);
+            return new ImageForme(x, y, largeur, hauteur, decompresser(compresse, largeur * hauteur));
+        }
+
+        int startX = in.signe();
+        int startY = in.signe();
+        int endX = startX + in.signe();
+        int endY = startY + in.signe();
+        switch (type) {
+            case RECTANGLE:
+                return new RectangleForme(startX, startY, endX, endY, couleur);
+            case LIGNE:
+                return new LigneForme(startX, startY, endX, endY, couleur);
+            case TRIANGLE:
+                return new TriangleForme(startX, startY, endX, endY, couleur);
+            case CERCLE:
+                return new CircleForme(startX, startY, endX, endY, couleur);
+            default:
+                throw new IOException("Type de forme inconnu : " + type);
+        }
+    }
+
+    /**
+     * Compresse les pixels d'une image, chacun sur quatre octets.
+     *
+     * @param pixels Pixels à compresser.
+     * @return Les octets compressés.
+     */
+    private static byte[] compresser(int[] pixels) {
+        ByteBuffer octets = ByteBuffer.allocate(4 * pixels.length);
+        octets.asIntBuffer().put(pixels);
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(octets.array());
+            deflater.finish();
+            byte[] compresse = new byte[Math.max(64, pixels.length / 4)];
+            int n = 0;
+            while (!deflater.finished()) {
+                if (n == compresse.length) {
+                    compresse = Arrays.copyOf(compresse, compresse.length * 2);
+                }
+                n += deflater.deflate(compresse, n, compresse.length - n);
+            }
+            return Arrays.copyOf(compresse, n);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Décompresse les pixels d'une image écrits par {@link #compresser(int[])}.
+     *
+     * @param compresse Les octets compressés.
+     * @param nombre    Nombre de pixels attendus.
+     * @return Les pixels.
+     * @throws IOException Si les données sont corrompues ou de taille
+     *                     inattendue.
+     */
+    private static int[] decompresser(byte[] compresse, int nombre) throws IOException {
+        byte[] octets = new byte[4 * nombre];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compresse);
+            int n = 0;
+            while (n < octets.length && !inflater.finished()) {
+                int lus = inflater.inflate(octets, n, octets.length - n);
+                if (lus == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += lus;
+            }
+            if (n != octets.length || !inflater.finished()) {
+                throw new IOException("Pixels de l'image incomplets");
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Pixels de l'image corrompus", e);
+        } finally {
+            inflater.end();
+        }
+        int[] pixels = new int[nombre];
+        ByteBuffer.wrap(octets).asIntBuffer().get(pixels);
+        return pixels;
+    }
+
+    /**
+     * Retourne le type d'une forme géométrique dans le fichier.
+     *
+     * @param forme Forme à coder.
+     * @return Type de la forme.
+     * @throws IOException Si la forme n'a pas de type dans le format.
+     */
+    private static int type(Forme forme) throws IOException {
+        if (forme instanceof RectangleForme) {
+            return RECTANGLE;
+        } else if (forme instanceof LigneForme) {
+            return LIGNE;
+        } else if (forme instanceof TriangleForme) {
+            return TRIANGLE;
+        } else if (forme instanceof CircleForme) {
+            return CERCLE;
+        }
+        throw new IOException("Forme non supportée : " + forme.getClass().getSimpleName());
+    }
+
+    /**
+     * Charge un projet enregistré par sérialisation Java.
+     *
+     * @param fichier Chemin du fichier à lire.
+     * @return Le projet lu.
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    @SuppressWarnings("unchecked")
+    static Projet lireAncien(Path fichier) throws IOException {
+        try (InputStream flux = new BufferedInputStream(Files.newInputStream(fichier), 1 << 16);
+                ObjectInputStream ois = new ObjectInputStream(flux)) {
+            List<Forme> formes = (List<Forme>) ois.readObject(); // Récupérer la liste des formes
+            Color couleur = (Color) ois.readObject(); // Récupérer la couleur sauvegardée
+            int largeur = ois.readInt();
+            int hauteur = ois.readInt();
+            return new Projet(List.of(new Calque(Calque.nomParDefaut(1), formes)), couleur, largeur, hauteur);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Projet illisible : " + e.getMessage(), e);
+        }
+    }
+}
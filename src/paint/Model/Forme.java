@@ -11,6 +11,19 @@ import java.awt.*;
 import java.io.Serializable;
 
 public abstract class Forme implements Serializable {
+    private static final long serialVersionUID = -8923509292991324411L;
+
+    /**
+     * Trait d'un pixel des formes géométriques, partagé par toutes les formes.
+     */
+    protected static final BasicStroke TRAIT = new BasicStroke(1);
+
+    /**
+     * Distance maximale en pixels entre un clic et une forme tracée d'un trait
+     * pour la sélectionner. À l'écran, elle est ramenée au zoom du dessin.
+     */
+    public static final int TOLERANCE_SELECTION = 5;
+
     /**
      * Coordonnée X du point de départ de la forme.
      */
@@ -36,6 +49,19 @@ public abstract class Forme implements Serializable {
      */
     protected Color color;
 
+    /**
+     * Indique si la géométrie dérivée des coordonnées (rectangle englobant,
+     * rayon, sommets...) est à jour. Elle est calculée au premier besoin et
+     * recalculée après une modification ; le calcul ne dépend que des
+     * coordonnées, plusieurs fils de rastérisation peuvent le faire à la fois.
+     */
+    private transient volatile boolean geometrieAJour;
+
+    /**
+     * Rectangle englobant calculé, épaisseur du trait comprise.
+     */
+    private transient int limiteX, limiteY, limiteLargeur, limiteHauteur;
+
     /**
      * Constructeur de la classe Forme.
      *
@@ -62,6 +88,118 @@ public abstract class Forme implements Serializable {
         return color;
     }
 
+    /**
+     * Retourne la largeur du trait utilisé pour dessiner la forme.
+     *
+     * @return Largeur du trait en pixels.
+     */
+    public int getLineWidth() {
+        return 1;
+    }
+
+    /**
+     * Redéfinit les coordonnées et la couleur de la forme. Réservé aux formes
+     * d'aperçu réutilisées pendant un glissement : une forme ajoutée au dessin
+     * ne doit plus changer.
+     *
+     * @param startX Coordonnée X du point de départ.
+     * @param startY Coordonnée Y du point de départ.
+     * @param endX   Coordonnée X du point de fin.
+     * @param endY   Coordonnée Y du point de fin.
+     * @param color  Couleur de la forme.
+     */
+    public void redefinir(int startX, int startY, int endX, int endY, Color color) {
+        this.startX = startX;
+        this.startY = startY;
+        this.endX = endX;
+        this.endY = endY;
+        this.color = color;
+        invaliderGeometrie();
+    }
+
+    /**
+     * Signale que les coordonnées ont changé : la géométrie dérivée sera
+     * recalculée au prochain besoin.
+     */
+    protected void invaliderGeometrie() {
+        geometrieAJour = false;
+    }
+
+    /**
+     * Calcule la géométrie dérivée si elle n'est pas à jour.
+     */
+    protected final void assurerGeometrie() {
+        if (!geometrieAJour) {
+            calculerGeometrie();
+            geometrieAJour = true;
+        }
+    }
+
+    /**
+     * Calcule la géométrie dérivée des coordonnées. Par défaut, seul le
+     * rectangle englobant des deux points est calculé ; une forme qui a
+     * d'autres valeurs à garder les calcule ici et définit ses limites avec
+     * {@link #definirLimites(int, int, int, int)}.
+     */
+    protected void calculerGeometrie() {
+        definirLimites(Math.min(startX, endX), Math.min(startY, endY),
+                Math.max(startX, endX), Math.max(startY, endY));
+    }
+
+    /**
+     * Retourne le rectangle englobant la forme telle qu'elle est dessinée,
+     * épaisseur du trait comprise. Sert à limiter les zones à redessiner.
+     *
+     * @return Rectangle englobant de la forme.
+     */
+    public Rectangle getBounds() {
+        return getBounds(new Rectangle());
+    }
+
+    /**
+     * Calcule le rectangle englobant la forme dans un rectangle existant, sans
+     * allocation.
+     *
+     * @param resultat Rectangle qui reçoit le résultat.
+     * @return Le rectangle {@code resultat}.
+     */
+    public Rectangle getBounds(Rectangle resultat) {
+        assurerGeometrie();
+        resultat.setBounds(limiteX, limiteY, limiteLargeur, limiteHauteur);
+        return resultat;
+    }
+
+    /**
+     * Indique si le rectangle englobant de la forme touche une zone, sans
+     * allocation.
+     *
+     * @param zone La zone.
+     * @return {@code true} si la forme peut être visible dans la zone.
+     */
+    public boolean intersecte(Rectangle zone) {
+        assurerGeometrie();
+        return zone.width > 0 && zone.height > 0
+                && limiteX < zone.x + zone.width && zone.x < limiteX + limiteLargeur
+                && limiteY < zone.y + zone.height && zone.y < limiteY + limiteHauteur;
+    }
+
+    /**
+     * Définit le rectangle englobant les pixels compris entre deux coins
+     * (inclus), élargi de la moitié de l'épaisseur du trait.
+     *
+     * @param minX Coordonnée X minimale.
+     * @param minY Coordonnée Y minimale.
+     * @param maxX Coordonnée X maximale.
+     * @param maxY Coordonnée Y maximale.
+     */
+    protected final void definirLimites(int minX, int minY, int maxX, int maxY) {
+        int marge = getLineWidth() / 2 + 1;
+        limiteX = minX - marge;
+        limiteY = minY - marge;
+        limiteLargeur = maxX - minX + 2 * marge + 1;
+        limiteHauteur = maxY - minY + 2 * marge + 1;
+    }
+
     /**
      * Méthode abstraite pour dessiner la forme.
      *
@@ -77,4 +215,19 @@ public abstract class Forme implements Serializable {
      *         {@code false}.
      */
     public abstract boolean contient(Point p);
+
+    /**
+     * Vérifie si un point donné est contenu dans la forme, avec une tolérance
+     * donnée pour les formes tracées d'un trait, comme une tolérance fixe à
+     * l'écran ramenée au zoom du dessin. Les formes pleines n'en tiennent pas
+     * compte.
+     *
+     * @param p         Point à vérifier.
+     * @param tolerance Distance maximale en pixels entre le point et le trait.
+     * @return {@code true} si le point est contenu dans la forme, sinon
+     *         {@code false}.
+     */
+    public boolean contient(Point p, int tolerance) {
+        return contient(p);
+    }
 }
@@ -1,27 +1,168 @@
 /**
  * Classe représentant une forme dessinée à main levée.
- * Elle permet de stocker une liste de points correspondant au tracé 
+ * Elle permet de stocker les points correspondant au tracé
  * et de gérer son rendu graphique.
  *
+ * Les coordonnées sont rangées dans deux tableaux d'entiers qui grandissent au
+ * besoin, plutôt que dans une liste de {@link Point} : un tracé de 100 000
+ * points occupe entre 0,8 et 1,2 Mo selon la marge de croissance des tableaux,
+ * contre 2,8 Mo auparavant.
+ *
+ * Pendant le tracé, les points trop proches du précédent ou presque alignés
+ * avec lui sont filtrés ; à la validation, le tracé est simplifié par
+ * l'algorithme de Ramer–Douglas–Peucker. Chaque étape dispose de la moitié de
+ * la tolérance, de sorte que le tracé final reste à moins de la tolérance des
+ * points saisis.
+ *
+ * Pour le test de sélection, les segments sont regroupés par blocs dont les
+ * rectangles englobants forment une hiérarchie : un clic loin d'un bloc écarte
+ * d'un coup tous ses segments.
+ *
+ * Vu de loin, le tracé peut être dessiné avec moins de points : les points
+ * plus proches du dernier point conservé que la taille d'un pixel à l'écran
+ * sont sautés. Cette version simplifiée est gardée pour le dernier niveau de
+ * détail demandé.
+ *
  * @author Baptiste Borie
  */
 package paint.Model;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class FreeHandForme extends Forme {
+    private static final long serialVersionUID = -8557693547067546183L;
+
+    /**
+     * Champs sérialisés, identiques à ceux des versions précédentes qui
+     * stockaient une liste de points, pour rester compatible avec les projets
+     * existants.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("points", List.class),
+            new ObjectStreamField("lineWidth", int.class)
+    };
+
+    /**
+     * Capacité initiale des tableaux de coordonnées.
+     */
+    private static final int CAPACITE_INITIALE = 64;
+
+    /**
+     * Nombre de segments par bloc de la hiérarchie, et nombre de blocs regroupés
+     * à chaque niveau supérieur.
+     */
+    private static final int TAILLE_BLOC = 16;
+
+    /**
+     * Traits aux bouts et jointures arrondis, construits une fois pour les
+     * épaisseurs courantes : dessiner un tracé n'alloue pas de trait.
+     */
+    private static final BasicStroke[] TRAITS_RONDS = new BasicStroke[33];
+
+    /**
+     * Transformation identité, pour dessiner en pixels de l'écran.
+     */
+    private static final AffineTransform IDENTITE = new AffineTransform();
+
+    static {
+        for (int i = 0; i < TRAITS_RONDS.length; i++) {
+            TRAITS_RONDS[i] = new BasicStroke(i, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
+        }
+    }
+
+    /**
+     * Coordonnées X des points du tracé.
+     */
+    private transient int[] xs;
+
+    /**
+     * Coordonnées Y des points du tracé.
+     */
+    private transient int[] ys;
+
     /**
-     * Liste des points représentant le tracé de la forme.
+     * Nombre de points du tracé.
      */
-    private List<Point> points;
+    private transient int nbPoints;
 
     /**
      * Largeur du trait pour dessiner la forme.
      */
     private int lineWidth;
 
+    /**
+     * Coordonnées extrêmes du tracé, tenues à jour à chaque ajout de point.
+     */
+    private transient int minX, minY, maxX, maxY;
+
+    /**
+     * Écart maximal en pixels toléré entre le tracé simplifié et les points
+     * saisis. Une tolérance nulle désactive la simplification.
+     */
+    private transient double tolerance;
+
+    /**
+     * Écart cumulé des points remplacés depuis le dernier point ajouté, afin que
+     * le filtrage en continu ne dérive pas au-delà de la tolérance.
+     */
+    private transient double ecartCumule;
+
+    /**
+     * Indique si un point saisi trop proche du précédent est en attente. Il est
+     * ajouté à la validation pour que le tracé se termine au dernier point.
+     */
+    private transient boolean pointEnAttente;
+
+    /**
+     * Hiérarchie des rectangles englobants des blocs de segments. Le niveau 0
+     * regroupe {@link #TAILLE_BLOC} segments par rectangle, chaque niveau suivant
+     * regroupe {@link #TAILLE_BLOC} rectangles du niveau inférieur. Chaque
+     * rectangle occupe quatre cases : minX, minY, maxX, maxY. Construite à la
+     * demande et effacée dès que le tracé change.
+     */
+    private transient int[][] blocs;
+
+    /**
+     * Dernière version simplifiée du tracé pour un dessin vu de loin, ou
+     * {@code null}. Remplacée d'un bloc, elle peut être lue par plusieurs fils
+     * de rastérisation à la fois.
+     */
+    private transient volatile Simplification simplifiee;
+
+    /**
+     * Tampons des coordonnées à l'écran d'un tracé simplifié, propres à chaque
+     * fil de rastérisation et agrandis au besoin : la translation change d'une
+     * tuile à l'autre, les coordonnées ne peuvent pas être gardées avec la
+     * version simplifiée.
+     */
+    private static final ThreadLocal<int[][]> ECRAN = ThreadLocal.withInitial(() -> new int[2][64]);
+
+    /**
+     * Tracé simplifié pour un niveau de détail : les points conservés sont
+     * espacés d'au moins {@code 2^niveau} pixels.
+     */
+    private static final class Simplification {
+        private final int niveau;
+        private final int[] xs;
+        private final int[] ys;
+        private final int nbPoints;
+
+        private Simplification(int niveau, int[] xs, int[] ys, int nbPoints) {
+            this.niveau = niveau;
+            this.xs = xs;
+            this.ys = ys;
+            this.nbPoints = nbPoints;
+        }
+    }
+
     /**
      * Constructeur de la classe FreeHandForme.
      * Initialise la forme avec un point de départ et une couleur.
@@ -31,10 +172,7 @@ public class FreeHandForme extends Forme {
      * @param color  Couleur de la forme.
      */
     public FreeHandForme(int startX, int startY, Color color) {
-        super(startX, startY, startX, startY, color);
-        this.points = new ArrayList<>();
-        this.points.add(new Point(startX, startY));
-        this.lineWidth = 1; // Largeur du trait par défaut
+        this(startX, startY, color, 1); // Largeur du trait par défaut
     }
 
     /**
@@ -49,67 +187,532 @@ public class FreeHandForme extends Forme {
      */
     public FreeHandForme(int startX, int startY, Color color, int lineWidth) {
         super(startX, startY, startX, startY, color);
-        this.points = new ArrayList<>();
-        this.points.add(new Point(startX, startY));
+        this.xs = new int[CAPACITE_INITIALE];
+        this.ys = new int[CAPACITE_INITIALE];
+        this.xs[0] = startX;
+        this.ys[0] = startY;
+        this.nbPoints = 1;
         this.lineWidth = lineWidth; // Initialisation de la largeur du trait
+        recalculerLimites();
+    }
+
+    /**
+     * Constructeur utilisé à la lecture d'un projet : le tracé reprend directement
+     * les tableaux de coordonnées fournis, sans les copier.
+     *
+     * @param xs        Coordonnées X des points.
+     * @param ys        Coordonnées Y des points.
+     * @param nbPoints  Nombre de points du tracé, au moins un.
+     * @param color     Couleur de la forme.
+     * @param lineWidth Largeur du trait pour dessiner la forme.
+     */
+    FreeHandForme(int[] xs, int[] ys, int nbPoints, Color color, int lineWidth) {
+        super(xs[0], ys[0], xs[nbPoints - 1], ys[nbPoints - 1], color);
+        this.xs = xs;
+        this.ys = ys;
+        this.nbPoints = nbPoints;
+        this.lineWidth = lineWidth;
+        recalculerLimites();
     }
 
     /**
      * Ajoute un nouveau point au tracé de la forme.
-     * Met également à jour les coordonnées de fin.
+     * Met également à jour les coordonnées de fin. Aucun objet n'est alloué, sauf
+     * lorsque les tableaux doivent grandir.
      *
      * @param x Coordonnée X du nouveau point.
      * @param y Coordonnée Y du nouveau point.
      */
     public void addPoint(int x, int y) {
-        points.add(new Point(x, y));
         this.endX = x;
         this.endY = y;
+        this.blocs = null;
+        this.simplifiee = null;
+
+        if (tolerance > 0 && filtrerPoint(x, y)) {
+            return;
+        }
+        ajouterSansFiltre(x, y);
+    }
+
+    /**
+     * Applique le filtrage en continu au point saisi.
+     * Un point à moins d'une demi-tolérance du dernier point est mis en attente ;
+     * si le dernier point est presque aligné entre l'avant-dernier et le nouveau,
+     * il est remplacé par le nouveau.
+     *
+     * @param x Coordonnée X du point saisi.
+     * @param y Coordonnée Y du point saisi.
+     * @return {@code true} si le point a été absorbé par le filtre, sinon
+     *         {@code false}.
+     */
+    private boolean filtrerPoint(int x, int y) {
+        double seuil = tolerance / 2;
+        int dernier = nbPoints - 1;
+        double dx = x - xs[dernier];
+        double dy = y - ys[dernier];
+        if (dx * dx + dy * dy < seuil * seuil) {
+            pointEnAttente = true;
+            return true;
+        }
+
+        if (nbPoints >= 2) {
+            double ecart = distanceToSegment(xs[dernier], ys[dernier], xs[dernier - 1], ys[dernier - 1], x, y);
+            if (ecartCumule + ecart <= seuil) {
+                ecartCumule += ecart;
+                xs[dernier] = x;
+                ys[dernier] = y;
+                etendreLimites(x, y);
+                pointEnAttente = false;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Ajoute un point à la fin des tableaux, sans filtrage.
+     *
+     * @param x Coordonnée X du point.
+     * @param y Coordonnée Y du point.
+     */
+    private void ajouterSansFiltre(int x, int y) {
+        if (nbPoints == xs.length) {
+            int capacite = xs.length + (xs.length >> 1);
+            xs = Arrays.copyOf(xs, capacite);
+            ys = Arrays.copyOf(ys, capacite);
+        }
+        xs[nbPoints] = x;
+        ys[nbPoints] = y;
+        nbPoints++;
+
+        ecartCumule = 0;
+        pointEnAttente = false;
+        etendreLimites(x, y);
+    }
+
+    /**
+     * Élargit les coordonnées extrêmes pour inclure un point.
+     *
+     * @param x Coordonnée X du point.
+     * @param y Coordonnée Y du point.
+     */
+    private void etendreLimites(int x, int y) {
+        minX = Math.min(minX, x);
+        minY = Math.min(minY, y);
+        maxX = Math.max(maxX, x);
+        maxY = Math.max(maxY, y);
+        invaliderGeometrie();
+    }
+
+    /**
+     * Définit la tolérance de simplification du tracé.
+     *
+     * @param tolerance Écart maximal en pixels, {@code 0} pour tout conserver.
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = Math.max(0, tolerance);
+    }
+
+    /**
+     * Valide le tracé : ajoute le point en attente éventuel, simplifie le tracé
+     * par Ramer–Douglas–Peucker selon la tolérance, puis ajuste les tableaux au
+     * nombre de points conservés.
+     */
+    public void terminer() {
+        if (pointEnAttente) {
+            ajouterSansFiltre(endX, endY);
+        }
+
+        if (tolerance > 0 && nbPoints > 2) {
+            simplifier();
+        }
+
+        xs = Arrays.copyOf(xs, nbPoints);
+        ys = Arrays.copyOf(ys, nbPoints);
+        recalculerLimites();
+        blocs = null;
+        simplifiee = null;
+    }
+
+    /**
+     * Simplifie le tracé par l'algorithme de Ramer–Douglas–Peucker avec une
+     * demi-tolérance, en version itérative pour supporter les très longs tracés.
+     * Les distances sont comparées au carré.
+     */
+    private void simplifier() {
+        boolean[] garder = new boolean[nbPoints];
+        garder[0] = true;
+        garder[nbPoints - 1] = true;
+
+        double seuil = tolerance * tolerance / 4;
+        int[] pile = new int[64];
+        int sommet = 0;
+        pile[sommet++] = 0;
+        pile[sommet++] = nbPoints - 1;
+
+        while (sommet > 0) {
+            int fin = pile[--sommet];
+            int debut = pile[--sommet];
+
+            double ecartMax = -1;
+            int indiceMax = -1;
+            for (int i = debut + 1; i < fin; i++) {
+                double ecart = distanceToSegmentCarre(xs[i], ys[i], xs[debut], ys[debut], xs[fin], ys[fin]);
+                if (ecart > ecartMax) {
+                    ecartMax = ecart;
+                    indiceMax = i;
+                }
+            }
+
+            if (indiceMax >= 0 && ecartMax > seuil) {
+                garder[indiceMax] = true;
+                if (sommet + 4 > pile.length) {
+                    pile = Arrays.copyOf(pile, pile.length * 2);
+                }
+                pile[sommet++] = debut;
+                pile[sommet++] = indiceMax;
+                pile[sommet++] = indiceMax;
+                pile[sommet++] = fin;
+            }
+        }
+
+        int n = 0;
+        for (int i = 0; i < nbPoints; i++) {
+            if (garder[i]) {
+                xs[n] = xs[i];
+                ys[n] = ys[i];
+                n++;
+            }
+        }
+        nbPoints = n;
+    }
+
+    /**
+     * Retourne le nombre de points du tracé.
+     *
+     * @return Nombre de points.
+     */
+    public int getNbPoints() {
+        return nbPoints;
+    }
+
+    /**
+     * Retourne la coordonnée X d'un point du tracé.
+     *
+     * @param i Indice du point.
+     * @return Coordonnée X du point.
+     */
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Retourne la coordonnée Y d'un point du tracé.
+     *
+     * @param i Indice du point.
+     * @return Coordonnée Y du point.
+     */
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Retourne la largeur du trait de la forme.
+     *
+     * @return Largeur du trait en pixels.
+     */
+    @Override
+    public int getLineWidth() {
+        return lineWidth;
+    }
+
+    /**
+     * Calcule le rectangle englobant l'ensemble des points du tracé.
+     */
+    @Override
+    protected void calculerGeometrie() {
+        definirLimites(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * Retourne le trait arrondi de l'épaisseur du tracé.
+     *
+     * @return Le trait partagé, ou un trait neuf pour une épaisseur rare.
+     */
+    private BasicStroke trait() {
+        return lineWidth >= 0 && lineWidth < TRAITS_RONDS.length ? TRAITS_RONDS[lineWidth]
+                : new BasicStroke(lineWidth, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND);
     }
 
     /**
-     * Dessine la forme en reliant les points du tracé.
-     * Si la liste de points contient moins de deux éléments, le dessin est ignoré.
+     * Dessine la forme en reliant les points du tracé par une seule polyligne.
+     * Si le tracé contient moins de deux points, le dessin est ignoré.
      *
      * @param g Objet Graphics utilisé pour dessiner la forme.
      */
     @Override
     public void draw(Graphics g) {
-        if (points.size() < 2) {
+        if (nbPoints < 2) {
             return;
         }
 
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(lineWidth));
+        g2d.setStroke(trait());
         g2d.setColor(color);
+        g2d.drawPolyline(xs, ys, nbPoints);
+    }
 
-        for (int i = 1; i < points.size(); i++) {
-            Point p1 = points.get(i - 1);
-            Point p2 = points.get(i);
-            g2d.drawLine(p1.x, p1.y, p2.x, p2.y);
+    /**
+     * Dessine la forme avec un niveau de détail adapté à un dessin vu de loin :
+     * les points plus proches qu'un pixel de l'écran du dernier point conservé
+     * sont sautés. Ce pas est arrondi à la puissance de deux inférieure, pour
+     * que la version simplifiée serve à tous les zooms voisins. Un trait plus
+     * fin qu'un pixel de l'écran est tracé directement en pixels de l'écran,
+     * sans passer par l'épaississement du trait.
+     *
+     * @param g       Objet Graphics utilisé pour dessiner la forme, dont la
+     *                transformation applique l'échelle.
+     * @param echelle Nombre de pixels de l'écran par pixel du dessin.
+     */
+    public void dessinerSimplifie(Graphics g, double echelle) {
+        double pas = 1 / echelle;
+        int niveau = pas >= 2 ? 31 - Integer.numberOfLeadingZeros((int) Math.min(pas, 1 << 30)) : 0;
+        if (niveau == 0 || nbPoints < 3) {
+            draw(g);
+            return;
         }
+
+        Simplification s = simplifiee;
+        if (s == null || s.niveau != niveau) {
+            s = simplification(niveau);
+            simplifiee = s;
+        }
+        Graphics2D g2d = (Graphics2D) g;
+        g2d.setColor(color);
+        AffineTransform t = g2d.getTransform();
+        if (lineWidth * echelle > 1 || (t.getType() & ~(AffineTransform.TYPE_TRANSLATION
+                | AffineTransform.TYPE_UNIFORM_SCALE)) != 0) {
+            g2d.setStroke(trait());
+            g2d.drawPolyline(s.xs, s.ys, s.nbPoints);
+            return;
+        }
+
+        double e = t.getScaleX();
+        double tx = t.getTranslateX();
+        double ty = t.getTranslateY();
+        int[][] ecran = ECRAN.get();
+        if (ecran[0].length < s.nbPoints) {
+            int taille = Math.max(s.nbPoints, 2 * ecran[0].length);
+            ecran[0] = new int[taille];
+            ecran[1] = new int[taille];
+        }
+        int[] ex = ecran[0];
+        int[] ey = ecran[1];
+        for (int i = 0; i < s.nbPoints; i++) {
+            ex[i] = (int) Math.floor(s.xs[i] * e + tx);
+            ey[i] = (int) Math.floor(s.ys[i] * e + ty);
+        }
+        g2d.setTransform(IDENTITE);
+        g2d.setStroke(TRAIT);
+        g2d.drawPolyline(ex, ey, s.nbPoints);
+        g2d.setTransform(t);
+    }
+
+    /**
+     * Construit la version du tracé dont les points sont espacés d'au moins
+     * {@code 2^niveau} pixels. Le premier et le dernier point sont toujours
+     * conservés.
+     *
+     * @param niveau Niveau de détail.
+     * @return Le tracé simplifié.
+     */
+    private Simplification simplification(int niveau) {
+        long seuil = 1L << (2 * niveau);
+        int[] sx = new int[nbPoints];
+        int[] sy = new int[nbPoints];
+        sx[0] = xs[0];
+        sy[0] = ys[0];
+        int n = 1;
+        for (int i = 1; i < nbPoints - 1; i++) {
+            long dx = xs[i] - sx[n - 1];
+            long dy = ys[i] - sy[n - 1];
+            if (dx * dx + dy * dy >= seuil) {
+                sx[n] = xs[i];
+                sy[n] = ys[i];
+                n++;
+            }
+        }
+        sx[n] = xs[nbPoints - 1];
+        sy[n] = ys[nbPoints - 1];
+        n++;
+        return new Simplification(niveau, Arrays.copyOf(sx, n), Arrays.copyOf(sy, n), n);
     }
 
     /**
      * Vérifie si un point donné est proche du tracé de la forme.
-     * La tolérance pour la sélection est fixée à 5 pixels.
+     * La tolérance pour la sélection est fixée à 5 pixels. Pour les longs tracés,
+     * seuls les segments des blocs proches du point sont testés.
      *
      * @param p Point à vérifier.
      * @return {@code true} si le point est proche du tracé, sinon {@code false}.
      */
     @Override
     public boolean contient(Point p) {
-        for (int i = 1; i < points.size(); i++) {
-            Point p1 = points.get(i - 1);
-            Point p2 = points.get(i);
+        return contient(p, TOLERANCE_SELECTION);
+    }
 
-            // Calcul de la distance d'un point au segment [p1, p2]
-            double distance = distanceToSegment(p, p1, p2);
-            if (distance <= 5.0) { // Tolérance pour la sélection
-                return true;
+    /**
+     * Vérifie si un point donné est à moins d'une tolérance donnée du tracé.
+     *
+     * @param p         Point à vérifier.
+     * @param tolerance Distance maximale en pixels entre le point et le tracé.
+     * @return {@code true} si le point est proche du tracé, sinon {@code false}.
+     */
+    @Override
+    public boolean contient(Point p, int tolerance) {
+        return segmentProche(p.x, p.y, tolerance, false) >= 0;
+    }
+
+    /**
+     * Cherche le premier ou le dernier segment du tracé à moins d'une distance
+     * d'un point. Pour les longs tracés, seuls les segments des blocs proches
+     * du point sont testés, et les points sont lus sans être copiés.
+     *
+     * @param px       Coordonnée X du point.
+     * @param py       Coordonnée Y du point.
+     * @param distance Distance maximale au point.
+     * @param dernier  {@code true} pour le dernier segment proche,
+     *                 {@code false} pour le premier.
+     * @return Indice du point de fin du segment trouvé, ou -1 si aucun segment
+     *         n'est assez proche.
+     */
+    public int segmentProche(double px, double py, double distance, boolean dernier) {
+        double seuil = distance * distance;
+        if (nbPoints <= 2 * TAILLE_BLOC) {
+            return segmentsProches(px, py, seuil, 1, nbPoints, dernier);
+        }
+
+        if (blocs == null) {
+            construireBlocs();
+        }
+        int niveau = blocs.length - 1;
+        int nb = blocs[niveau].length / 4;
+        for (int k = 0; k < nb; k++) {
+            int i = segmentBloc(niveau, dernier ? nb - 1 - k : k, px, py, distance, seuil, dernier);
+            if (i >= 0) {
+                return i;
             }
         }
-        return false;
+        return -1;
+    }
+
+    /**
+     * Cherche un segment proche dans un bloc de la hiérarchie : écarte le bloc
+     * si le point est hors de son rectangle élargi de la distance, sinon
+     * descend vers ses sous-blocs ou ses segments, dans l'ordre demandé.
+     *
+     * @param niveau   Niveau du bloc dans la hiérarchie.
+     * @param j        Indice du bloc dans son niveau.
+     * @param px       Coordonnée X du point.
+     * @param py       Coordonnée Y du point.
+     * @param distance Distance maximale au point.
+     * @param seuil    Carré de la distance.
+     * @param dernier  {@code true} pour parcourir le bloc à rebours.
+     * @return Indice du point de fin du segment trouvé, ou -1.
+     */
+    private int segmentBloc(int niveau, int j, double px, double py, double distance, double seuil,
+            boolean dernier) {
+        int[] rect = blocs[niveau];
+        int o = 4 * j;
+        if (px < rect[o] - distance || py < rect[o + 1] - distance
+                || px > rect[o + 2] + distance || py > rect[o + 3] + distance) {
+            return -1;
+        }
+
+        if (niveau == 0) {
+            int debut = j * TAILLE_BLOC + 1;
+            return segmentsProches(px, py, seuil, debut, Math.min(debut + TAILLE_BLOC, nbPoints), dernier);
+        }
+
+        int premier = j * TAILLE_BLOC;
+        int nb = Math.min(premier + TAILLE_BLOC, blocs[niveau - 1].length / 4) - premier;
+        for (int k = 0; k < nb; k++) {
+            int i = segmentBloc(niveau - 1, dernier ? premier + nb - 1 - k : premier + k, px, py, distance,
+                    seuil, dernier);
+            if (i >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Teste une suite de segments, en comparant les distances au carré.
+     *
+     * @param px      Coordonnée X du point.
+     * @param py      Coordonnée Y du point.
+     * @param seuil   Carré de la distance maximale.
+     * @param debut   Indice du point de fin du premier segment testé.
+     * @param fin     Indice (exclu) du point de fin du dernier segment testé.
+     * @param dernier {@code true} pour parcourir les segments à rebours.
+     * @return Indice du point de fin du premier segment proche rencontré, ou
+     *         -1.
+     */
+    private int segmentsProches(double px, double py, double seuil, int debut, int fin, boolean dernier) {
+        for (int k = debut; k < fin; k++) {
+            int i = dernier ? debut + fin - 1 - k : k;
+            // Calcul de la distance d'un point au segment [i - 1, i]
+            if (distanceToSegmentCarre(px, py, xs[i - 1], ys[i - 1], xs[i], ys[i]) <= seuil) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Construit la hiérarchie des rectangles englobants des blocs de segments,
+     * du niveau 0 jusqu'à un niveau d'au plus {@link #TAILLE_BLOC} rectangles.
+     */
+    private void construireBlocs() {
+        int nbSegments = nbPoints - 1;
+        int nbBlocs = (nbSegments + TAILLE_BLOC - 1) / TAILLE_BLOC;
+        int[] niveau = new int[4 * nbBlocs];
+        for (int j = 0; j < nbBlocs; j++) {
+            int debut = j * TAILLE_BLOC;
+            int fin = Math.min(debut + TAILLE_BLOC, nbSegments);
+            int o = 4 * j;
+            niveau[o] = niveau[o + 1] = Integer.MAX_VALUE;
+            niveau[o + 2] = niveau[o + 3] = Integer.MIN_VALUE;
+            for (int i = debut; i <= fin; i++) {
+                niveau[o] = Math.min(niveau[o], xs[i]);
+                niveau[o + 1] = Math.min(niveau[o + 1], ys[i]);
+                niveau[o + 2] = Math.max(niveau[o + 2], xs[i]);
+                niveau[o + 3] = Math.max(niveau[o + 3], ys[i]);
+            }
+        }
+
+        int[][] niveaux = new int[][] { niveau };
+        while (nbBlocs > TAILLE_BLOC) {
+            int[] inferieur = niveau;
+            int nbInferieur = nbBlocs;
+            nbBlocs = (nbInferieur + TAILLE_BLOC - 1) / TAILLE_BLOC;
+            niveau = new int[4 * nbBlocs];
+            for (int j = 0; j < nbBlocs; j++) {
+                int o = 4 * j;
+                niveau[o] = niveau[o + 1] = Integer.MAX_VALUE;
+                niveau[o + 2] = niveau[o + 3] = Integer.MIN_VALUE;
+                for (int k = j * TAILLE_BLOC; k < Math.min((j + 1) * TAILLE_BLOC, nbInferieur); k++) {
+                    niveau[o] = Math.min(niveau[o], inferieur[4 * k]);
+                    niveau[o + 1] = Math.min(niveau[o + 1], inferieur[4 * k + 1]);
+                    niveau[o + 2] = Math.max(niveau[o + 2], inferieur[4 * k + 2]);
+                    niveau[o + 3] = Math.max(niveau[o + 3], inferieur[4 * k + 3]);
+                }
+            }
+            niveaux = Arrays.copyOf(niveaux, niveaux.length + 1);
+            niveaux[niveaux.length - 1] = niveau;
+        }
+        blocs = niveaux;
     }
 
     /**
@@ -117,28 +720,100 @@ public class FreeHandForme extends Forme {
      * défini par deux points. Cette méthode utilise la projection orthogonale pour
      * trouver la distance minimale.
      *
-     * @param p  Point à analyser.
-     * @param p1 Premier point du segment.
-     * @param p2 Deuxième point du segment.
+     * @param px Coordonnée X du point à analyser.
+     * @param py Coordonnée Y du point à analyser.
+     * @param x1 Coordonnée X du premier point du segment.
+     * @param y1 Coordonnée Y du premier point du segment.
+     * @param x2 Coordonnée X du deuxième point du segment.
+     * @param y2 Coordonnée Y du deuxième point du segment.
      * @return La distance minimale entre le point et le segment.
      */
-    private double distanceToSegment(Point p, Point p1, Point p2) {
-        double px = p.x, py = p.y;
-        double x1 = p1.x, y1 = p1.y, x2 = p2.x, y2 = p2.y;
+    private static double distanceToSegment(double px, double py, double x1, double y1, double x2, double y2) {
+        return Math.sqrt(distanceToSegmentCarre(px, py, x1, y1, x2, y2));
+    }
 
+    /**
+     * Calcule le carré de la distance entre un point et un segment, sans racine
+     * carrée.
+     *
+     * @param px Coordonnée X du point à analyser.
+     * @param py Coordonnée Y du point à analyser.
+     * @param x1 Coordonnée X du premier point du segment.
+     * @param y1 Coordonnée Y du premier point du segment.
+     * @param x2 Coordonnée X du deuxième point du segment.
+     * @param y2 Coordonnée Y du deuxième point du segment.
+     * @return Le carré de la distance minimale entre le point et le segment.
+     */
+    private static double distanceToSegmentCarre(double px, double py, double x1, double y1, double x2,
+            double y2) {
         double dx = x2 - x1;
         double dy = y2 - y1;
-        if (dx == 0 && dy == 0) {
+        double t = 0;
+        if (dx != 0 || dy != 0) {
+            t = ((px - x1) * dx + (py - y1) * dy) / (dx * dx + dy * dy);
+            t = Math.max(0, Math.min(1, t));
+        }
 
-            return p.distance(p1);
+        double ex = px - (x1 + t * dx);
+        double ey = py - (y1 + t * dy);
+        return ex * ex + ey * ey;
+    }
+
+    /**
+     * Recalcule les coordonnées extrêmes à partir des points du tracé.
+     */
+    private void recalculerLimites() {
+        minX = minY = Integer.MAX_VALUE;
+        maxX = maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < nbPoints; i++) {
+            minX = Math.min(minX, xs[i]);
+            minY = Math.min(minY, ys[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxY = Math.max(maxY, ys[i]);
+        }
+        invaliderGeometrie();
+    }
+
+    /**
+     * Sérialise la forme sous l'ancienne forme d'une liste de points.
+     *
+     * @param out Flux d'écriture.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        List<Point> points = new ArrayList<>(nbPoints);
+        for (int i = 0; i < nbPoints; i++) {
+            points.add(new Point(xs[i], ys[i]));
         }
 
-        double t = ((px - x1) * dx + (py - y1) * dy) / (dx * dx + dy * dy);
-        t = Math.max(0, Math.min(1, t));
+        ObjectOutputStream.PutField champs = out.putFields();
+        champs.put("points", points);
+        champs.put("lineWidth", lineWidth);
+        out.writeFields();
+    }
 
-        double closestX = x1 + t * dx;
-        double closestY = y1 + t * dy;
+    /**
+     * Relit la forme sérialisée, convertit sa liste de points en tableaux puis
+     * reconstruit les limites, qui ne sont pas sauvegardées.
+     *
+     * @param in Flux de lecture.
+     * @throws IOException            En cas d'erreur de lecture.
+     * @throws ClassNotFoundException Si une classe du flux est introuvable.
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField champs = in.readFields();
+        List<Point> points = (List<Point>) champs.get("points", null);
+        lineWidth = champs.get("lineWidth", 1);
 
-        return p.distance(closestX, closestY);
+        nbPoints = points != null ? points.size() : 0;
+        xs = new int[Math.max(nbPoints, 1)];
+        ys = new int[Math.max(nbPoints, 1)];
+        for (int i = 0; i < nbPoints; i++) {
+            Point p = points.get(i);
+            xs[i] = p.x;
+            ys[i] = p.y;
+        }
+        recalculerLimites();
     }
 }
@@ -0,0 +1,338 @@
+/**
+ * Gomme vectorielle : efface la partie d'une forme couverte par un disque.
+ *
+ * Le contour de la forme est vu comme une ligne brisée (les points d'un tracé à
+ * main levée, les côtés d'un rectangle ou d'un triangle, un polygone proche du
+ * cercle). Chaque segment est coupé aux points où il entre et sort du disque,
+ * et ce qui reste hors du disque forme de nouveaux morceaux. Une forme
+ * entièrement couverte ne laisse aucun morceau.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class Gomme {
+
+    /**
+     * Longueur approximative en pixels des côtés du polygone qui remplace un
+     * cercle partiellement effacé.
+     */
+    private static final double PAS_CERCLE = 3;
+
+    private Gomme() {
+    }
+
+    /**
+     * Efface la partie d'une forme couverte par un disque. Le rayon est élargi
+     * de la demi-épaisseur du trait pour que l'encre effacée disparaisse
+     * entièrement.
+     *
+     * Les tracés à main levée et les lignes sont coupés en morceaux du même
+     * type ; un rectangle, un triangle ou un cercle entamé est remplacé par des
+     * tracés à main levée qui suivent le reste de son contour.
+     *
+     * @param forme La forme à effacer.
+     * @param cx    Coordonnée X du centre de la gomme.
+     * @param cy    Coordonnée Y du centre de la gomme.
+     * @param rayon Rayon de la gomme.
+     * @return {@code null} si la forme n'est pas touchée, sinon les morceaux qui
+     *         restent (aucun si la forme est entièrement effacée).
+     */
+    public static List<Forme> effacer(Forme forme, double cx, double cy, double rayon) {
+        Rectangle bounds = forme.getBounds();
+        if (cx + rayon < bounds.x || cx - rayon > bounds.x + bounds.width
+                || cy + rayon < bounds.y || cy - rayon > bounds.y + bounds.height) {
+            return null;
+        }
+
+        double r = rayon + forme.getLineWidth() / 2.0;
+        if (forme instanceof FreeHandForme) {
+            return effacerTrace((FreeHandForme) forme, cx, cy, r);
+        }
+
+        int[][] contour = contour(forme);
+        if (contour == null) {
+            return null;
+        }
+        int[] xs = contour[0];
+        int[] ys = contour[1];
+        int n = xs.length;
+        double r2 = r * r;
+
+        // Les contours des autres formes ne comptent que quelques segments
+        boolean touche = carre(xs[0] - cx) + carre(ys[0] - cy) <= r2;
+        for (int i = 1; i < n && !touche; i++) {
+            touche = distanceSegmentCarre(cx, cy, xs[i - 1], ys[i - 1], xs[i], ys[i]) <= r2;
+        }
+        if (!touche) {
+            return null;
+        }
+
+        // Découpage de la ligne brisée en morceaux hors du disque
+        List<int[]> morceaux = new ArrayList<>();
+        PointsMorceau courant = new PointsMorceau();
+        decouper(xs, ys, cx, cy, r2, courant, morceaux);
+        courant.terminer(morceaux);
+
+        // Un contour fermé dont le départ est épargné : le dernier morceau rejoint
+        // le premier
+        boolean ferme = !(forme instanceof LigneForme);
+        if (ferme && morceaux.size() > 1) {
+            int[] debut = morceaux.get(0);
+            int[] fin = morceaux.get(morceaux.size() - 1);
+            int nd = debut.length / 2;
+            int nf = fin.length / 2;
+            if (debut[0] == xs[0] && debut[1] == ys[0] && fin[2 * nf - 2] == xs[0] && fin[2 * nf - 1] == ys[0]) {
+                int[] joint = new int[2 * (nf + nd - 1)];
+                System.arraycopy(fin, 0, joint, 0, 2 * nf);
+                System.arraycopy(debut, 2, joint, 2 * nf, 2 * (nd - 1));
+                morceaux.set(0, joint);
+                morceaux.remove(morceaux.size() - 1);
+            }
+        }
+
+        return creerMorceaux(forme, morceaux);
+    }
+
+    /**
+     * Efface la partie d'un tracé à main levée couverte par un disque. Les
+     * segments touchés sont cherchés dans la hiérarchie de blocs du tracé :
+     * rien n'est alloué si aucun n'est touché, et seuls les points entre le
+     * premier et le dernier segment touchés sont copiés pour le découpage. Les
+     * points avant et après restent tels quels dans les morceaux d'extrémité.
+     *
+     * @param trace Le tracé à effacer.
+     * @param cx    Coordonnée X du centre de la gomme.
+     * @param cy    Coordonnée Y du centre de la gomme.
+     * @param r     Rayon de la gomme, élargi de la demi-épaisseur du trait.
+     * @return {@code null} si le tracé n'est pas touché, sinon les morceaux qui
+     *         restent.
+     */
+    private static List<Forme> effacerTrace(FreeHandForme trace, double cx, double cy, double r) {
+        int n = trace.getNbPoints();
+        if (n == 1) {
+            boolean touche = carre(trace.getX(0) - cx) + carre(trace.getY(0) - cy) <= r * r;
+            return touche ? new ArrayList<>() : null;
+        }
+
+        int premier = trace.segmentProche(cx, cy, r, false);
+        if (premier < 0) {
+            return null;
+        }
+        int dernier = trace.segmentProche(cx, cy, r, true);
+
+        // Points des segments touchés, de premier - 1 à dernier
+        int m = dernier - premier + 2;
+        int[] xs = new int[m];
+        int[] ys = new int[m];
+        for (int i = 0; i < m; i++) {
+            xs[i] = trace.getX(premier - 1 + i);
+            ys[i] = trace.getY(premier - 1 + i);
+        }
+
+        List<int[]> morceaux = new ArrayList<>();
+        PointsMorceau courant = new PointsMorceau();
+        for (int i = 0; i < premier - 1; i++) {
+            courant.ajouter(trace.getX(i), trace.getY(i));
+        }
+        decouper(xs, ys, cx, cy, r * r, courant, morceaux);
+        for (int i = dernier + 1; i < n; i++) {
+            courant.ajouter(trace.getX(i), trace.getY(i));
+        }
+        courant.terminer(morceaux);
+        return creerMorceaux(trace, morceaux);
+    }
+
+    /**
+     * Coupe une ligne brisée aux points où elle entre et sort du disque. Les
+     * parties hors du disque sont ajoutées au morceau en cours, qui est terminé
+     * à chaque entrée dans le disque ; le dernier morceau reste ouvert pour
+     * que l'appelant puisse le prolonger.
+     *
+     * @param xs       Coordonnées X des points.
+     * @param ys       Coordonnées Y des points.
+     * @param cx       Coordonnée X du centre du disque.
+     * @param cy       Coordonnée Y du centre du disque.
+     * @param r2       Carré du rayon du disque.
+     * @param courant  Morceau en cours.
+     * @param morceaux Morceaux terminés.
+     */
+    private static void decouper(int[] xs, int[] ys, double cx, double cy, double r2, PointsMorceau courant,
+            List<int[]> morceaux) {
+        if (carre(xs[0] - cx) + carre(ys[0] - cy) > r2) {
+            courant.ajouter(xs[0], ys[0]);
+        }
+        for (int i = 1; i < xs.length; i++) {
+            double ax = xs[i - 1];
+            double ay = ys[i - 1];
+            double dx = xs[i] - ax;
+            double dy = ys[i] - ay;
+
+            // Intersection du segment A + t.D avec le cercle : a.t² + 2b.t + c = 0
+            double a = dx * dx + dy * dy;
+            double b = dx * (ax - cx) + dy * (ay - cy);
+            double c = carre(ax - cx) + carre(ay - cy) - r2;
+            double delta = b * b - a * c;
+            double t1 = 2;
+            double t2 = 2;
+            if (a == 0 && c <= 0) {
+                t1 = -1; // Segment réduit à un point dans le disque
+            } else if (a > 0 && delta > 0) {
+                double racine = Math.sqrt(delta);
+                t1 = (-b - racine) / a;
+                t2 = (-b + racine) / a;
+            }
+
+            if (t2 <= 0 || t1 >= 1) {
+                // Segment hors du disque
+                courant.ajouter(xs[i], ys[i]);
+                continue;
+            }
+            if (t1 > 0) {
+                courant.ajouter((int) Math.round(ax + t1 * dx), (int) Math.round(ay + t1 * dy));
+            }
+            courant.terminer(morceaux);
+            if (t2 < 1) {
+                courant.ajouter((int) Math.round(ax + t2 * dx), (int) Math.round(ay + t2 * dy));
+                courant.ajouter(xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Crée les formes des morceaux restants d'une forme effacée.
+     *
+     * @param forme    La forme d'origine.
+     * @param morceaux Coordonnées x, y alternées de chaque morceau.
+     * @return Les morceaux.
+     */
+    private static List<Forme> creerMorceaux(Forme forme, List<int[]> morceaux) {
+        List<Forme> resultat = new ArrayList<>(morceaux.size());
+        for (int[] morceau : morceaux) {
+            resultat.add(creerMorceau(forme, morceau));
+        }
+        return resultat;
+    }
+
+    /**
+     * Points d'un morceau en cours de construction, sans doublons consécutifs.
+     */
+    private static final class PointsMorceau {
+        private int[] points = new int[16];
+        private int taille;
+
+        void ajouter(int x, int y) {
+            if (taille > 0 && points[taille - 2] == x && points[taille - 1] == y) {
+                return;
+            }
+            if (taille == points.length) {
+                points = Arrays.copyOf(points, taille * 2);
+            }
+            points[taille++] = x;
+            points[taille++] = y;
+        }
+
+        /**
+         * Ajoute le morceau à la liste s'il compte au moins deux points
+         * distincts, puis recommence un morceau vide.
+         */
+        void terminer(List<int[]> morceaux) {
+            if (taille >= 4) {
+                morceaux.add(Arrays.copyOf(points, taille));
+            }
+            taille = 0;
+        }
+    }
+
+    /**
+     * Crée un morceau d'une forme effacée.
+     *
+     * @param forme   La forme d'origine.
+     * @param morceau Coordonnées x, y alternées du morceau.
+     * @return Le morceau, du même type que la forme pour un tracé ou une ligne,
+     *         un tracé à main levée sinon.
+     */
+    private static Forme creerMorceau(Forme forme, int[] morceau) {
+        int n = morceau.length / 2;
+        if (forme instanceof LigneForme) {
+            return new LigneForme(morceau[0], morceau[1], morceau[2 * n - 2], morceau[2 * n - 1], forme.getColor());
+        }
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = morceau[2 * i];
+            ys[i] = morceau[2 * i + 1];
+        }
+        return new FreeHandForme(xs, ys, n, forme.getColor(), forme.getLineWidth());
+    }
+
+    /**
+     * Retourne le contour d'une forme autre qu'un tracé à main levée sous forme
+     * de ligne brisée. Un contour fermé répète son premier point à la fin.
+     *
+     * @param forme La forme.
+     * @return Les coordonnées x puis y des points, ou {@code null} pour un type de
+     *         forme inconnu.
+     */
+    private static int[][] contour(Forme forme) {
+        int sx = forme.startX;
+        int sy = forme.startY;
+        int ex = forme.endX;
+        int ey = forme.endY;
+        if (forme instanceof LigneForme) {
+            return new int[][] { { sx, ex }, { sy, ey } };
+        } else if (forme instanceof RectangleForme) {
+            int x1 = Math.min(sx, ex);
+            int y1 = Math.min(sy, ey);
+            int x2 = Math.max(sx, ex);
+            int y2 = Math.max(sy, ey);
+            return new int[][] { { x1, x2, x2, x1, x1 }, { y1, y1, y2, y2, y1 } };
+        } else if (forme instanceof TriangleForme) {
+            int mx = (sx + ex) / 2;
+            return new int[][] { { sx, mx, ex, sx }, { ey, sy, ey, ey } };
+        } else if (forme instanceof CircleForme) {
+            int rayon = ((CircleForme) forme).getRayon();
+            int cotes = Math.max(12, (int) Math.ceil(2 * Math.PI * rayon / PAS_CERCLE));
+            int[] xs = new int[cotes + 1];
+            int[] ys = new int[cotes + 1];
+            for (int i = 0; i < cotes; i++) {
+                double angle = 2 * Math.PI * i / cotes;
+                xs[i] = (int) Math.round(sx + rayon * Math.cos(angle));
+                ys[i] = (int) Math.round(sy + rayon * Math.sin(angle));
+            }
+            xs[cotes] = xs[0];
+            ys[cotes] = ys[0];
+            return new int[][] { xs, ys };
+        }
+        return null;
+    }
+
+    /**
+     * Calcule le carré de la distance entre un point et un segment.
+     *
+     * @param px Coordonnée X du point.
+     * @param py Coordonnée Y du point.
+     * @param x1 Coordonnée X du début du segment.
+     * @param y1 Coordonnée Y du début du segment.
+     * @param x2 Coordonnée X de la fin du segment.
+     * @param y2 Coordonnée Y de la fin du segment.
+     * @return Distance au carré.
+     */
+    private static double distanceSegmentCarre(double px, double py, int x1, int y1, int x2, int y2) {
+        double dx = x2 - x1;
+        double dy = y2 - y1;
+        double longueur = dx * dx + dy * dy;
+        double t = longueur == 0 ? 0 : ((px - x1) * dx + (py - y1) * dy) / longueur;
+        t = Math.max(0, Math.min(1, t));
+        return carre(x1 + t * dx - px) + carre(y1 + t * dy - py);
+    }
+
+    private static double carre(double v) {
+        return v * v;
+    }
+}
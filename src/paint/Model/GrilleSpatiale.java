@@ -0,0 +1,301 @@
+/**
+ * Index spatial des formes sous forme de grille uniforme.
+ * Chaque forme est référencée dans toutes les cellules que touche son rectangle
+ * englobant, ce qui permet de ne tester que les formes proches d'un point ou
+ * d'une zone. Chaque forme reçoit un numéro d'ordre croissant qui reflète sa
+ * position dans l'empilement du dessin (la plus grande est au-dessus).
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class GrilleSpatiale {
+
+    /**
+     * Taille en pixels du côté d'une cellule de la grille.
+     */
+    private static final int TAILLE_CELLULE = 64;
+
+    /**
+     * Entrées de la grille, indexées par cellule.
+     */
+    private final Map<Long, List<Entree>> cellules;
+
+    /**
+     * Entrée associée à chaque forme indexée.
+     */
+    private final Map<Forme, Entree> entrees;
+
+    /**
+     * Prochain numéro d'ordre attribué à une forme ajoutée.
+     */
+    private long prochainOrdre;
+
+    /**
+     * Forme indexée avec le rectangle englobant utilisé lors de son insertion et
+     * son numéro d'ordre.
+     */
+    private static final class Entree {
+        private final Forme forme;
+        private final Rectangle bounds;
+        private final long ordre;
+
+        private Entree(Forme forme, Rectangle bounds, long ordre) {
+            this.forme = forme;
+            this.bounds = bounds;
+            this.ordre = ordre;
+        }
+    }
+
+    /**
+     * Constructeur de la classe GrilleSpatiale.
+     * Crée une grille vide.
+     */
+    public GrilleSpatiale() {
+        this.cellules = new HashMap<>();
+        this.entrees = new IdentityHashMap<>();
+        this.prochainOrdre = 0;
+    }
+
+    /**
+     * Ajoute une forme au-dessus de toutes les formes indexées.
+     *
+     * @param forme La forme à indexer.
+     * @return Le numéro d'ordre attribué à la forme.
+     */
+    public long ajouter(Forme forme) {
+        return ajouter(forme, prochainOrdre);
+    }
+
+    /**
+     * Ajoute une forme avec un numéro d'ordre donné, par exemple pour la remettre
+     * à sa place dans l'empilement.
+     *
+     * @param forme La forme à indexer.
+     * @param ordre Le numéro d'ordre de la forme.
+     * @return Le numéro d'ordre de la forme.
+     */
+    public long ajouter(Forme forme, long ordre) {
+        Entree entree = new Entree(forme, forme.getBounds(), ordre);
+        entrees.put(forme, entree);
+        prochainOrdre = Math.max(prochainOrdre, ordre + 1);
+
+        Rectangle b = entree.bounds;
+        for (int cy = cellule(b.y); cy <= cellule(b.y + b.height - 1); cy++) {
+            for (int cx = cellule(b.x); cx <= cellule(b.x + b.width - 1); cx++) {
+                cellules.computeIfAbsent(cle(cx, cy), k -> new ArrayList<>()).add(entree);
+            }
+        }
+        return ordre;
+    }
+
+    /**
+     * Retire une forme de l'index.
+     *
+     * @param forme La forme à retirer.
+     * @return {@code true} si la forme était indexée, sinon {@code false}.
+     */
+    public boolean retirer(Forme forme) {
+        Entree entree = entrees.remove(forme);
+        if (entree == null) {
+            return false;
+        }
+
+        Rectangle b = entree.bounds;
+        for (int cy = cellule(b.y); cy <= cellule(b.y + b.height - 1); cy++) {
+            for (int cx = cellule(b.x); cx <= cellule(b.x + b.width - 1); cx++) {
+                Long cle = cle(cx, cy);
+                List<Entree> liste = cellules.get(cle);
+                if (liste != null) {
+                    liste.remove(entree);
+                    if (liste.isEmpty()) {
+                        cellules.remove(cle);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Vide l'index et remet la numérotation à zéro.
+     */
+    public void vider() {
+        cellules.clear();
+        entrees.clear();
+        prochainOrdre = 0;
+    }
+
+    /**
+     * Retourne le numéro d'ordre d'une forme indexée.
+     *
+     * @param forme La forme recherchée.
+     * @return Son numéro d'ordre, ou {@code -1} si elle n'est pas indexée.
+     */
+    public long getOrdre(Forme forme) {
+        Entree entree = entrees.get(forme);
+        return entree != null ? entree.ordre : -1;
+    }
+
+    /**
+     * Retourne la position d'une forme indexée dans la liste des formes de son
+     * calque. La liste suit l'empilement, donc ses numéros d'ordre sont
+     * croissants : la position est cherchée par dichotomie sur les numéros
+     * d'ordre, puis parmi les morceaux d'une même forme effacée, qui partagent
+     * le sien.
+     *
+     * @param formes La liste des formes du calque, de la plus basse à la plus
+     *               haute.
+     * @param forme  La forme recherchée.
+     * @return Sa position dans la liste, ou {@code -1} si elle n'est pas
+     *         indexée.
+     */
+    public int position(List<Forme> formes, Forme forme) {
+        Entree entree = entrees.get(forme);
+        if (entree == null) {
+            return -1;
+        }
+
+        // Première forme dont le numéro d'ordre n'est pas inférieur
+        int debut = 0;
+        int fin = formes.size();
+        while (debut < fin) {
+            int milieu = (debut + fin) >>> 1;
+            if (entrees.get(formes.get(milieu)).ordre < entree.ordre) {
+                debut = milieu + 1;
+            } else {
+                fin = milieu;
+            }
+        }
+        for (int i = debut; i < formes.size(); i++) {
+            if (formes.get(i) == forme) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retourne le nombre de formes indexées.
+     *
+     * @return Nombre de formes indexées.
+     */
+    public int size() {
+        return entrees.size();
+    }
+
+    /**
+     * Retourne les formes dont le rectangle englobant touche une zone, de la plus
+     * basse à la plus haute dans l'empilement.
+     *
+     * @param zone La zone recherchée.
+     * @return Liste des formes candidates, triées par ordre croissant.
+     */
+    public List<Forme> rechercher(Rectangle zone) {
+        List<Entree> trouvees = entreesDans(zone);
+        trouvees.sort(Comparator.comparingLong(e -> e.ordre));
+
+        List<Forme> resultat = new ArrayList<>(trouvees.size());
+        for (Entree entree : trouvees) {
+            resultat.add(entree.forme);
+        }
+        return resultat;
+    }
+
+    /**
+     * Retourne la forme la plus haute dans l'empilement qui contient un point.
+     * Seules les formes dont le rectangle englobant est proche du point sont
+     * testées, avec la même tolérance pour le trait.
+     *
+     * @param p         Le point à tester.
+     * @param tolerance Distance maximale en pixels entre le point et le rectangle
+     *                  englobant d'une forme candidate, puis entre le point et
+     *                  son trait.
+     * @return La forme trouvée, ou {@code null} si aucune ne contient le point.
+     */
+    public Forme formeAuPoint(Point p, int tolerance) {
+        Rectangle zone = new Rectangle(p.x - tolerance, p.y - tolerance, 2 * tolerance + 1, 2 * tolerance + 1);
+        List<Entree> trouvees = entreesDans(zone);
+        trouvees.sort(Comparator.comparingLong((Entree e) -> e.ordre).reversed());
+
+        for (Entree entree : trouvees) {
+            if (entree.forme.contient(p, tolerance)) {
+                return entree.forme;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collecte sans doublon les entrées dont le rectangle englobant touche une
+     * zone. Une entrée à cheval sur plusieurs cellules n'est retenue que dans la
+     * première cellule commune à son rectangle et à la zone. Une zone qui couvre
+     * plus de cellules qu'il n'y a de formes, comme une vue très dézoomée, est
+     * traitée en parcourant directement toutes les entrées.
+     *
+     * @param zone La zone recherchée.
+     * @return Liste non triée des entrées trouvées.
+     */
+    private List<Entree> entreesDans(Rectangle zone) {
+        List<Entree> trouvees = new ArrayList<>();
+        int cx1 = cellule(zone.x);
+        int cy1 = cellule(zone.y);
+        int cx2 = cellule(zone.x + zone.width - 1);
+        int cy2 = cellule(zone.y + zone.height - 1);
+
+        if ((long) (cx2 - cx1 + 1) * (cy2 - cy1 + 1) >= entrees.size()) {
+            for (Entree entree : entrees.values()) {
+                if (entree.bounds.intersects(zone)) {
+                    trouvees.add(entree);
+                }
+            }
+            return trouvees;
+        }
+
+        for (int cy = cy1; cy <= cy2; cy++) {
+            for (int cx = cx1; cx <= cx2; cx++) {
+                List<Entree> liste = cellules.get(cle(cx, cy));
+                if (liste == null) {
+                    continue;
+                }
+                for (Entree entree : liste) {
+                    Rectangle b = entree.bounds;
+                    if (b.intersects(zone)
+                            && cx == Math.max(cx1, cellule(b.x)) && cy == Math.max(cy1, cellule(b.y))) {
+                        trouvees.add(entree);
+                    }
+                }
+            }
+        }
+        return trouvees;
+    }
+
+    /**
+     * Retourne l'indice de la cellule contenant une coordonnée.
+     *
+     * @param coordonnee Coordonnée en pixels, éventuellement négative.
+     * @return Indice de la cellule.
+     */
+    private static int cellule(int coordonnee) {
+        return Math.floorDiv(coordonnee, TAILLE_CELLULE);
+    }
+
+    /**
+     * Combine les indices d'une cellule en une clé unique.
+     *
+     * @param cx Indice horizontal de la cellule.
+     * @param cy Indice vertical de la cellule.
+     * @return Clé de la cellule.
+     */
+    private static Long cle(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
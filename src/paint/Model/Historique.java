@@ -0,0 +1,759 @@
+/**
+ * Historique des modifications du dessin, pour annuler et rétablir.
+ *
+ * L'historique est un journal de commandes : chaque modification (ajout ou
+ * suppression d'une forme, ajout, suppression ou déplacement d'un calque,
+ * réinitialisation) garde de quoi s'appliquer dans les deux sens,
+ * si bien qu'annuler ou rétablir une étape ne rejoue jamais le reste du dessin.
+ * Les formes retirées du dessin ne sont plus référencées que par l'historique ;
+ * lorsque la mémoire qu'elles occupent dépasse le plafond, les plus anciennes
+ * sont d'abord compactées dans le format binaire des projets puis compressées,
+ * et si cela ne suffit pas les étapes les plus anciennes sont oubliées.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+public class Historique {
+
+    /**
+     * Plafond mémoire par défaut, en octets.
+     */
+    public static final long MEMOIRE_PAR_DEFAUT = 64L << 20;
+
+    /**
+     * Taille estimée à partir de laquelle les formes d'une étape sont compactées
+     * quand le plafond est dépassé.
+     */
+    private static final long SEUIL_COMPACTAGE = 16 << 10;
+
+    /**
+     * Dessin sur lequel s'appliquent les étapes de l'historique.
+     */
+    public interface Cible {
+
+        /**
+         * Insère une forme dans un calque.
+         *
+         * @param calque   Le calque.
+         * @param position Position de la forme dans la liste du calque.
+         * @param forme    La forme à insérer.
+         * @param ordre    Numéro d'ordre de la forme dans l'empilement du calque.
+         */
+        void insererForme(Calque calque, int position, Forme forme, long ordre);
+
+        /**
+         * Retire la forme à une position d'un calque.
+         *
+         * @param calque   Le calque.
+         * @param position Position de la forme dans la liste du calque.
+         */
+        void retirerForme(Calque calque, int position);
+
+        /**
+         * Insère un calque vide dans le dessin, puis lui ajoute des formes.
+         *
+         * @param position Position du calque, 0 pour le plus bas.
+         * @param calque   Le calque, sans formes.
+         * @param formes   Les formes du calque, de la plus basse à la plus haute.
+         *                 La liste reste à l'historique et doit être copiée.
+         * @param ordres   Numéros d'ordre des formes, dans le même ordre.
+         */
+        void insererCalque(int position, Calque calque, List<Forme> formes, long[] ordres);
+
+        /**
+         * Retire un calque du dessin et vide sa liste de formes : l'historique
+         * les a conservées.
+         *
+         * @param position Position du calque.
+         */
+        void retirerCalque(int position);
+
+        /**
+         * Déplace un calque dans l'empilement.
+         *
+         * @param depart  Position actuelle du calque.
+         * @param arrivee Nouvelle position du calque.
+         */
+        void deplacerCalque(int depart, int arrivee);
+    }
+
+    /**
+     * Étape de l'historique.
+     */
+    private abstract static class Etape {
+
+        /**
+         * Annule l'étape.
+         *
+         * @param cible Le dessin.
+         */
+        abstract void annuler(Cible cible);
+
+        /**
+         * Rétablit l'étape.
+         *
+         * @param cible Le dessin.
+         */
+        abstract void retablir(Cible cible);
+
+        /**
+         * Estime la mémoire retenue par l'étape, en plus du dessin.
+         *
+         * @return Taille estimée en octets.
+         */
+        abstract long memoire();
+
+        /**
+         * Compacte les formes retenues par l'étape, si elle en a assez pour que
+         * cela soit utile.
+         *
+         * @return {@code true} si l'étape a été compactée.
+         */
+        boolean compacter() {
+            return false;
+        }
+    }
+
+    /**
+     * Ajout de formes en haut de l'empilement. Les formes font partie du dessin,
+     * l'étape ne retient que leurs références et leurs numéros d'ordre.
+     */
+    private static final class Ajout extends Etape {
+        private final Calque calque;
+        private final Forme[] formes;
+        private final long[] ordres;
+        private final int position;
+
+        private Ajout(Calque calque, Forme[] formes, long[] ordres, int position) {
+            this.calque = calque;
+            this.formes = formes;
+            this.ordres = ordres;
+            this.position = position;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            for (int i = formes.length - 1; i >= 0; i--) {
+                cible.retirerForme(calque, position + i);
+            }
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            for (int i = 0; i < formes.length; i++) {
+                cible.insererForme(calque, position + i, formes[i], ordres[i]);
+            }
+        }
+
+        @Override
+        long memoire() {
+            return 32 + 16L * formes.length;
+        }
+    }
+
+    /**
+     * Suppression d'une forme.
+     */
+    private static final class Suppression extends Etape {
+        private final Calque calque;
+        private final Lot lot;
+        private final int position;
+
+        private Suppression(Calque calque, Lot lot, int position) {
+            this.calque = calque;
+            this.lot = lot;
+            this.position = position;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            cible.insererForme(calque, position, lot.formes().get(0), lot.ordres[0]);
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            cible.retirerForme(calque, position);
+        }
+
+        @Override
+        long memoire() {
+            return 16 + lot.memoire();
+        }
+
+        @Override
+        boolean compacter() {
+            return lot.compacter();
+        }
+    }
+
+    /**
+     * Ajout d'un calque vide.
+     */
+    private static final class AjoutCalque extends Etape {
+        private final Calque calque;
+        private final int position;
+
+        private AjoutCalque(Calque calque, int position) {
+            this.calque = calque;
+            this.position = position;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            cible.retirerCalque(position);
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            cible.insererCalque(position, calque, List.of(), new long[0]);
+        }
+
+        @Override
+        long memoire() {
+            return 48;
+        }
+    }
+
+    /**
+     * Calque retiré du dessin avec ses formes.
+     */
+    private static final class CalqueRetire {
+        private final Calque calque;
+        private final Lot lot;
+
+        private CalqueRetire(Calque calque, long[] ordres) {
+            this.calque = calque;
+            this.lot = new Lot(calque.retirerFormes(), ordres);
+        }
+    }
+
+    /**
+     * Suppression d'un calque et de ses formes.
+     */
+    private static final class SuppressionCalque extends Etape {
+        private final CalqueRetire retire;
+        private final int position;
+
+        private SuppressionCalque(CalqueRetire retire, int position) {
+            this.retire = retire;
+            this.position = position;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            cible.insererCalque(position, retire.calque, retire.lot.formes(), retire.lot.ordres);
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            cible.retirerCalque(position);
+        }
+
+        @Override
+        long memoire() {
+            return 48 + retire.lot.memoire();
+        }
+
+        @Override
+        boolean compacter() {
+            return retire.lot.compacter();
+        }
+    }
+
+    /**
+     * Déplacement d'un calque dans l'empilement.
+     */
+    private static final class DeplacementCalque extends Etape {
+        private final int depart;
+        private final int arrivee;
+
+        private DeplacementCalque(int depart, int arrivee) {
+            this.depart = depart;
+            this.arrivee = arrivee;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            cible.deplacerCalque(arrivee, depart);
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            cible.deplacerCalque(depart, arrivee);
+        }
+
+        @Override
+        long memoire() {
+            return 24;
+        }
+    }
+
+    /**
+     * Réinitialisation du dessin : tous les calques sont remplacés par un calque
+     * vide. L'étape retient les calques effacés et toutes leurs formes.
+     */
+    private static final class Reinitialisation extends Etape {
+        private final CalqueRetire[] anciens;
+        private final Calque nouveau;
+
+        private Reinitialisation(CalqueRetire[] anciens, Calque nouveau) {
+            this.anciens = anciens;
+            this.nouveau = nouveau;
+        }
+
+        @Override
+        void annuler(Cible cible) {
+            cible.retirerCalque(0);
+            for (int i = 0; i < anciens.length; i++) {
+                cible.insererCalque(i, anciens[i].calque, anciens[i].lot.formes(), anciens[i].lot.ordres);
+            }
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            for (int i = anciens.length - 1; i >= 0; i--) {
+                cible.retirerCalque(i);
+            }
+            cible.insererCalque(0, nouveau, List.of(), new long[0]);
+        }
+
+        @Override
+        long memoire() {
+            long total = 48;
+            for (CalqueRetire ancien : anciens) {
+                total += 32 + ancien.lot.memoire();
+            }
+            return total;
+        }
+
+        @Override
+        boolean compacter() {
+            boolean compacte = false;
+            for (CalqueRetire ancien : anciens) {
+                compacte |= ancien.lot.compacter();
+            }
+            return compacte;
+        }
+    }
+
+    /**
+     * Suite d'étapes annulées et rétablies d'un seul coup, par exemple tout ce
+     * qu'efface un passage de gomme.
+     */
+    private static final class Groupe extends Etape {
+        private final List<Etape> etapes = new ArrayList<>();
+
+        @Override
+        void annuler(Cible cible) {
+            for (int i = etapes.size() - 1; i >= 0; i--) {
+                etapes.get(i).annuler(cible);
+            }
+        }
+
+        @Override
+        void retablir(Cible cible) {
+            for (Etape etape : etapes) {
+                etape.retablir(cible);
+            }
+        }
+
+        @Override
+        long memoire() {
+            long total = 16;
+            for (Etape etape : etapes) {
+                total += etape.memoire();
+            }
+            return total;
+        }
+
+        @Override
+        boolean compacter() {
+            boolean compacte = false;
+            for (Etape etape : etapes) {
+                compacte |= etape.compacter();
+            }
+            return compacte;
+        }
+    }
+
+    /**
+     * Formes retirées du dessin et leurs numéros d'ordre. Les formes peuvent être
+     * compactées dans un tableau d'octets compressé, puis sont reconstruites à la
+     * demande.
+     */
+    private static final class Lot {
+        private List<Forme> formes;
+        private byte[] compacte;
+        private final long[] ordres;
+        private long memoire;
+
+        private Lot(List<Forme> formes, long[] ordres) {
+            this.formes = formes;
+            this.ordres = ordres;
+            this.memoire = 8L * ordres.length;
+            for (Forme forme : formes) {
+                this.memoire += estimer(forme);
+            }
+        }
+
+        List<Forme> formes() {
+            if (formes == null) {
+                formes = decompacter(compacte, ordres.length);
+                compacte = null;
+                memoire = 8L * ordres.length;
+                for (Forme forme : formes) {
+                    memoire += estimer(forme);
+                }
+            }
+            return formes;
+        }
+
+        long memoire() {
+            return memoire;
+        }
+
+        boolean compacter() {
+            if (formes == null || memoire < SEUIL_COMPACTAGE) {
+                return false;
+            }
+            compacte = Historique.compacter(formes);
+            formes = null;
+            memoire = 8L * ordres.length + compacte.length;
+            return true;
+        }
+    }
+
+    /**
+     * Étapes annulables, de la plus ancienne à la plus récente.
+     */
+    private final Deque<Etape> annulables;
+
+    /**
+     * Étapes rétablissables, la prochaine en tête.
+     */
+    private final Deque<Etape> retablissables;
+
+    /**
+     * Groupe en cours de constitution, ou {@code null}.
+     */
+    private Groupe groupe;
+
+    /**
+     * Plafond mémoire de l'historique, en octets.
+     */
+    private long memoireMax;
+
+    /**
+     * Mémoire estimée de toutes les étapes.
+     */
+    private long memoire;
+
+    /**
+     * Constructeur de la classe Historique.
+     *
+     * @param memoireMax Plafond mémoire de l'historique, en octets.
+     */
+    public Historique(long memoireMax) {
+        this.annulables = new ArrayDeque<>();
+        this.retablissables = new ArrayDeque<>();
+        this.memoireMax = memoireMax;
+    }
+
+    /**
+     * Enregistre l'ajout de formes dans un calque.
+     *
+     * @param calque   Le calque.
+     * @param formes   Les formes ajoutées.
+     * @param ordres   Numéros d'ordre des formes.
+     * @param position Position de la première forme dans la liste du calque.
+     */
+    public void ajout(Calque calque, List<Forme> formes, long[] ordres, int position) {
+        enregistrer(new Ajout(calque, formes.toArray(new Forme[0]), ordres, position));
+    }
+
+    /**
+     * Enregistre la suppression d'une forme.
+     *
+     * @param calque   Le calque de la forme.
+     * @param forme    La forme supprimée.
+     * @param ordre    Son numéro d'ordre.
+     * @param position Sa position dans la liste du calque avant la suppression.
+     */
+    public void suppression(Calque calque, Forme forme, long ordre, int position) {
+        enregistrer(new Suppression(calque, new Lot(List.of(forme), new long[] { ordre }), position));
+    }
+
+    /**
+     * Enregistre l'ajout d'un calque vide.
+     *
+     * @param calque   Le calque ajouté.
+     * @param position Sa position dans l'empilement.
+     */
+    public void ajoutCalque(Calque calque, int position) {
+        enregistrer(new AjoutCalque(calque, position));
+    }
+
+    /**
+     * Enregistre la suppression d'un calque, déjà retiré du dessin. Ses formes
+     * lui sont retirées et ne sont plus conservées que par l'historique.
+     *
+     * @param calque   Le calque supprimé.
+     * @param ordres   Numéros d'ordre de ses formes.
+     * @param position Sa position dans l'empilement avant la suppression.
+     */
+    public void suppressionCalque(Calque calque, long[] ordres, int position) {
+        enregistrer(new SuppressionCalque(new CalqueRetire(calque, ordres), position));
+    }
+
+    /**
+     * Enregistre le déplacement d'un calque.
+     *
+     * @param depart  Ancienne position du calque.
+     * @param arrivee Nouvelle position du calque.
+     */
+    public void deplacementCalque(int depart, int arrivee) {
+        enregistrer(new DeplacementCalque(depart, arrivee));
+    }
+
+    /**
+     * Enregistre la réinitialisation du dessin, dont les calques ont déjà été
+     * remplacés par un calque vide. Les formes des anciens calques leur sont
+     * retirées et ne sont plus conservées que par l'historique.
+     *
+     * @param anciens Les calques effacés, du plus bas au plus haut.
+     * @param ordres  Numéros d'ordre des formes de chaque calque.
+     * @param nouveau Le calque vide qui les remplace.
+     */
+    public void reinitialisation(List<Calque> anciens, List<long[]> ordres, Calque nouveau) {
+        CalqueRetire[] retires = new CalqueRetire[anciens.size()];
+        for (int i = 0; i < retires.length; i++) {
+            retires[i] = new CalqueRetire(anciens.get(i), ordres.get(i));
+        }
+        enregistrer(new Reinitialisation(retires, nouveau));
+    }
+
+    /**
+     * Commence un groupe : les étapes enregistrées jusqu'à
+     * {@link #fermerGroupe()} seront annulées et rétablies ensemble.
+     */
+    public void ouvrirGroupe() {
+        fermerGroupe();
+        groupe = new Groupe();
+    }
+
+    /**
+     * Termine le groupe en cours et l'enregistre s'il contient des étapes.
+     */
+    public void fermerGroupe() {
+        Groupe termine = groupe;
+        groupe = null;
+        if (termine != null && !termine.etapes.isEmpty()) {
+            enregistrer(termine);
+        }
+    }
+
+    /**
+     * Indique si une étape peut être annulée.
+     *
+     * @return {@code true} s'il reste une étape à annuler.
+     */
+    public boolean peutAnnuler() {
+        return !annulables.isEmpty();
+    }
+
+    /**
+     * Indique si une étape peut être rétablie.
+     *
+     * @return {@code true} s'il reste une étape à rétablir.
+     */
+    public boolean peutRetablir() {
+        return !retablissables.isEmpty();
+    }
+
+    /**
+     * Annule la dernière étape.
+     *
+     * @param cible Le dessin.
+     * @return {@code true} si une étape a été annulée.
+     */
+    public boolean annuler(Cible cible) {
+        Etape etape = annulables.pollLast();
+        if (etape == null) {
+            return false;
+        }
+        long avant = etape.memoire();
+        etape.annuler(cible);
+        memoire += etape.memoire() - avant;
+        retablissables.addFirst(etape);
+        return true;
+    }
+
+    /**
+     * Rétablit la dernière étape annulée.
+     *
+     * @param cible Le dessin.
+     * @return {@code true} si une étape a été rétablie.
+     */
+    public boolean retablir(Cible cible) {
+        Etape etape = retablissables.pollFirst();
+        if (etape == null) {
+            return false;
+        }
+        long avant = etape.memoire();
+        etape.retablir(cible);
+        memoire += etape.memoire() - avant;
+        annulables.addLast(etape);
+        return true;
+    }
+
+    /**
+     * Oublie tout l'historique, par exemple au chargement d'un projet.
+     */
+    public void vider() {
+        groupe = null;
+        annulables.clear();
+        retablissables.clear();
+        memoire = 0;
+    }
+
+    /**
+     * Définit le plafond mémoire de l'historique et l'applique aussitôt.
+     *
+     * @param memoireMax Plafond en octets.
+     */
+    public void setMemoireMax(long memoireMax) {
+        this.memoireMax = memoireMax;
+        limiter();
+    }
+
+    /**
+     * Retourne la mémoire estimée de l'historique.
+     *
+     * @return Taille estimée en octets.
+     */
+    public long getMemoire() {
+        return memoire;
+    }
+
+    /**
+     * Ajoute une étape à annuler. Les étapes annulées ne peuvent plus être
+     * rétablies.
+     *
+     * @param etape La nouvelle étape.
+     */
+    private void enregistrer(Etape etape) {
+        if (groupe != null) {
+            groupe.etapes.add(etape);
+            return;
+        }
+
+        for (Etape oubliee : retablissables) {
+            memoire -= oubliee.memoire();
+        }
+        retablissables.clear();
+
+        annulables.addLast(etape);
+        memoire += etape.memoire();
+        limiter();
+    }
+
+    /**
+     * Ramène l'historique sous le plafond mémoire : compacte les étapes les plus
+     * anciennes, puis oublie les plus anciennes si cela ne suffit pas. La
+     * dernière étape est toujours conservée.
+     */
+    private void limiter() {
+        if (memoire <= memoireMax) {
+            return;
+        }
+
+        Iterator<Etape> anciennes = annulables.iterator();
+        while (memoire > memoireMax && anciennes.hasNext()) {
+            Etape etape = anciennes.next();
+            long avant = etape.memoire();
+            if (etape.compacter()) {
+                memoire += etape.memoire() - avant;
+            }
+        }
+
+        while (memoire > memoireMax && annulables.size() > 1) {
+            memoire -= annulables.pollFirst().memoire();
+        }
+    }
+
+    /**
+     * Estime la mémoire occupée par une forme.
+     *
+     * @param forme La forme.
+     * @return Taille estimée en octets.
+     */
+    static long estimer(Forme forme) {
+        if (forme instanceof FreeHandForme) {
+            return 96 + 8L * ((FreeHandForme) forme).getNbPoints();
+        }
+        if (forme instanceof RemplissageForme) {
+            return 64 + 16L * ((RemplissageForme) forme).getNbRectangles();
+        }
+        if (forme instanceof ImageForme) {
+            ImageForme image = (ImageForme) forme;
+            return 64 + 4L * image.getLargeur() * image.getHauteur();
+        }
+        return 48;
+    }
+
+    /**
+     * Compacte des formes dans le format binaire des projets, compressé. La
+     * couleur de chaque forme est écrite directement en ARGB.
+     *
+     * @param formes Les formes à compacter.
+     * @return Les octets compressés.
+     */
+    private static byte[] compacter(List<Forme> formes) {
+        ByteArrayOutputStream octets = new ByteArrayOutputStream();
+        try (DeflaterOutputStream flux = new DeflaterOutputStream(octets)) {
+            SortieBinaire out = new SortieBinaire(Channels.newChannel(flux));
+            for (Forme forme : formes) {
+                FormatProjet.ecrireForme(out, forme, forme.getColor().getRGB());
+            }
+            out.vider();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return octets.toByteArray();
+    }
+
+    /**
+     * Reconstruit des formes compactées par {@link #compacter(List)}.
+     *
+     * @param compacte Les octets compressés.
+     * @param nombre   Nombre de formes.
+     * @return Les formes reconstruites.
+     */
+    private static List<Forme> decompacter(byte[] compacte, int nombre) {
+        List<Forme> formes = new ArrayList<>(nombre);
+        try (InflaterInputStream flux = new InflaterInputStream(new ByteArrayInputStream(compacte))) {
+            EntreeBinaire in = new EntreeBinaire(Channels.newChannel(flux));
+            for (int i = 0; i < nombre; i++) {
+                formes.add(FormatProjet.lireForme(in, argb -> new Color(argb, true)));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return formes;
+    }
+}
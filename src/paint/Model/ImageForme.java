@@ -0,0 +1,136 @@
+/**
+ * Classe représentant une image posée dans le dessin, comme le résultat d'un
+ * filtre appliqué à un calque. Les pixels sont gardés en ARGB prémultiplié,
+ * le format dans lequel les filtres travaillent et que Java2D recopie le plus
+ * vite ; l'image affichée partage leur tableau, sans copie.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
+import java.awt.image.WritableRaster;
+
+public class ImageForme extends Forme {
+    private static final long serialVersionUID = 5820934417718362093L;
+
+    /**
+     * Modèle de couleur ARGB prémultiplié des images, celui de
+     * {@link BufferedImage#TYPE_INT_ARGB_PRE}.
+     */
+    private static final DirectColorModel MODELE = new DirectColorModel(ColorSpace.getInstance(ColorSpace.CS_sRGB),
+            32, 0x00FF0000, 0x0000FF00, 0x000000FF, 0xFF000000, true, DataBuffer.TYPE_INT);
+
+    /**
+     * Largeur et hauteur maximales d'une image, en pixels.
+     */
+    public static final int TAILLE_MAX = 4096;
+
+    /**
+     * Largeur de l'image.
+     */
+    private final int largeur;
+
+    /**
+     * Hauteur de l'image.
+     */
+    private final int hauteur;
+
+    /**
+     * Pixels ARGB prémultipliés, ligne par ligne.
+     */
+    private final int[] pixels;
+
+    /**
+     * Image affichée, construite au premier dessin sur le tableau des pixels.
+     */
+    private transient volatile BufferedImage image;
+
+    /**
+     * Constructeur de la classe ImageForme. Les coordonnées de départ et de fin
+     * de la forme sont les coins de l'image.
+     *
+     * @param x       Coordonnée X du coin supérieur gauche.
+     * @param y       Coordonnée Y du coin supérieur gauche.
+     * @param largeur Largeur de l'image, entre 1 et {@link #TAILLE_MAX}.
+     * @param hauteur Hauteur de l'image, entre 1 et {@link #TAILLE_MAX}.
+     * @param pixels  Pixels ARGB prémultipliés, ligne par ligne ; le tableau est
+     *                gardé tel quel.
+     */
+    public ImageForme(int x, int y, int largeur, int hauteur, int[] pixels) {
+        super(x, y, x + largeur - 1, y + hauteur - 1, Color.BLACK);
+        if (largeur < 1 || hauteur < 1 || largeur > TAILLE_MAX || hauteur > TAILLE_MAX
+                || pixels.length != largeur * hauteur) {
+            throw new IllegalArgumentException("Image de " + largeur + "x" + hauteur + " pour "
+                    + pixels.length + " pixels");
+        }
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+        this.pixels = pixels;
+    }
+
+    /**
+     * Retourne la largeur de l'image.
+     *
+     * @return Largeur en pixels.
+     */
+    public int getLargeur() {
+        return largeur;
+    }
+
+    /**
+     * Retourne la hauteur de l'image.
+     *
+     * @return Hauteur en pixels.
+     */
+    public int getHauteur() {
+        return hauteur;
+    }
+
+    /**
+     * Retourne les pixels de l'image, sans copie : le tableau ne doit pas être
+     * modifié.
+     *
+     * @return Pixels ARGB prémultipliés, ligne par ligne.
+     */
+    int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * Dessine l'image à sa place.
+     *
+     * @param g Objet Graphics utilisé pour dessiner l'image.
+     */
+    @Override
+    public void draw(Graphics g) {
+        BufferedImage img = image;
+        if (img == null) {
+            WritableRaster raster = Raster.createPackedRaster(new DataBufferInt(pixels, pixels.length),
+                    largeur, hauteur, largeur, MODELE.getMasks(), null);
+            img = new BufferedImage(MODELE, raster, true, null);
+            image = img;
+        }
+        g.drawImage(img, startX, startY, null);
+    }
+
+    /**
+     * Vérifie si un point donné tombe sur un pixel non transparent de l'image.
+     *
+     * @param p Point à vérifier.
+     * @return {@code true} si le pixel sous le point est visible, sinon
+     *         {@code false}.
+     */
+    @Override
+    public boolean contient(Point p) {
+        int x = p.x - startX;
+        int y = p.y - startY;
+        return x >= 0 && y >= 0 && x < largeur && y < hauteur && (pixels[y * largeur + x] >>> 24) != 0;
+    }
+}
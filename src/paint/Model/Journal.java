@@ -0,0 +1,763 @@
+/**
+ * Journal de sauvegarde automatique du dessin en cours.
+ *
+ * Chaque modification (forme insérée ou retirée, calque inséré, retiré, déplacé
+ * ou modifié) est ajoutée à la fin d'un fichier journal sous la forme d'un petit enregistrement : le coût
+ * d'une modification dépend de sa taille, pas de celle du dessin. Les écritures
+ * se font sur un fil dédié et sont forcées sur le disque par lots. Après un
+ * certain nombre d'enregistrements, le dessin complet est écrit dans un
+ * instantané au format des projets et un nouveau journal repart de celui-ci.
+ *
+ * Les fichiers portent un numéro de génération : le journal {@code n} s'applique
+ * à l'instantané {@code n} (ou à un dessin vide pour la génération 0). Seule
+ * une fermeture demandée par l'utilisateur supprime les fichiers ; un arrêt
+ * de la machine virtuelle (signal, fermeture de session) les laisse en place
+ * après avoir terminé les écritures en attente. S'il en reste à l'ouverture,
+ * c'est que la session précédente s'est mal terminée et le dessin peut être
+ * reconstruit en rejouant le journal sur l'instantané. Chaque enregistrement
+ * est suivi d'une somme de contrôle, si bien qu'un enregistrement à moitié
+ * écrit lors d'un arrêt brutal est ignoré. Si une écriture échoue, le
+ * journal cesse d'enregistrer et l'application en est prévenue.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+public class Journal implements Closeable {
+
+    /**
+     * Signature des fichiers journal ("PNTJ").
+     */
+    private static final int SIGNATURE = 0x504E544A;
+
+    /**
+     * Version du format du journal.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Types d'enregistrements. Le vidage n'existe que dans les journaux de la
+     * version 1, sans calques.
+     */
+    private static final int INSERTION = 1, RETRAIT = 2, VIDAGE = 3, CALQUE_INSERTION = 4, CALQUE_RETRAIT = 5,
+            CALQUE_DEPLACEMENT = 6, CALQUE_PROPRIETES = 7;
+
+    /**
+     * Nombre d'enregistrements au-delà duquel un instantané est écrit.
+     */
+    private static final int SEUIL_INSTANTANE = 4096;
+
+    /**
+     * Délai maximal entre deux écritures forcées sur le disque, en millisecondes.
+     */
+    private static final long DELAI_SYNCHRONISATION = 200;
+
+    /**
+     * Nombre d'enregistrements en attente au-delà duquel les écritures sont
+     * forcées sans attendre le délai.
+     */
+    private static final int LOT_SYNCHRONISATION = 256;
+
+    /**
+     * Demande d'écriture d'un instantané, transmise au fil d'écriture.
+     */
+    private static final class Instantane {
+        private final Projet projet;
+
+        private Instantane(Projet projet) {
+            this.projet = projet;
+        }
+    }
+
+    /**
+     * Demande de fermeture, transmise au fil d'écriture.
+     */
+    private static final Object FIN = new Object();
+
+    /**
+     * Dossier des fichiers du journal.
+     */
+    private final Path dossier;
+
+    /**
+     * Fournit l'état complet du dessin pour les instantanés. Appelé sur le fil
+     * de l'interface, comme les méthodes d'enregistrement.
+     */
+    private final Supplier<Projet> source;
+
+    /**
+     * Verrou empêchant deux instances d'utiliser le même journal.
+     */
+    private final FileChannel canalVerrou;
+    private final FileLock verrou;
+
+    /**
+     * Dessin reconstruit à l'ouverture après un arrêt brutal, ou {@code null}.
+     */
+    private final Projet recuperation;
+
+    /**
+     * Enregistrements et demandes en attente d'écriture.
+     */
+    private final BlockingQueue<Object> file;
+
+    /**
+     * Fil d'écriture.
+     */
+    private final Thread ecrivain;
+
+    /**
+     * Nombre d'enregistrements depuis le dernier instantané.
+     */
+    private int depuisInstantane;
+
+    /**
+     * Indique qu'un instantané doit être écrit avant le prochain enregistrement,
+     * après une récupération : le journal récupéré peut se terminer par un
+     * enregistrement incomplet et ne doit pas être prolongé.
+     */
+    private boolean instantaneRequis;
+
+    /**
+     * Génération courante et journal correspondant, utilisés par le fil
+     * d'écriture.
+     */
+    private long generation;
+    private FileChannel canal;
+
+    /**
+     * Erreur survenue sur le fil d'écriture, signalée à la fermeture. Une fois
+     * qu'elle est connue, plus rien n'est mis en file.
+     */
+    private volatile IOException erreur;
+
+    /**
+     * Prévenu sur le fil d'écriture quand une écriture échoue.
+     */
+    private final Consumer<IOException> panne;
+
+    /**
+     * Indique que le journal est fermé ou libéré.
+     */
+    private boolean ferme;
+
+    /**
+     * Ouvre le journal d'un dossier, en reconstruisant le dessin d'une session
+     * précédente mal terminée s'il y en a une. Les enregistrements sont faits
+     * après chaque modification du dessin, une fois celle-ci appliquée.
+     *
+     * @param dossier Dossier des fichiers du journal, créé au besoin.
+     * @param source  Fournit l'état complet du dessin pour les instantanés.
+     * @param panne   Prévenu, sur le fil d'écriture, si une écriture échoue : le
+     *                journal cesse alors d'enregistrer.
+     * @throws IOException Si le dossier est inaccessible ou déjà utilisé par une
+     *                     autre instance.
+     */
+    public Journal(Path dossier, Supplier<Projet> source, Consumer<IOException> panne) throws IOException {
+        this.dossier = dossier;
+        this.source = source;
+        this.panne = panne;
+        Files.createDirectories(dossier);
+
+        this.canalVerrou = FileChannel.open(dossier.resolve("verrou"), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock pris;
+        try {
+            pris = canalVerrou.tryLock();
+        } catch (IOException e) {
+            canalVerrou.close();
+            throw e;
+        }
+        if (pris == null) {
+            canalVerrou.close();
+            throw new IOException("Le journal " + dossier + " est utilisé par une autre instance");
+        }
+        this.verrou = pris;
+
+        this.generation = derniereGeneration();
+        this.recuperation = generation >= 0 ? rejouer(generation) : null;
+        this.generation = Math.max(generation, 0);
+        this.instantaneRequis = recuperation != null;
+
+        this.file = new LinkedBlockingQueue<>();
+        this.ecrivain = new Thread(this::ecrire, "paint-journal");
+        this.ecrivain.setDaemon(true);
+        this.ecrivain.start();
+    }
+
+    /**
+     * Retourne le dessin reconstruit à partir d'une session précédente mal
+     * terminée.
+     *
+     * @return Le dessin récupéré, ou {@code null} si la session précédente s'est
+     *         terminée normalement.
+     */
+    public Projet getRecuperation() {
+        return recuperation;
+    }
+
+    /**
+     * Enregistre l'insertion d'une forme dans un calque.
+     *
+     * @param calque   Position du calque.
+     * @param position Position de la forme dans la liste du calque.
+     * @param forme    La forme insérée, qui ne doit plus être modifiée.
+     */
+    public void insertion(int calque, int position, Forme forme) {
+        ajouter(new Object[] { INSERTION, calque, position, forme });
+    }
+
+    /**
+     * Enregistre le retrait d'une forme d'un calque.
+     *
+     * @param calque   Position du calque.
+     * @param position Position de la forme retirée.
+     */
+    public void retrait(int calque, int position) {
+        ajouter(new Object[] { RETRAIT, calque, position });
+    }
+
+    /**
+     * Enregistre l'insertion d'un calque et de ses formes. Le coût de
+     * l'enregistrement dépend du nombre de formes du calque.
+     *
+     * @param position Position du calque dans l'empilement.
+     * @param calque   Le calque inséré, copié aussitôt.
+     */
+    public void insertionCalque(int position, Calque calque) {
+        ajouter(new Object[] { CALQUE_INSERTION, position, calque.copie() });
+    }
+
+    /**
+     * Enregistre le retrait d'un calque et de ses formes.
+     *
+     * @param position Position du calque retiré.
+     */
+    public void retraitCalque(int position) {
+        ajouter(new Object[] { CALQUE_RETRAIT, position });
+    }
+
+    /**
+     * Enregistre le déplacement d'un calque.
+     *
+     * @param depart  Ancienne position du calque.
+     * @param arrivee Nouvelle position du calque.
+     */
+    public void deplacementCalque(int depart, int arrivee) {
+        ajouter(new Object[] { CALQUE_DEPLACEMENT, depart, arrivee });
+    }
+
+    /**
+     * Enregistre les propriétés d'un calque : nom, visibilité, verrou et
+     * opacité.
+     *
+     * @param position Position du calque.
+     * @param calque   Le calque, dont les propriétés sont copiées aussitôt.
+     */
+    public void proprietesCalque(int position, Calque calque) {
+        Calque proprietes = new Calque(calque.getNom(), List.of());
+        proprietes.copierProprietes(calque);
+        ajouter(new Object[] { CALQUE_PROPRIETES, position, proprietes });
+    }
+
+    /**
+     * Demande l'écriture d'un instantané du dessin complet, par exemple après un
+     * chargement ou une modification trop grosse pour le journal. Sans effet
+     * après une erreur d'écriture.
+     */
+    public void instantane() {
+        if (erreur != null) {
+            return;
+        }
+        depuisInstantane = 0;
+        instantaneRequis = false;
+        file.add(new Instantane(source.get()));
+    }
+
+    /**
+     * Ferme le journal à la fin d'une session terminée par l'utilisateur : les
+     * écritures en attente sont abandonnées et tous les fichiers sont
+     * supprimés. Sans effet si le journal est déjà fermé ou libéré.
+     *
+     * @throws IOException Si une écriture a échoué pendant la session ou si les
+     *                     fichiers ne peuvent être supprimés.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (ferme) {
+            return;
+        }
+        ferme = true;
+        file.clear();
+        arreterEcrivain();
+
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, "{journal,instantane}-*")) {
+            for (Path fichier : fichiers) {
+                Files.deleteIfExists(fichier);
+            }
+        } finally {
+            verrou.release();
+            canalVerrou.close();
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+    }
+
+    /**
+     * Libère le journal sans supprimer ses fichiers, lors d'un arrêt de la
+     * machine virtuelle qui n'a pas été demandé depuis l'application : les
+     * écritures en attente sont terminées et forcées sur le disque, puis le
+     * verrou est rendu. Le dessin pourra être récupéré au prochain lancement.
+     * Sans effet si le journal est déjà fermé ou libéré.
+     *
+     * @throws IOException Si une écriture a échoué pendant la session.
+     */
+    public synchronized void liberer() throws IOException {
+        if (ferme) {
+            return;
+        }
+        ferme = true;
+        try {
+            arreterEcrivain();
+        } finally {
+            verrou.release();
+            canalVerrou.close();
+        }
+        if (erreur != null) {
+            throw erreur;
+        }
+    }
+
+    /**
+     * Demande au fil d'écriture de s'arrêter après les éléments en file, et
+     * attend qu'il ait terminé.
+     */
+    private void arreterEcrivain() {
+        file.add(FIN);
+        try {
+            ecrivain.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Met un enregistrement en file et demande un instantané quand le journal
+     * devient long. Sans effet après une erreur d'écriture : la file n'est plus
+     * vidée.
+     *
+     * @param enregistrement Type et paramètres de l'enregistrement.
+     */
+    private void ajouter(Object[] enregistrement) {
+        if (erreur != null) {
+            return;
+        }
+        if (instantaneRequis) {
+            instantane(); // L'instantané contient déjà la modification
+            return;
+        }
+        file.add(enregistrement);
+        if (++depuisInstantane >= SEUIL_INSTANTANE) {
+            instantane();
+        }
+    }
+
+    /**
+     * Boucle du fil d'écriture : code les enregistrements, les ajoute au journal
+     * par lots et force l'écriture sur le disque au plus tard après
+     * {@link #DELAI_SYNCHRONISATION} millisecondes.
+     */
+    private void ecrire() {
+        ByteArrayOutputStream charge = new ByteArrayOutputStream();
+        SortieBinaire out = new SortieBinaire(Channels.newChannel(charge));
+        ByteArrayOutputStream lot = new ByteArrayOutputStream();
+        CRC32 crc = new CRC32();
+        int enAttente = 0;
+        long limite = 0;
+
+        try {
+            while (true) {
+                Object element = enAttente == 0 ? file.take()
+                        : file.poll(Math.max(0, limite - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+
+                if (element == FIN) {
+                    synchroniser(lot);
+                    fermerCanal();
+                    return;
+                }
+
+                if (element instanceof Instantane) {
+                    synchroniser(lot);
+                    enAttente = 0;
+                    changerGeneration(((Instantane) element).projet);
+                } else if (element != null) {
+                    charge.reset();
+                    coder(out, (Object[]) element);
+                    out.vider();
+
+                    byte[] octets = charge.toByteArray();
+                    crc.reset();
+                    crc.update(octets);
+                    ecrireEntier(lot, octets.length);
+                    lot.write(octets);
+                    ecrireEntier(lot, (int) crc.getValue());
+                    if (enAttente++ == 0) {
+                        limite = System.currentTimeMillis() + DELAI_SYNCHRONISATION;
+                    }
+                }
+
+                if (enAttente > 0 && (element == null || enAttente >= LOT_SYNCHRONISATION
+                        || System.currentTimeMillis() >= limite)) {
+                    synchroniser(lot);
+                    enAttente = 0;
+                }
+            }
+        } catch (IOException e) {
+            // Plus rien n'est mis en file ; ce qui y attend est abandonné
+            erreur = e;
+            file.clear();
+            e.printStackTrace();
+            panne.accept(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            fermerCanal();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Code un enregistrement.
+     *
+     * @param out            Sortie binaire.
+     * @param enregistrement Type et paramètres de l'enregistrement.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private static void coder(SortieBinaire out, Object[] enregistrement) throws IOException {
+        int type = (Integer) enregistrement[0];
+        out.octet(type);
+        out.varint((Integer) enregistrement[1]);
+        if (type == INSERTION) {
+            out.varint((Integer) enregistrement[2]);
+            Forme forme = (Forme) enregistrement[3];
+            FormatProjet.ecrireForme(out, forme, forme.getColor().getRGB());
+        } else if (type == RETRAIT || type == CALQUE_DEPLACEMENT) {
+            out.varint((Integer) enregistrement[2]);
+        } else if (type == CALQUE_INSERTION) {
+            Calque calque = (Calque) enregistrement[2];
+            FormatProjet.ecrireCalque(out, calque);
+            out.varint(calque.getFormes().size());
+            for (Forme forme : calque.getFormes()) {
+                FormatProjet.ecrireForme(out, forme, forme.getColor().getRGB());
+            }
+        } else if (type == CALQUE_PROPRIETES) {
+            FormatProjet.ecrireCalque(out, (Calque) enregistrement[2]);
+        }
+    }
+
+    /**
+     * Ajoute les enregistrements en attente au journal et force leur écriture
+     * sur le disque.
+     *
+     * @param lot Enregistrements en attente, vidés après l'écriture.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void synchroniser(ByteArrayOutputStream lot) throws IOException {
+        if (lot.size() == 0) {
+            return;
+        }
+        ouvrirCanal();
+        ByteBuffer octets = ByteBuffer.wrap(lot.toByteArray());
+        while (octets.hasRemaining()) {
+            canal.write(octets);
+        }
+        canal.force(false);
+        lot.reset();
+    }
+
+    /**
+     * Écrit l'instantané de la génération suivante, commence son journal puis
+     * supprime les fichiers de la génération précédente.
+     *
+     * @param projet Le dessin complet.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void changerGeneration(Projet projet) throws IOException {
+        long suivante = generation + 1;
+        FormatProjet.ecrire(fichierInstantane(suivante), projet);
+
+        fermerCanal();
+        long precedente = generation;
+        generation = suivante;
+        ouvrirCanal();
+
+        Files.deleteIfExists(fichierJournal(precedente));
+        Files.deleteIfExists(fichierInstantane(precedente));
+    }
+
+    /**
+     * Ouvre le journal de la génération courante s'il ne l'est pas déjà. Un
+     * nouveau journal commence par sa signature.
+     *
+     * @throws IOException En cas d'erreur d'ouverture.
+     */
+    private void ouvrirCanal() throws IOException {
+        if (canal != null) {
+            return;
+        }
+        Path fichier = fichierJournal(generation);
+        boolean nouveau = !Files.exists(fichier);
+        canal = FileChannel.open(fichier, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        if (nouveau) {
+            ByteBuffer entete = ByteBuffer.allocate(8).putInt(SIGNATURE).putInt(VERSION);
+            entete.flip();
+            while (entete.hasRemaining()) {
+                canal.write(entete);
+            }
+        }
+    }
+
+    /**
+     * Ferme le journal courant s'il est ouvert.
+     *
+     * @throws IOException En cas d'erreur de fermeture.
+     */
+    private void fermerCanal() throws IOException {
+        if (canal != null) {
+            canal.close();
+            canal = null;
+        }
+    }
+
+    /**
+     * Retourne la génération la plus récente présente dans le dossier : celle du
+     * dernier instantané, ou 0 s'il ne reste qu'un journal sans instantané.
+     *
+     * @return La génération, ou {@code -1} s'il n'y a aucun fichier.
+     * @throws IOException En cas d'erreur de lecture du dossier.
+     */
+    private long derniereGeneration() throws IOException {
+        long derniere = -1;
+        try (DirectoryStream<Path> fichiers = Files.newDirectoryStream(dossier, "{journal,instantane}-*")) {
+            for (Path fichier : fichiers) {
+                String nom = fichier.getFileName().toString();
+                try {
+                    long numero = Long.parseLong(nom.substring(nom.indexOf('-') + 1, nom.lastIndexOf('.')));
+                    derniere = Math.max(derniere, nom.startsWith("instantane-") ? numero : 0);
+                } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+                    // Fichier étranger au journal
+                }
+            }
+        }
+        return derniere;
+    }
+
+    /**
+     * Reconstruit le dessin d'une génération : l'instantané, s'il existe, puis
+     * les enregistrements du journal jusqu'au premier incomplet ou corrompu.
+     *
+     * @param generation La génération à rejouer.
+     * @return Le dessin reconstruit.
+     * @throws IOException Si l'instantané est illisible.
+     */
+    private Projet rejouer(long generation) throws IOException {
+        List<Calque> calques;
+        Color couleur = Color.RED;
+        int largeur = 0;
+        int hauteur = 0;
+
+        Path instantane = fichierInstantane(generation);
+        if (Files.exists(instantane)) {
+            Projet projet = FormatProjet.lire(instantane);
+            calques = new ArrayList<>(projet.getCalques());
+            couleur = projet.getCouleur();
+            largeur = projet.getLargeur();
+            hauteur = projet.getHauteur();
+        } else {
+            calques = new ArrayList<>();
+            calques.add(new Calque(Calque.nomParDefaut(1)));
+        }
+
+        Path journal = fichierJournal(generation);
+        if (Files.exists(journal)) {
+            ByteBuffer contenu = ByteBuffer.wrap(Files.readAllBytes(journal));
+            int version = contenu.remaining() >= 8 && contenu.getInt() == SIGNATURE ? contenu.getInt() : 0;
+            if (version >= 1 && version <= VERSION) {
+                CRC32 crc = new CRC32();
+                while (contenu.remaining() >= 4) {
+                    int longueur = contenu.getInt();
+                    if (longueur < 0 || contenu.remaining() < longueur + 4) {
+                        break; // Enregistrement incomplet
+                    }
+                    ByteBuffer charge = contenu.slice();
+                    charge.limit(longueur);
+                    contenu.position(contenu.position() + longueur);
+                    crc.reset();
+                    crc.update(charge.duplicate());
+                    if ((int) crc.getValue() != contenu.getInt() || !appliquer(new EntreeBinaire(charge), version, calques)) {
+                        break; // Enregistrement corrompu
+                    }
+                }
+            }
+        }
+        if (calques.isEmpty()) {
+            // Journal interrompu au milieu d'une réinitialisation
+            calques.add(new Calque(Calque.nomParDefaut(1)));
+        }
+        return new Projet(calques, couleur, largeur, hauteur);
+    }
+
+    /**
+     * Applique un enregistrement du journal aux calques du dessin.
+     *
+     * @param in      Entrée sur le contenu de l'enregistrement.
+     * @param version Version du journal ; les enregistrements de la version 1
+     *                s'appliquent à un calque unique.
+     * @param calques Les calques du dessin.
+     * @return {@code false} si l'enregistrement est invalide.
+     */
+    private static boolean appliquer(EntreeBinaire in, int version, List<Calque> calques) {
+        try {
+            int type = in.octet();
+            switch (type) {
+                case INSERTION: {
+                    List<Forme> formes = formesCalque(calques, version >= 2 ? in.varint() : 0);
+                    int position = in.varint();
+                    Forme forme = FormatProjet.lireForme(in, argb -> new Color(argb, true));
+                    if (formes == null || position < 0 || position > formes.size()) {
+                        return false;
+                    }
+                    formes.add(position, forme);
+                    return true;
+                }
+                case RETRAIT: {
+                    List<Forme> formes = formesCalque(calques, version >= 2 ? in.varint() : 0);
+                    int position = in.varint();
+                    if (formes == null || position < 0 || position >= formes.size()) {
+                        return false;
+                    }
+                    formes.remove(position);
+                    return true;
+                }
+                case VIDAGE:
+                    calques.clear();
+                    calques.add(new Calque(Calque.nomParDefaut(1)));
+                    return true;
+                case CALQUE_INSERTION: {
+                    int position = in.varint();
+                    Calque calque = FormatProjet.lireCalque(in);
+                    int n = in.varint();
+                    for (int i = 0; i < n; i++) {
+                        calque.getFormes().add(FormatProjet.lireForme(in, argb -> new Color(argb, true)));
+                    }
+                    if (position < 0 || position > calques.size()) {
+                        return false;
+                    }
+                    calques.add(position, calque);
+                    return true;
+                }
+                case CALQUE_RETRAIT: {
+                    int position = in.varint();
+                    if (position < 0 || position >= calques.size()) {
+                        return false;
+                    }
+                    calques.remove(position);
+                    return true;
+                }
+                case CALQUE_DEPLACEMENT: {
+                    int depart = in.varint();
+                    int arrivee = in.varint();
+                    if (depart < 0 || depart >= calques.size() || arrivee < 0 || arrivee >= calques.size()) {
+                        return false;
+                    }
+                    calques.add(arrivee, calques.remove(depart));
+                    return true;
+                }
+                case CALQUE_PROPRIETES: {
+                    int position = in.varint();
+                    Calque proprietes = FormatProjet.lireCalque(in);
+                    if (position < 0 || position >= calques.size()) {
+                        return false;
+                    }
+                    calques.get(position).setNom(proprietes.getNom());
+                    calques.get(position).copierProprietes(proprietes);
+                    return true;
+                }
+                default:
+                    return false;
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retourne les formes d'un calque du dessin en cours de reconstruction.
+     *
+     * @param calques Les calques du dessin.
+     * @param calque  Position du calque.
+     * @return La liste des formes du calque, ou {@code null} si la position est
+     *         invalide.
+     */
+    private static List<Forme> formesCalque(List<Calque> calques, int calque) {
+        return calque >= 0 && calque < calques.size() ? calques.get(calque).getFormes() : null;
+    }
+
+    /**
+     * Retourne le chemin du journal d'une génération.
+     *
+     * @param generation Numéro de génération.
+     * @return Chemin du fichier.
+     */
+    private Path fichierJournal(long generation) {
+        return dossier.resolve("journal-" + generation + ".log");
+    }
+
+    /**
+     * Retourne le chemin de l'instantané d'une génération.
+     *
+     * @param generation Numéro de génération.
+     * @return Chemin du fichier.
+     */
+    private Path fichierInstantane(long generation) {
+        return dossier.resolve("instantane-" + generation + ".pnt");
+    }
+
+    /**
+     * Écrit un entier sur quatre octets.
+     *
+     * @param out    Flux de destination.
+     * @param valeur Entier à écrire.
+     */
+    private static void ecrireEntier(ByteArrayOutputStream out, int valeur) {
+        out.write(valeur >>> 24);
+        out.write(valeur >>> 16);
+        out.write(valeur >>> 8);
+        out.write(valeur);
+    }
+}
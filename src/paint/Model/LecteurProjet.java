@@ -0,0 +1,273 @@
+/**
+ * Lecture progressive d'un projet : l'en-tête et la description des calques
+ * sont lus à l'ouverture, puis les formes sont lues par lots, calque après
+ * calque, ce qui permet de les afficher au fur et à mesure
+ * et d'interrompre le chargement.
+ *
+ * Les projets au format sérialisé des versions précédentes ne peuvent pas être
+ * lus par morceaux : ils sont lus entièrement à l'ouverture, puis servis par
+ * lots de la même façon.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LecteurProjet implements Closeable {
+
+    /**
+     * Canal du fichier, ou {@code null} pour un projet au format sérialisé.
+     */
+    private final FileChannel canal;
+
+    /**
+     * Entrée binaire sur le canal.
+     */
+    private final EntreeBinaire in;
+
+    /**
+     * Taille du fichier en octets.
+     */
+    private final long taille;
+
+    /**
+     * Formes d'un projet au format sérialisé, lues à l'ouverture.
+     */
+    private final List<Forme> formesAnciennes;
+
+    /**
+     * Palette des couleurs du projet.
+     */
+    private final Color[] palette;
+
+    /**
+     * Dimensions du canvas.
+     */
+    private final int largeur, hauteur;
+
+    /**
+     * Couleur de dessin courante.
+     */
+    private final Color couleur;
+
+    /**
+     * Calques du projet, encore vides.
+     */
+    private final List<Calque> calques;
+
+    /**
+     * Nombre de formes de chaque calque.
+     */
+    private final int[] nbFormesCalques;
+
+    /**
+     * Nombre total de formes du projet.
+     */
+    private final int nbFormes;
+
+    /**
+     * Nombre de formes déjà lues.
+     */
+    private int nbLues;
+
+    /**
+     * Ouvre un projet et lit son en-tête.
+     *
+     * @param fichier Chemin du fichier à lire.
+     * @throws IOException En cas d'erreur de lecture ou de fichier invalide.
+     */
+    public LecteurProjet(Path fichier) throws IOException {
+        FileChannel ouvert = FileChannel.open(fichier, StandardOpenOption.READ);
+        try {
+            this.taille = ouvert.size();
+
+            ByteBuffer entete = ByteBuffer.allocate(2);
+            ouvert.read(entete);
+            if (entete.position() == 2 && FormatProjet.estSerialise(entete.getShort(0))) {
+                ouvert.close();
+                Projet projet = FormatProjet.lireAncien(fichier);
+                this.canal = null;
+                this.in = null;
+                this.formesAnciennes = projet.getFormes();
+                this.palette = null;
+                this.largeur = projet.getLargeur();
+                this.hauteur = projet.getHauteur();
+                this.couleur = projet.getCouleur();
+                this.nbFormes = formesAnciennes.size();
+                this.calques = List.of(new Calque(Calque.nomParDefaut(1)));
+                this.nbFormesCalques = new int[] { nbFormes };
+                return;
+            }
+
+            ouvert.position(0);
+            this.canal = ouvert;
+            this.in = new EntreeBinaire(ouvert, taille);
+            this.formesAnciennes = null;
+            int version = FormatProjet.lireSignature(in);
+
+            this.largeur = in.varint();
+            this.hauteur = in.varint();
+            this.couleur = new Color(in.entier(), true);
+
+            // Quatre octets par couleur
+            this.palette = new Color[in.nombre(4)];
+            for (int i = 0; i < palette.length; i++) {
+                palette[i] = new Color(in.entier(), true);
+            }
+
+            if (version >= 2) {
+                // Au moins quatre octets par calque : nom, drapeaux, opacité et
+                // nombre de formes
+                int n = in.nombre(4);
+                List<Calque> lus = new ArrayList<>(n);
+                this.nbFormesCalques = new int[n];
+                long total = 0;
+                for (int i = 0; i < n; i++) {
+                    lus.add(FormatProjet.lireCalque(in));
+                    nbFormesCalques[i] = in.nombre(2);
+                    total += nbFormesCalques[i];
+                }
+                if (n == 0 || total > Integer.MAX_VALUE) {
+                    throw new IOException("Projet corrompu : calques invalides");
+                }
+                this.calques = lus;
+                this.nbFormes = (int) total;
+            } else {
+                this.nbFormes = in.nombre(2);
+                this.calques = List.of(new Calque(Calque.nomParDefaut(1)));
+                this.nbFormesCalques = new int[] { nbFormes };
+            }
+        } catch (IOException | RuntimeException e) {
+            ouvert.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Retourne la largeur du canvas enregistrée.
+     *
+     * @return Largeur en pixels.
+     */
+    public int getLargeur() {
+        return largeur;
+    }
+
+    /**
+     * Retourne la hauteur du canvas enregistrée.
+     *
+     * @return Hauteur en pixels.
+     */
+    public int getHauteur() {
+        return hauteur;
+    }
+
+    /**
+     * Retourne la couleur de dessin enregistrée.
+     *
+     * @return Couleur courante du projet.
+     */
+    public Color getCouleur() {
+        return couleur;
+    }
+
+    /**
+     * Retourne le nombre total de formes du projet.
+     *
+     * @return Nombre de formes.
+     */
+    public int getNbFormes() {
+        return nbFormes;
+    }
+
+    /**
+     * Retourne les calques du projet, avec leurs propriétés mais sans leurs
+     * formes, qui sont lues ensuite dans l'ordre des calques.
+     *
+     * @return Les calques, du plus bas au plus haut.
+     */
+    public List<Calque> getCalques() {
+        return calques;
+    }
+
+    /**
+     * Retourne le nombre de formes d'un calque.
+     *
+     * @param calque Indice du calque.
+     * @return Nombre de formes du calque.
+     */
+    public int getNbFormes(int calque) {
+        return nbFormesCalques[calque];
+    }
+
+    /**
+     * Indique s'il reste des formes à lire.
+     *
+     * @return {@code true} s'il reste des formes, sinon {@code false}.
+     */
+    public boolean resteFormes() {
+        return nbLues < nbFormes;
+    }
+
+    /**
+     * Lit le lot de formes suivant.
+     *
+     * @param max Nombre maximal de formes à lire.
+     * @return Les formes lues, dans l'ordre du dessin.
+     * @throws IOException En cas d'erreur de lecture ou de fichier corrompu.
+     */
+    public List<Forme> lireFormes(int max) throws IOException {
+        int n = Math.min(max, nbFormes - nbLues);
+        if (formesAnciennes != null) {
+            List<Forme> lot = new ArrayList<>(formesAnciennes.subList(nbLues, nbLues + n));
+            nbLues += n;
+            return lot;
+        }
+
+        List<Forme> lot = new ArrayList<>(n);
+        try {
+            for (int i = 0; i < n; i++) {
+                lot.add(FormatProjet.lireForme(in, indice -> palette[indice]));
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IOException("Projet corrompu : couleur hors palette", e);
+        }
+        nbLues += n;
+        return lot;
+    }
+
+    /**
+     * Retourne l'avancement de la lecture.
+     *
+     * @return Fraction lue, entre 0 et 1.
+     */
+    public double getProgression() {
+        if (nbFormes == 0) {
+            return 1;
+        }
+        if (formesAnciennes != null || taille == 0) {
+            return (double) nbLues / nbFormes;
+        }
+        return Math.min(1, (double) in.position() / taille);
+    }
+
+    /**
+     * Ferme le fichier.
+     *
+     * @throws IOException En cas d'erreur de fermeture.
+     */
+    @Override
+    public void close() throws IOException {
+        if (canal != null) {
+            canal.close();
+        }
+    }
+}
@@ -11,6 +11,7 @@ import java.awt.*;
 import java.awt.geom.Line2D;
 
 public class LigneForme extends Forme {
+    private static final long serialVersionUID = 3851219565711567645L;
 
     /**
      * Constructeur de la classe LigneForme.
@@ -36,20 +37,34 @@ public class LigneForme extends Forme {
     public void draw(Graphics g) {
         g.setColor(color);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(TRAIT);
         g.drawLine(startX, startY, endX, endY);
     }
 
     /**
      * Vérifie si un point donné est proche de la ligne.
-     * Utilise une tolérance de 5 pixels pour déterminer la proximité.
+     * Utilise une tolérance de 5 pixels pour déterminer la proximité, comparée
+     * au carré de la distance.
      *
      * @param p Point à vérifier.
      * @return {@code true} si le point est proche de la ligne, sinon {@code false}.
      */
     @Override
     public boolean contient(Point p) {
-        double distance = Line2D.ptSegDist(startX, startY, endX, endY, p.getX(), p.getY());
-        return distance < 5.0; // Tolérance de 5 pixels
+        return contient(p, TOLERANCE_SELECTION);
+    }
+
+    /**
+     * Vérifie si un point donné est à moins d'une tolérance donnée de la ligne,
+     * en comparant les carrés des distances.
+     *
+     * @param p         Point à vérifier.
+     * @param tolerance Distance maximale en pixels entre le point et la ligne.
+     * @return {@code true} si le point est proche de la ligne, sinon {@code false}.
+     */
+    @Override
+    public boolean contient(Point p, int tolerance) {
+        double distanceCarre = Line2D.ptSegDistSq(startX, startY, endX, endY, p.x, p.y);
+        return distanceCarre < (double) tolerance * tolerance;
     }
 }
@@ -0,0 +1,116 @@
+/**
+ * Classe représentant un projet sauvegardé : les calques du dessin et leurs
+ * formes, la couleur de dessin courante et les dimensions du canvas.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.List;
+
+public class Projet {
+
+    /**
+     * Calques du dessin, du plus bas au plus haut.
+     */
+    private final List<Calque> calques;
+
+    /**
+     * Couleur de dessin courante.
+     */
+    private final Color couleur;
+
+    /**
+     * Largeur du canvas.
+     */
+    private final int largeur;
+
+    /**
+     * Hauteur du canvas.
+     */
+    private final int hauteur;
+
+    /**
+     * Constructeur de la classe Projet.
+     *
+     * @param calques Calques du dessin, du plus bas au plus haut.
+     * @param couleur Couleur de dessin courante.
+     * @param largeur Largeur du canvas.
+     * @param hauteur Hauteur du canvas.
+     */
+    public Projet(List<Calque> calques, Color couleur, int largeur, int hauteur) {
+        this.calques = calques;
+        this.couleur = couleur;
+        this.largeur = largeur;
+        this.hauteur = hauteur;
+    }
+
+    /**
+     * Retourne les calques du dessin.
+     *
+     * @return Liste des calques, du plus bas au plus haut.
+     */
+    public List<Calque> getCalques() {
+        return calques;
+    }
+
+    /**
+     * Retourne toutes les formes du dessin, calque par calque, y compris celles
+     * des calques masqués.
+     *
+     * @return Liste des formes, de la plus basse à la plus haute, à ne pas
+     *         modifier.
+     */
+    public List<Forme> getFormes() {
+        if (calques.size() == 1) {
+            return calques.get(0).getFormes();
+        }
+        List<Forme> formes = new ArrayList<>();
+        for (Calque calque : calques) {
+            formes.addAll(calque.getFormes());
+        }
+        return formes;
+    }
+
+    /**
+     * Compte les formes du dessin.
+     *
+     * @return Nombre total de formes, tous calques confondus.
+     */
+    public int getNbFormes() {
+        int total = 0;
+        for (Calque calque : calques) {
+            total += calque.getFormes().size();
+        }
+        return total;
+    }
+
+    /**
+     * Retourne la couleur de dessin courante.
+     *
+     * @return Couleur courante.
+     */
+    public Color getCouleur() {
+        return couleur;
+    }
+
+    /**
+     * Retourne la largeur du canvas.
+     *
+     * @return Largeur en pixels.
+     */
+    public int getLargeur() {
+        return largeur;
+    }
+
+    /**
+     * Retourne la hauteur du canvas.
+     *
+     * @return Hauteur en pixels.
+     */
+    public int getHauteur() {
+        return hauteur;
+    }
+}
@@ -10,6 +10,7 @@ package paint.Model;
 import java.awt.*;
 
 public class RectangleForme extends Forme {
+    private static final long serialVersionUID = -7151089483463750018L;
 
     /**
      * Constructeur de la classe RectangleForme.
@@ -35,7 +36,7 @@ public class RectangleForme extends Forme {
     public void draw(Graphics g) {
         g.setColor(color);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(1));
+        g2d.setStroke(TRAIT);
         int width = Math.abs(endX - startX);
         int height = Math.abs(endY - startY);
         int x = Math.min(startX, endX);
@@ -52,8 +53,9 @@ public class RectangleForme extends Forme {
      */
     @Override
     public boolean contient(Point p) {
-        Rectangle bounds = new Rectangle(Math.min(startX, endX), Math.min(startY, endY),
-                Math.abs(endX - startX), Math.abs(endY - startY));
-        return bounds.contains(p);
+        // Mêmes bords que Rectangle.contains : gauche et haut inclus, droite et
+        // bas exclus
+        return p.x >= Math.min(startX, endX) && p.x < Math.max(startX, endX)
+                && p.y >= Math.min(startY, endY) && p.y < Math.max(startY, endY);
     }
 }
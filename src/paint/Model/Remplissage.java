@@ -0,0 +1,227 @@
+/**
+ * Remplissage d'une zone de couleur voisine, comme un pot de peinture.
+ *
+ * Le remplissage travaille directement sur le tableau d'entiers ARGB d'une
+ * image, par segments horizontaux : un segment rempli est empilé pour la ligne
+ * suivante dans son sens de parcours, et seules ses parties qui débordent du
+ * segment d'origine sont réexaminées dans l'autre sens, si bien que chaque
+ * pixel n'est lu qu'une ou deux fois. Un pixel rempli est marqué en effaçant
+ * sa transparence, ce qui évite un tableau des pixels visités. La zone obtenue est
+ * ensuite rangée en rectangles dans une {@link RemplissageForme}.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+public final class Remplissage {
+
+    private Remplissage() {
+    }
+
+    /**
+     * Remplit la zone de pixels voisins de couleur proche de celle d'un point.
+     * Les pixels de l'image doivent être opaques ; les pixels remplis sont
+     * rendus transparents.
+     *
+     * @param pixels    Pixels ARGB de l'image, ligne par ligne.
+     * @param largeur   Largeur de l'image.
+     * @param hauteur   Hauteur de l'image.
+     * @param x         Coordonnée X du point de départ dans l'image.
+     * @param y         Coordonnée Y du point de départ dans l'image.
+     * @param tolerance Écart maximal entre chaque composante (rouge, vert, bleu)
+     *                  d'un pixel et celle du point de départ, entre 0 et 255.
+     * @param origineX  Coordonnée X dans le dessin du coin de l'image.
+     * @param origineY  Coordonnée Y dans le dessin du coin de l'image.
+     * @param couleur   Couleur du remplissage.
+     * @return La zone remplie, en coordonnées du dessin, ou {@code null} si le
+     *         point est hors de l'image.
+     */
+    public static RemplissageForme remplir(int[] pixels, int largeur, int hauteur, int x, int y, int tolerance,
+            int origineX, int origineY, Color couleur) {
+        if (x < 0 || y < 0 || x >= largeur || y >= hauteur || (pixels[y * largeur + x] >>> 24) == 0) {
+            return null;
+        }
+        int graine = pixels[y * largeur + x];
+
+        int minX = x;
+        int minY = y;
+        int maxX = x;
+        int maxY = y;
+        Pile pile = new Pile();
+        pile.empiler(x, x, y, 1);
+        pile.empiler(x, x, y - 1, -1);
+        while (pile.taille > 0) {
+            int[] c = pile.cases;
+            int dy = c[--pile.taille];
+            int py = c[--pile.taille];
+            int x2 = c[--pile.taille];
+            int x1 = c[--pile.taille];
+            if (py < 0 || py >= hauteur) {
+                continue;
+            }
+            int ligne = py * largeur;
+            boolean rempli = false;
+
+            // Extension à gauche du segment ; ce qui dépasse sous le segment
+            // d'origine est à examiner dans l'autre sens
+            int px = x1;
+            if (proche(pixels[ligne + px], graine, tolerance)) {
+                while (px > 0 && proche(pixels[ligne + px - 1], graine, tolerance)) {
+                    px--;
+                    pixels[ligne + px] &= 0x00FFFFFF;
+                }
+                if (px < x1) {
+                    rempli = true;
+                    minX = Math.min(minX, px);
+                    pile.empiler(px, x1 - 1, py - dy, -dy);
+                }
+            }
+
+            // Parcours du segment d'origine, chaque morceau rempli pouvant
+            // déborder à droite
+            while (x1 <= x2) {
+                while (x1 < largeur && proche(pixels[ligne + x1], graine, tolerance)) {
+                    pixels[ligne + x1] &= 0x00FFFFFF;
+                    x1++;
+                }
+                if (x1 > px) {
+                    rempli = true;
+                    maxX = Math.max(maxX, x1 - 1);
+                    pile.empiler(px, x1 - 1, py + dy, dy);
+                }
+                if (x1 - 1 > x2) {
+                    pile.empiler(x2 + 1, x1 - 1, py - dy, -dy);
+                }
+                x1++;
+                while (x1 < x2 && !proche(pixels[ligne + x1], graine, tolerance)) {
+                    x1++;
+                }
+                px = x1;
+            }
+            if (rempli) {
+                minY = Math.min(minY, py);
+                maxY = Math.max(maxY, py);
+            }
+        }
+
+        return new RemplissageForme(rectangles(pixels, largeur, minX, minY, maxX, maxY, origineX, origineY),
+                couleur);
+    }
+
+    /**
+     * Pile des segments à examiner, quatre cases chacun : début, fin, ligne et
+     * sens de parcours (1 vers le bas, -1 vers le haut).
+     */
+    private static final class Pile {
+        private int[] cases = new int[256];
+        private int taille;
+
+        private void empiler(int x1, int x2, int y, int dy) {
+            if (taille + 4 > cases.length) {
+                cases = Arrays.copyOf(cases, cases.length * 2);
+            }
+            cases[taille++] = x1;
+            cases[taille++] = x2;
+            cases[taille++] = y;
+            cases[taille++] = dy;
+        }
+    }
+
+    /**
+     * Indique si un pixel non encore rempli est assez proche de la couleur de
+     * départ.
+     *
+     * @param pixel     Pixel ARGB ; un pixel transparent est déjà rempli.
+     * @param graine    Couleur du point de départ.
+     * @param tolerance Écart maximal par composante.
+     * @return {@code true} si le pixel est à remplir.
+     */
+    private static boolean proche(int pixel, int graine, int tolerance) {
+        if ((pixel >>> 24) == 0) {
+            return false;
+        }
+        if (tolerance == 0) {
+            return ((pixel ^ graine) & 0x00FFFFFF) == 0;
+        }
+        return Math.abs(((pixel >> 16) & 0xFF) - ((graine >> 16) & 0xFF)) <= tolerance
+                && Math.abs(((pixel >> 8) & 0xFF) - ((graine >> 8) & 0xFF)) <= tolerance
+                && Math.abs((pixel & 0xFF) - (graine & 0xFF)) <= tolerance;
+    }
+
+    /**
+     * Range les pixels remplis (transparents) d'une zone de l'image en
+     * rectangles : chaque ligne est découpée en segments, et un segment qui
+     * prolonge exactement un rectangle de la ligne précédente l'allonge d'une
+     * ligne au lieu d'en ouvrir un nouveau.
+     *
+     * @param pixels   Pixels de l'image.
+     * @param largeur  Largeur de l'image.
+     * @param minX     Coordonnée X minimale de la zone remplie.
+     * @param minY     Coordonnée Y minimale de la zone remplie.
+     * @param maxX     Coordonnée X maximale de la zone remplie.
+     * @param maxY     Coordonnée Y maximale de la zone remplie.
+     * @param origineX Décalage X ajouté aux rectangles.
+     * @param origineY Décalage Y ajouté aux rectangles.
+     * @return Les rectangles, quatre cases chacun : x, y, largeur, hauteur.
+     */
+    private static int[] rectangles(int[] pixels, int largeur, int minX, int minY, int maxX, int maxY,
+            int origineX, int origineY) {
+        int[] resultat = new int[64];
+        int n = 0;
+        // Indices dans le résultat des rectangles ouverts sur la ligne
+        // précédente et sur la ligne courante, de gauche à droite
+        int[] ouverts = new int[16];
+        int nbOuverts = 0;
+        int[] suivants = new int[16];
+
+        for (int y = minY; y <= maxY; y++) {
+            int ligne = y * largeur;
+            int nbSuivants = 0;
+            int j = 0;
+            int x = minX;
+            while (x <= maxX) {
+                if ((pixels[ligne + x] >>> 24) != 0) {
+                    x++;
+                    continue;
+                }
+                int debut = x;
+                while (x <= maxX && (pixels[ligne + x] >>> 24) == 0) {
+                    x++;
+                }
+                int rx = debut + origineX;
+                int rl = x - debut;
+
+                while (j < nbOuverts && resultat[ouverts[j]] < rx) {
+                    j++;
+                }
+                int indice;
+                if (j < nbOuverts && resultat[ouverts[j]] == rx && resultat[ouverts[j] + 2] == rl) {
+                    indice = ouverts[j++];
+                    resultat[indice + 3]++;
+                } else {
+                    if (n + 4 > resultat.length) {
+                        resultat = Arrays.copyOf(resultat, resultat.length * 2);
+                    }
+                    indice = n;
+                    resultat[n++] = rx;
+                    resultat[n++] = y + origineY;
+                    resultat[n++] = rl;
+                    resultat[n++] = 1;
+                }
+                if (nbSuivants == suivants.length) {
+                    suivants = Arrays.copyOf(suivants, suivants.length * 2);
+                }
+                suivants[nbSuivants++] = indice;
+            }
+
+            int[] echange = ouverts;
+            ouverts = suivants;
+            suivants = echange;
+            nbOuverts = nbSuivants;
+        }
+        return Arrays.copyOf(resultat, n);
+    }
+}
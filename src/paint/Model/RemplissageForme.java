@@ -0,0 +1,126 @@
+/**
+ * Classe représentant une zone remplie par le pot de peinture.
+ * La zone n'est pas gardée pixel par pixel mais comme une liste de rectangles
+ * pleins : les lignes voisines remplies sur la même largeur sont fusionnées en
+ * un seul rectangle, si bien qu'une zone rectangulaire, même de la taille d'un
+ * écran 4K, ne tient qu'en un rectangle.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.awt.*;
+
+public class RemplissageForme extends Forme {
+    private static final long serialVersionUID = 4127305931874502663L;
+
+    /**
+     * Rectangles de la zone, quatre cases chacun : x, y, largeur, hauteur. Ils
+     * sont rangés par ligne de départ croissante et ne se chevauchent pas.
+     */
+    private final int[] rectangles;
+
+    /**
+     * Constructeur de la classe RemplissageForme. Les coordonnées de départ et
+     * de fin de la forme sont les coins de la zone remplie.
+     *
+     * @param rectangles Rectangles de la zone (x, y, largeur, hauteur), au moins
+     *                   un ; le tableau est gardé tel quel.
+     * @param color      Couleur du remplissage.
+     */
+    public RemplissageForme(int[] rectangles, Color color) {
+        super(0, 0, 0, 0, color);
+        this.rectangles = rectangles;
+
+        int minX = Integer.MAX_VALUE;
+        int minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxY = Integer.MIN_VALUE;
+        for (int i = 0; i < rectangles.length; i += 4) {
+            minX = Math.min(minX, rectangles[i]);
+            minY = Math.min(minY, rectangles[i + 1]);
+            maxX = Math.max(maxX, rectangles[i] + rectangles[i + 2] - 1);
+            maxY = Math.max(maxY, rectangles[i + 1] + rectangles[i + 3] - 1);
+        }
+        this.startX = minX;
+        this.startY = minY;
+        this.endX = maxX;
+        this.endY = maxY;
+    }
+
+    /**
+     * Retourne le nombre de rectangles de la zone.
+     *
+     * @return Nombre de rectangles.
+     */
+    public int getNbRectangles() {
+        return rectangles.length / 4;
+    }
+
+    /**
+     * Retourne les rectangles de la zone, sans copie : le tableau ne doit pas
+     * être modifié.
+     *
+     * @return Les rectangles, quatre cases chacun : x, y, largeur, hauteur.
+     */
+    int[] getRectangles() {
+        return rectangles;
+    }
+
+    /**
+     * Dessine la zone remplie, rectangle par rectangle. Seuls les rectangles qui
+     * touchent la zone de découpage sont dessinés : une tuile ne reçoit que sa
+     * part d'une grande zone.
+     *
+     * @param g Objet Graphics utilisé pour dessiner la zone.
+     */
+    @Override
+    public void draw(Graphics g) {
+        g.setColor(color);
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            for (int i = 0; i < rectangles.length; i += 4) {
+                g.fillRect(rectangles[i], rectangles[i + 1], rectangles[i + 2], rectangles[i + 3]);
+            }
+            return;
+        }
+
+        int clipX2 = clip.x + clip.width;
+        int clipY2 = clip.y + clip.height;
+        for (int i = 0; i < rectangles.length; i += 4) {
+            int x = rectangles[i];
+            int y = rectangles[i + 1];
+            if (y >= clipY2) {
+                return; // Les rectangles suivants commencent plus bas
+            }
+            if (x < clipX2 && x + rectangles[i + 2] > clip.x && y + rectangles[i + 3] > clip.y) {
+                g.fillRect(x, y, rectangles[i + 2], rectangles[i + 3]);
+            }
+        }
+    }
+
+    /**
+     * Vérifie si un point donné est dans la zone remplie.
+     *
+     * @param p Point à vérifier.
+     * @return {@code true} si le point est dans l'un des rectangles, sinon
+     *         {@code false}.
+     */
+    @Override
+    public boolean contient(Point p) {
+        if (p.x < startX || p.x > endX || p.y < startY || p.y > endY) {
+            return false;
+        }
+        for (int i = 0; i < rectangles.length; i += 4) {
+            // Les rectangles sont rangés par ligne de départ
+            if (rectangles[i + 1] > p.y) {
+                return false;
+            }
+            if (p.x >= rectangles[i] && p.x < rectangles[i] + rectangles[i + 2]
+                    && p.y < rectangles[i + 1] + rectangles[i + 3]) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,162 @@
+/**
+ * Écriture bufferisée de données binaires compactes vers un canal NIO.
+ * Les entiers sont écrits en varint (7 bits par octet), les entiers signés
+ * passent d'abord par un codage zigzag pour que les petites valeurs négatives
+ * restent courtes.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+class SortieBinaire {
+
+    /**
+     * Taille du tampon d'écriture.
+     */
+    private static final int TAILLE_TAMPON = 1 << 16;
+
+    /**
+     * Canal de destination.
+     */
+    private final WritableByteChannel canal;
+
+    /**
+     * Tampon vidé dans le canal lorsqu'il est plein.
+     */
+    private final ByteBuffer tampon;
+
+    /**
+     * Nombre d'octets déjà transmis au canal.
+     */
+    private long ecrits;
+
+    /**
+     * Constructeur de la classe SortieBinaire.
+     *
+     * @param canal Canal de destination.
+     */
+    SortieBinaire(WritableByteChannel canal) {
+        this.canal = canal;
+        this.tampon = ByteBuffer.allocateDirect(TAILLE_TAMPON);
+    }
+
+    /**
+     * Écrit un octet.
+     *
+     * @param valeur Octet à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void octet(int valeur) throws IOException {
+        reserver(1);
+        tampon.put((byte) valeur);
+    }
+
+    /**
+     * Écrit un entier sur quatre octets.
+     *
+     * @param valeur Entier à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void entier(int valeur) throws IOException {
+        reserver(4);
+        tampon.putInt(valeur);
+    }
+
+    /**
+     * Écrit un entier positif en varint.
+     *
+     * @param valeur Entier à écrire, interprété comme non signé.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void varint(int valeur) throws IOException {
+        reserver(5);
+        while ((valeur & ~0x7F) != 0) {
+            tampon.put((byte) ((valeur & 0x7F) | 0x80));
+            valeur >>>= 7;
+        }
+        tampon.put((byte) valeur);
+    }
+
+    /**
+     * Écrit un entier signé en varint après codage zigzag.
+     *
+     * @param valeur Entier à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void signe(int valeur) throws IOException {
+        varint((valeur << 1) ^ (valeur >> 31));
+    }
+
+    /**
+     * Écrit une chaîne en UTF-8, précédée de sa longueur en octets.
+     *
+     * @param valeur Chaîne à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void chaine(String valeur) throws IOException {
+        byte[] octets = valeur.getBytes(StandardCharsets.UTF_8);
+        varint(octets.length);
+        for (byte b : octets) {
+            octet(b);
+        }
+    }
+
+    /**
+     * Écrit des octets bruts, sans leur nombre.
+     *
+     * @param octets   Tableau des octets.
+     * @param debut    Premier octet à écrire.
+     * @param longueur Nombre d'octets à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void octets(byte[] octets, int debut, int longueur) throws IOException {
+        while (longueur > 0) {
+            if (!tampon.hasRemaining()) {
+                vider();
+            }
+            int n = Math.min(longueur, tampon.remaining());
+            tampon.put(octets, debut, n);
+            debut += n;
+            longueur -= n;
+        }
+    }
+
+    /**
+     * Vide le tampon dans le canal.
+     *
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    void vider() throws IOException {
+        tampon.flip();
+        while (tampon.hasRemaining()) {
+            ecrits += canal.write(tampon);
+        }
+        tampon.clear();
+    }
+
+    /**
+     * Retourne le nombre d'octets écrits, tampon compris.
+     *
+     * @return Nombre d'octets écrits.
+     */
+    long position() {
+        return ecrits + tampon.position();
+    }
+
+    /**
+     * Vide le tampon s'il ne reste pas assez de place.
+     *
+     * @param octets Nombre d'octets à écrire.
+     * @throws IOException En cas d'erreur d'écriture.
+     */
+    private void reserver(int octets) throws IOException {
+        if (tampon.remaining() < octets) {
+            vider();
+        }
+    }
+}
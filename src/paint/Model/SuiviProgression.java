@@ -0,0 +1,39 @@
+/**
+ * Interface de suivi d'une opération longue (enregistrement, export...).
+ * L'opération signale son avancement et consulte régulièrement si elle doit
+ * s'interrompre.
+ *
+ * @author Baptiste Borie
+ */
+package paint.Model;
+
+public interface SuiviProgression {
+
+    /**
+     * Suivi qui ignore l'avancement et ne demande jamais d'interruption.
+     */
+    SuiviProgression AUCUN = new SuiviProgression() {
+        @Override
+        public void avancer(double fraction) {
+        }
+
+        @Override
+        public boolean estAnnule() {
+            return false;
+        }
+    };
+
+    /**
+     * Signale l'avancement de l'opération.
+     *
+     * @param fraction Fraction réalisée, entre 0 et 1.
+     */
+    void avancer(double fraction);
+
+    /**
+     * Indique si l'opération doit s'interrompre.
+     *
+     * @return {@code true} si l'opération a été annulée.
+     */
+    boolean estAnnule();
+}
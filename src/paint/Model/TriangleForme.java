@@ -11,6 +11,13 @@ package paint.Model;
 import java.awt.*;
 
 public class TriangleForme extends Forme {
+    private static final long serialVersionUID = -3612963172209495098L;
+
+    /**
+     * Sommets du triangle, calculés avec la géométrie de la forme : le coin
+     * inférieur gauche, le sommet, le coin inférieur droit.
+     */
+    private transient Polygon sommets;
 
     /**
      * Constructeur de la classe TriangleForme.
@@ -35,10 +42,9 @@ public class TriangleForme extends Forme {
     public void draw(Graphics g) {
         g.setColor(color);
         Graphics2D g2d = (Graphics2D) g;
-        g2d.setStroke(new BasicStroke(1));
-        int[] xPoints = { startX, (startX + endX) / 2, endX };
-        int[] yPoints = { endY, startY, endY };
-        g.drawPolygon(xPoints, yPoints, 3);
+        g2d.setStroke(TRAIT);
+        assurerGeometrie();
+        g.drawPolygon(sommets.xpoints, sommets.ypoints, 3);
     }
 
     /**
@@ -50,10 +56,28 @@ public class TriangleForme extends Forme {
      */
     @Override
     public boolean contient(Point p) {
-        Polygon triangle = new Polygon(
-                new int[] { startX, (startX + endX) / 2, endX },
-                new int[] { endY, startY, endY },
-                3);
-        return triangle.contains(p);
+        assurerGeometrie();
+        return sommets.contains(p.x, p.y);
+    }
+
+    /**
+     * Calcule les sommets du triangle et son rectangle englobant. Les sommets
+     * d'une forme redéfinie sont mis à jour sur place.
+     */
+    @Override
+    protected void calculerGeometrie() {
+        Polygon p = sommets;
+        if (p == null) {
+            p = new Polygon(new int[3], new int[3], 3);
+        }
+        p.xpoints[0] = startX;
+        p.ypoints[0] = endY;
+        p.xpoints[1] = (startX + endX) / 2;
+        p.ypoints[1] = startY;
+        p.xpoints[2] = endX;
+        p.ypoints[2] = endY;
+        p.invalidate();
+        sommets = p;
+        super.calculerGeometrie();
     }
 }
@@ -0,0 +1,239 @@
+/**
+ * Fenêtre de choix et de réglage d'un filtre d'image pour le calque actif.
+ *
+ * Pendant que les curseurs bougent, le filtre est appliqué à une copie réduite
+ * du calque, rendue une seule fois à l'ouverture : l'aperçu suit les curseurs
+ * sans toucher au dessin. Le filtre n'est appliqué au calque, en taille
+ * réelle, qu'à la validation.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import javax.swing.*;
+
+import paint.Model.Filtre;
+
+public class DialogueFiltres extends JDialog {
+
+    /**
+     * Plus grand côté de l'aperçu, en pixels.
+     */
+    private static final int TAILLE_APERCU = 480;
+
+    /**
+     * Marge autour du calque dans l'aperçu, assez large pour le plus grand
+     * flou.
+     */
+    private static final int MARGE_APERCU = 3 * Filtre.RAYON_MAX;
+
+    private final JComboBox<Filtre.Type> choix;
+    private final JLabel titre1;
+    private final JLabel titre2;
+    private final JSlider curseur1;
+    private final JSlider curseur2;
+
+    /**
+     * Échelle de l'aperçu par rapport au dessin.
+     */
+    private final double facteur;
+
+    /**
+     * Pixels du calque réduit, avant filtrage.
+     */
+    private final int[] source;
+
+    /**
+     * Calque réduit filtré, dont les pixels sont recopiés depuis la source à
+     * chaque réglage.
+     */
+    private final BufferedImage filtree;
+
+    /**
+     * Image affichée : le calque filtré sur fond blanc.
+     */
+    private final BufferedImage affichage;
+
+    private final JLabel apercu;
+
+    /**
+     * Indique que les curseurs sont reconfigurés, pour ignorer les événements
+     * qu'ils émettent alors.
+     */
+    private boolean miseAJour;
+
+    /**
+     * Constructeur de la fenêtre des filtres.
+     *
+     * @param parent Fenêtre parente.
+     * @param pan    Panneau de dessin dont le calque actif est filtré.
+     * @param zone   Zone du calque actif à montrer, marge comprise.
+     */
+    private DialogueFiltres(Window parent, PanneauDessin pan, Rectangle zone) {
+        super(parent, "Filtres", ModalityType.APPLICATION_MODAL);
+
+        facteur = Math.min(1, (double) TAILLE_APERCU / Math.max(zone.width, zone.height));
+        BufferedImage reduite = RenduImage.rendreZone(
+                pan.getCalques().get(pan.getCalqueActif()).getFormes(), zone, facteur);
+        source = ((DataBufferInt) reduite.getRaster().getDataBuffer()).getData();
+        filtree = new BufferedImage(reduite.getWidth(), reduite.getHeight(), BufferedImage.TYPE_INT_ARGB_PRE);
+        affichage = new BufferedImage(reduite.getWidth(), reduite.getHeight(), BufferedImage.TYPE_INT_RGB);
+        apercu = new JLabel(new ImageIcon(affichage));
+        apercu.setBorder(BorderFactory.createTitledBorder("Aperçu du calque actif"));
+
+        choix = new JComboBox<>(Filtre.Type.values());
+        titre1 = new JLabel();
+        titre2 = new JLabel();
+        curseur1 = new JSlider();
+        curseur2 = new JSlider();
+        choix.addActionListener(e -> configurer());
+        curseur1.addChangeListener(e -> {
+            if (!miseAJour) {
+                rafraichirApercu();
+            }
+        });
+        curseur2.addChangeListener(e -> {
+            if (!miseAJour) {
+                rafraichirApercu();
+            }
+        });
+
+        JPanel reglages = new JPanel(new GridLayout(5, 1));
+        reglages.add(choix);
+        reglages.add(titre1);
+        reglages.add(curseur1);
+        reglages.add(titre2);
+        reglages.add(curseur2);
+
+        JButton appliquer = new JButton("Appliquer");
+        appliquer.addActionListener(e -> {
+            dispose();
+            pan.appliquerFiltre(filtre());
+        });
+        JButton annuler = new JButton("Annuler");
+        annuler.addActionListener(e -> dispose());
+        JPanel boutons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        boutons.add(appliquer);
+        boutons.add(annuler);
+
+        JPanel contenu = new JPanel(new BorderLayout(8, 8));
+        contenu.setBorder(BorderFactory.createEmptyBorder(8, 8, 8, 8));
+        contenu.add(apercu, BorderLayout.CENTER);
+        contenu.add(reglages, BorderLayout.EAST);
+        contenu.add(boutons, BorderLayout.SOUTH);
+        setContentPane(contenu);
+        getRootPane().setDefaultButton(appliquer);
+        setDefaultCloseOperation(DISPOSE_ON_CLOSE);
+
+        configurer();
+        pack();
+        setLocationRelativeTo(parent);
+    }
+
+    /**
+     * Ouvre la fenêtre des filtres pour le calque actif d'un panneau de dessin.
+     * Rien ne s'ouvre si le calque est vide.
+     *
+     * @param parent Composant dont la fenêtre est la parente.
+     * @param pan    Panneau de dessin.
+     */
+    public static void ouvrir(Component parent, PanneauDessin pan) {
+        Rectangle zone = pan.getLimitesCalqueActif();
+        if (zone == null) {
+            JOptionPane.showMessageDialog(parent, "Le calque actif est vide.", "Filtres",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        zone.grow(MARGE_APERCU, MARGE_APERCU);
+        new DialogueFiltres(SwingUtilities.getWindowAncestor(parent), pan, zone).setVisible(true);
+    }
+
+    /**
+     * Adapte les curseurs au filtre choisi, puis l'aperçu.
+     */
+    private void configurer() {
+        miseAJour = true;
+        try {
+            switch ((Filtre.Type) choix.getSelectedItem()) {
+                case FLOU:
+                    regler(titre1, curseur1, "Rayon (px)", 0, Filtre.RAYON_MAX, 3);
+                    regler(titre2, curseur2, null, 0, 0, 0);
+                    break;
+                case NETTETE:
+                    regler(titre1, curseur1, "Intensité (%)", 0, 300, 100);
+                    regler(titre2, curseur2, null, 0, 0, 0);
+                    break;
+                case LUMINOSITE_CONTRASTE:
+                    regler(titre1, curseur1, "Luminosité", -100, 100, 0);
+                    regler(titre2, curseur2, "Contraste", -100, 100, 0);
+                    break;
+                case NIVEAUX_DE_GRIS:
+                    regler(titre1, curseur1, null, 0, 0, 0);
+                    regler(titre2, curseur2, null, 0, 0, 0);
+                    break;
+            }
+        } finally {
+            miseAJour = false;
+        }
+        rafraichirApercu();
+    }
+
+    /**
+     * Configure un curseur et son titre, ou les masque.
+     *
+     * @param titre   Titre du curseur.
+     * @param curseur Le curseur.
+     * @param texte   Texte du titre, ou {@code null} pour masquer le curseur.
+     * @param min     Valeur minimale.
+     * @param max     Valeur maximale.
+     * @param valeur  Valeur initiale.
+     */
+    private static void regler(JLabel titre, JSlider curseur, String texte, int min, int max, int valeur) {
+        titre.setVisible(texte != null);
+        curseur.setVisible(texte != null);
+        titre.setText(texte);
+        curseur.setModel(new DefaultBoundedRangeModel(valeur, 0, min, max));
+    }
+
+    /**
+     * Retourne le filtre réglé par les commandes.
+     *
+     * @return Le filtre.
+     */
+    private Filtre filtre() {
+        switch ((Filtre.Type) choix.getSelectedItem()) {
+            case FLOU:
+                return Filtre.flou(curseur1.getValue());
+            case NETTETE:
+                return Filtre.nettete(curseur1.getValue());
+            case LUMINOSITE_CONTRASTE:
+                return Filtre.luminositeContraste(curseur1.getValue(), curseur2.getValue());
+            default:
+                return Filtre.niveauxDeGris();
+        }
+    }
+
+    /**
+     * Filtre une copie du calque réduit et l'affiche sur fond blanc.
+     */
+    private void rafraichirApercu() {
+        int largeur = filtree.getWidth();
+        int hauteur = filtree.getHeight();
+        int[] pixels = ((DataBufferInt) filtree.getRaster().getDataBuffer()).getData();
+        System.arraycopy(source, 0, pixels, 0, source.length);
+        filtre().reduit(facteur).appliquer(pixels, largeur, hauteur);
+
+        Graphics2D g2d = affichage.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, largeur, hauteur);
+            g2d.drawImage(filtree, 0, 0, null);
+        } finally {
+            g2d.dispose();
+        }
+        apercu.repaint();
+    }
+}
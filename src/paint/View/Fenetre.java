@@ -8,6 +8,9 @@
 package paint.View;
 
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.nio.file.Paths;
 import javax.swing.*;
 
 public class Fenetre {
@@ -37,5 +40,20 @@ public class Fenetre {
         fen.setVisible(true);
         fen.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         fen.setSize(longueur, hauteur);
+
+        // Sauvegarde automatique, et récupération après un arrêt brutal
+        String dossierJournal = System.getProperty("paint.journal",
+                Paths.get(System.getProperty("user.home"), ".paint", "journal").toString());
+        if (!dossierJournal.equals("off")) {
+            pan.getPanneauDessin().activerJournal(Paths.get(dossierJournal));
+            // Seule la fermeture de la fenêtre par l'utilisateur supprime le
+            // journal, avant la sortie de l'application
+            fen.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    pan.getPanneauDessin().fermerJournal();
+                }
+            });
+        }
     }
 }
@@ -0,0 +1,602 @@
+/**
+ * Image de fond du panneau de dessin, affichée sous les calques pour servir de
+ * modèle à décalquer.
+ *
+ * L'image n'est jamais décodée en entier à sa pleine résolution : un scan de
+ * 20000 x 20000 pixels occuperait 1,6 Go une fois décodé. Seul un aperçu
+ * d'au plus {@link #TAILLE_APERCU} pixels de côté est gardé en permanence ;
+ * pour le reste, l'image est découpée en tuiles à plusieurs niveaux de
+ * sous-échantillonnage (1, 2, 4... pixels de l'image par pixel de tuile), et
+ * seules les tuiles visibles au niveau adapté au zoom sont décodées, grâce au
+ * sous-échantillonnage et au décodage par région de {@link ImageReadParam}.
+ *
+ * Le décodage se fait sur un fil d'exécution propre à l'image, bande de tuiles
+ * par bande de tuiles : les tuiles apparaissent au fur et à mesure, l'aperçu
+ * agrandi tenant lieu de celles qui manquent. Une demande devenue inutile,
+ * parce que la vue a changé, est interrompue. Les tuiles décodées sont gardées
+ * dans un cache borné en octets, qui oublie d'abord les moins récemment
+ * affichées.
+ *
+ * Le cache et les demandes ne sont manipulés que depuis le fil de Swing.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.SwingUtilities;
+
+public class ImageFond {
+
+    /**
+     * Taille en pixels du côté d'une tuile décodée.
+     */
+    public static final int TAILLE_TUILE = 512;
+
+    /**
+     * Plus grand côté en pixels de l'aperçu de l'image.
+     */
+    public static final int TAILLE_APERCU = 1024;
+
+    /**
+     * Taille minimale du cache des tuiles, en octets : de quoi couvrir un écran
+     * entier, pour qu'une tuile décodée ne chasse pas une autre tuile visible.
+     */
+    private static final long OCTETS_MIN = 64L << 20;
+
+    /**
+     * Fichier de l'image.
+     */
+    private final File fichier;
+
+    /**
+     * Largeur et hauteur de l'image, en pixels.
+     */
+    private final int largeur, hauteur;
+
+    /**
+     * Lecteur de l'image et son flux, utilisés uniquement sur le fil de
+     * décodage une fois l'image ouverte.
+     */
+    private final ImageInputStream flux;
+    private final ImageReader lecteur;
+
+    /**
+     * Fil de décodage des tuiles.
+     */
+    private final ExecutorService decodeur;
+
+    /**
+     * Sous-échantillonnage de l'aperçu : nombre de pixels de l'image par pixel
+     * de l'aperçu, sur chaque axe.
+     */
+    private final int pasApercu;
+
+    /**
+     * Aperçu de l'image entière.
+     */
+    private BufferedImage apercu;
+
+    /**
+     * Tuiles décodées, de la moins récemment affichée à la plus récente.
+     */
+    private final LinkedHashMap<Long, BufferedImage> tuiles = new LinkedHashMap<>(64, 0.75f, true);
+
+    /**
+     * Taille des tuiles décodées et taille maximale du cache, en octets.
+     */
+    private long octets;
+    private final long octetsMax;
+
+    /**
+     * Demande de décodage en cours, ou {@code null}. Lue par le fil de décodage
+     * pour abandonner les demandes remplacées.
+     */
+    private volatile Demande demande;
+
+    /**
+     * Demande dont les tuiles sont en cours de lecture, ou {@code null}.
+     * Utilisée uniquement sur le fil de décodage.
+     */
+    private Demande lue;
+
+    /**
+     * Action appelée avec la zone du dessin couverte par des tuiles décodées.
+     */
+    private final Consumer<Rectangle> rafraichir;
+
+    /**
+     * Indique que l'image a été fermée.
+     */
+    private boolean fermee;
+
+    /**
+     * Demande de décodage des tuiles d'un rectangle, à un niveau donné.
+     */
+    private static final class Demande {
+        private final int niveau;
+        private final int tx1, ty1, tx2, ty2;
+
+        /**
+         * Rangée de tuiles en cours de lecture : les rangées précédentes ont
+         * déjà été transmises. Écrite par le fil de décodage.
+         */
+        private volatile int rangee;
+
+        private Demande(int niveau, int tx1, int ty1, int tx2, int ty2) {
+            this.niveau = niveau;
+            this.tx1 = tx1;
+            this.ty1 = ty1;
+            this.tx2 = tx2;
+            this.ty2 = ty2;
+            this.rangee = ty1;
+        }
+
+        /**
+         * Indique si les tuiles d'un rectangle font partie de celles que la
+         * demande doit encore lire.
+         */
+        private boolean couvre(int niveau, int tx1, int ty1, int tx2, int ty2) {
+            return this.niveau == niveau && this.tx1 <= tx1 && tx2 <= this.tx2 && rangee <= ty1
+                    && ty2 <= this.ty2;
+        }
+    }
+
+    /**
+     * Interrompt la lecture en cours dès que sa demande est remplacée. Le
+     * lecteur signale son avancement sur le fil de décodage, le seul depuis
+     * lequel tous les lecteurs acceptent d'être interrompus.
+     */
+    private final class Interruption implements IIOReadProgressListener {
+        @Override
+        public void imageProgress(ImageReader source, float pourcentage) {
+            if (lue != null && demande != lue) {
+                source.abort();
+            }
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+    }
+
+    /**
+     * Ouvre une image et lit ses dimensions, sans décoder ses pixels. L'aperçu
+     * doit ensuite être décodé par {@link #decoderApercu()}.
+     *
+     * @param fichier    Fichier PNG, JPEG ou d'un autre format lu par ImageIO.
+     * @param octetsMax  Taille maximale du cache des tuiles, en octets.
+     * @param rafraichir Action appelée, sur le fil de Swing, avec la zone du
+     *                   dessin couverte par de nouvelles tuiles.
+     * @throws IOException En cas d'erreur de lecture ou de format non reconnu.
+     */
+    public ImageFond(File fichier, long octetsMax, Consumer<Rectangle> rafraichir) throws IOException {
+        this.fichier = fichier;
+        this.octetsMax = Math.max(OCTETS_MIN, octetsMax);
+        this.rafraichir = rafraichir;
+
+        flux = ImageIO.createImageInputStream(fichier);
+        if (flux == null) {
+            throw new IOException("Impossible de lire " + fichier.getName());
+        }
+        Iterator<ImageReader> lecteurs = ImageIO.getImageReaders(flux);
+        if (!lecteurs.hasNext()) {
+            flux.close();
+            throw new IOException("Format d'image non reconnu : " + fichier.getName());
+        }
+        lecteur = lecteurs.next();
+        try {
+            lecteur.setInput(flux, false, true);
+            lecteur.addIIOReadProgressListener(new Interruption());
+            largeur = lecteur.getWidth(0);
+            hauteur = lecteur.getHeight(0);
+        } catch (IOException | RuntimeException e) {
+            lecteur.dispose();
+            flux.close();
+            throw e;
+        }
+        pasApercu = Math.max(1, (Math.max(largeur, hauteur) + TAILLE_APERCU - 1) / TAILLE_APERCU);
+
+        decodeur = Executors.newSingleThreadExecutor(r -> {
+            Thread fil = new Thread(r, "paint-fond");
+            fil.setDaemon(true);
+            return fil;
+        });
+    }
+
+    /**
+     * Décode l'aperçu de l'image entière, sous-échantillonné pour tenir dans
+     * {@link #TAILLE_APERCU} pixels. À appeler une fois, hors du fil de Swing,
+     * avant d'afficher l'image.
+     *
+     * @throws IOException En cas d'erreur de lecture.
+     */
+    public void decoderApercu() throws IOException {
+        ImageReadParam param = lecteur.getDefaultReadParam();
+        param.setSourceSubsampling(pasApercu, pasApercu, 0, 0);
+        BufferedImage image = lecteur.read(0, param);
+        apercu = convertir(image, 0, 0, image.getWidth(), image.getHeight());
+    }
+
+    /**
+     * Retourne le fichier de l'image.
+     *
+     * @return Le fichier.
+     */
+    public File getFichier() {
+        return fichier;
+    }
+
+    /**
+     * Retourne la largeur de l'image.
+     *
+     * @return Largeur en pixels.
+     */
+    public int getLargeur() {
+        return largeur;
+    }
+
+    /**
+     * Retourne la hauteur de l'image.
+     *
+     * @return Hauteur en pixels.
+     */
+    public int getHauteur() {
+        return hauteur;
+    }
+
+    /**
+     * Peint l'image, placée à l'origine du dessin à raison d'un pixel de
+     * l'image par pixel du dessin, et demande le décodage des tuiles qui
+     * manquent à la vue.
+     *
+     * @param g         Contexte graphique du panneau, en pixels de l'écran.
+     * @param clip      Zone à peindre, en pixels de l'écran.
+     * @param vue       Zone visible du panneau, dont les tuiles sont demandées.
+     * @param zoom      Nombre de pixels de l'écran par pixel du dessin.
+     * @param decalageX Décalage horizontal de la vue, en pixels de l'écran.
+     * @param decalageY Décalage vertical de la vue, en pixels de l'écran.
+     */
+    public void peindre(Graphics g, Rectangle clip, Rectangle vue, double zoom, int decalageX, int decalageY) {
+        if (fermee) {
+            return;
+        }
+        Graphics2D g2 = (Graphics2D) g.create();
+        try {
+            peindreTuiles(g2, clip, zoom, decalageX, decalageY);
+        } finally {
+            g2.dispose();
+        }
+        demander(niveau(zoom), vue, zoom, decalageX, decalageY);
+    }
+
+    /**
+     * Retourne le niveau de sous-échantillonnage adapté à un zoom : le plus
+     * grossier qui garde au moins un pixel de tuile par pixel de l'écran.
+     *
+     * @param zoom Nombre de pixels de l'écran par pixel du dessin.
+     * @return Le niveau : {@code 1 << niveau} pixels de l'image par pixel de
+     *         tuile.
+     */
+    private static int niveau(double zoom) {
+        int niveau = 0;
+        while ((2 << niveau) * zoom <= 1) {
+            niveau++;
+        }
+        return niveau;
+    }
+
+    /**
+     * Peint les tuiles d'une zone de l'écran, sur l'aperçu agrandi si certaines
+     * manquent.
+     */
+    private void peindreTuiles(Graphics2D g, Rectangle clip, double zoom, int decalageX, int decalageY) {
+        // Au-delà du sous-échantillonnage de l'aperçu, l'aperçu suffit
+        int niveau = niveau(zoom);
+        int pas = 1 << niveau;
+        if (pas >= pasApercu) {
+            dessiner(g, apercu, 0, 0, largeur, hauteur, zoom, decalageX, decalageY);
+            return;
+        }
+
+        int cote = TAILLE_TUILE * pas;
+        Rectangle zone = tuilesVisibles(clip, zoom, decalageX, decalageY, cote);
+        if (zone.isEmpty()) {
+            return;
+        }
+        Map<Long, BufferedImage> visibles = new HashMap<>();
+        boolean manquantes = false;
+        for (int ty = zone.y; ty < zone.y + zone.height; ty++) {
+            for (int tx = zone.x; tx < zone.x + zone.width; tx++) {
+                long cle = cle(niveau, tx, ty);
+                BufferedImage tuile = tuiles.get(cle);
+                if (tuile == null) {
+                    manquantes = true;
+                } else {
+                    visibles.put(cle, tuile);
+                }
+            }
+        }
+        if (manquantes) {
+            dessiner(g, apercu, 0, 0, largeur, hauteur, zoom, decalageX, decalageY);
+        }
+        for (int ty = zone.y; ty < zone.y + zone.height; ty++) {
+            for (int tx = zone.x; tx < zone.x + zone.width; tx++) {
+                BufferedImage tuile = visibles.get(cle(niveau, tx, ty));
+                if (tuile != null) {
+                    int x = tx * cote;
+                    int y = ty * cote;
+                    dessiner(g, tuile, x, y, Math.min(largeur, x + cote), Math.min(hauteur, y + cote), zoom,
+                            decalageX, decalageY);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calcule les tuiles qui couvrent une zone de l'écran, dans les limites de
+     * l'image.
+     *
+     * @param ecran     Zone de l'écran.
+     * @param zoom      Nombre de pixels de l'écran par pixel du dessin.
+     * @param decalageX Décalage horizontal de la vue.
+     * @param decalageY Décalage vertical de la vue.
+     * @param cote      Côté d'une tuile, en pixels de l'image.
+     * @return Zone en indices de tuiles, éventuellement vide.
+     */
+    private Rectangle tuilesVisibles(Rectangle ecran, double zoom, int decalageX, int decalageY, int cote) {
+        int x1 = Math.max(0, (int) Math.floor((ecran.x + decalageX) / zoom));
+        int y1 = Math.max(0, (int) Math.floor((ecran.y + decalageY) / zoom));
+        int x2 = Math.min(largeur, (int) Math.ceil((ecran.x + ecran.width + decalageX) / zoom));
+        int y2 = Math.min(hauteur, (int) Math.ceil((ecran.y + ecran.height + decalageY) / zoom));
+        if (x1 >= x2 || y1 >= y2) {
+            return new Rectangle();
+        }
+        int tx1 = x1 / cote;
+        int ty1 = y1 / cote;
+        return new Rectangle(tx1, ty1, (x2 - 1) / cote - tx1 + 1, (y2 - 1) / cote - ty1 + 1);
+    }
+
+    /**
+     * Dessine une image sur un rectangle du dessin. Les bords sont arrondis au
+     * pixel de l'écran de la même façon pour toutes les tuiles, qui se
+     * raccordent sans jour entre elles.
+     */
+    private static void dessiner(Graphics2D g, BufferedImage image, int x1, int y1, int x2, int y2, double zoom,
+            int decalageX, int decalageY) {
+        int ex1 = (int) Math.round(x1 * zoom) - decalageX;
+        int ey1 = (int) Math.round(y1 * zoom) - decalageY;
+        int ex2 = (int) Math.round(x2 * zoom) - decalageX;
+        int ey2 = (int) Math.round(y2 * zoom) - decalageY;
+        // Réduite, l'image est lissée ; agrandie, ses pixels restent nets
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, ex2 - ex1 < image.getWidth()
+                ? RenderingHints.VALUE_INTERPOLATION_BILINEAR
+                : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+        g.drawImage(image, ex1, ey1, ex2 - ex1, ey2 - ey1, null);
+    }
+
+    /**
+     * Demande le décodage des tuiles d'une zone de l'écran qui ne sont pas
+     * dans le cache. La demande en cours est gardée tant que les tuiles
+     * manquantes font partie de celles qu'elle doit encore lire : chaque bande
+     * reçue réduit les tuiles manquantes sans la relancer. Sinon, la nouvelle
+     * demande interrompt celle en cours.
+     *
+     * @param niveau    Niveau de sous-échantillonnage.
+     * @param vue       Zone de l'écran.
+     * @param zoom      Nombre de pixels de l'écran par pixel du dessin.
+     * @param decalageX Décalage horizontal de la vue.
+     * @param decalageY Décalage vertical de la vue.
+     */
+    private void demander(int niveau, Rectangle vue, double zoom, int decalageX, int decalageY) {
+        if (1 << niveau >= pasApercu) {
+            return;
+        }
+        Rectangle zone = tuilesVisibles(vue, zoom, decalageX, decalageY, TAILLE_TUILE << niveau);
+        int tx1 = Integer.MAX_VALUE, ty1 = Integer.MAX_VALUE, tx2 = -1, ty2 = -1;
+        for (int ty = zone.y; ty < zone.y + zone.height; ty++) {
+            for (int tx = zone.x; tx < zone.x + zone.width; tx++) {
+                if (!tuiles.containsKey(cle(niveau, tx, ty))) {
+                    tx1 = Math.min(tx1, tx);
+                    ty1 = Math.min(ty1, ty);
+                    tx2 = Math.max(tx2, tx);
+                    ty2 = Math.max(ty2, ty);
+                }
+            }
+        }
+        if (tx2 < 0) {
+            return;
+        }
+        Demande enCours = demande;
+        if (enCours != null && enCours.couvre(niveau, tx1, ty1, tx2, ty2)) {
+            return;
+        }
+        Demande nouvelle = new Demande(niveau, tx1, ty1, tx2, ty2);
+        demande = nouvelle;
+        decodeur.execute(() -> decoder(nouvelle));
+    }
+
+    /**
+     * Décode les tuiles d'une demande, une bande de tuiles à la fois, et les
+     * transmet au fil de Swing au fur et à mesure. S'exécute sur le fil de
+     * décodage.
+     *
+     * @param d La demande.
+     */
+    private void decoder(Demande d) {
+        int pas = 1 << d.niveau;
+        int cote = TAILLE_TUILE * pas;
+        int x1 = d.tx1 * cote;
+        int x2 = Math.min(largeur, (d.tx2 + 1) * cote);
+        lue = d;
+        try {
+            for (int ty = d.ty1; ty <= d.ty2 && demande == d; ty++) {
+                d.rangee = ty;
+                int y1 = ty * cote;
+                int y2 = Math.min(hauteur, y1 + cote);
+                ImageReadParam param = lecteur.getDefaultReadParam();
+                param.setSourceRegion(new Rectangle(x1, y1, x2 - x1, y2 - y1));
+                param.setSourceSubsampling(pas, pas, 0, 0);
+                BufferedImage bande = lecteur.read(0, param);
+                // Une lecture interrompue rend une image incomplète
+                if (demande != d) {
+                    return;
+                }
+                Map<Long, BufferedImage> lot = new HashMap<>();
+                for (int tx = d.tx1; tx <= d.tx2; tx++) {
+                    int x = (tx - d.tx1) * TAILLE_TUILE;
+                    int w = Math.min(TAILLE_TUILE, bande.getWidth() - x);
+                    lot.put(cle(d.niveau, tx, ty), convertir(bande, x, 0, w, bande.getHeight()));
+                }
+                boolean derniere = ty == d.ty2;
+                Rectangle zone = new Rectangle(x1, y1, x2 - x1, y2 - y1);
+                SwingUtilities.invokeLater(() -> recevoir(d, lot, zone, derniere));
+            }
+        } catch (IOException | RuntimeException e) {
+            if (demande == d) {
+                e.printStackTrace();
+            }
+        } finally {
+            lue = null;
+        }
+    }
+
+    /**
+     * Ajoute au cache des tuiles décodées, en oubliant les moins récemment
+     * affichées si le cache est plein, puis fait repeindre leur zone.
+     * S'exécute sur le fil de Swing.
+     *
+     * @param d        Demande à laquelle les tuiles répondent.
+     * @param lot      Tuiles décodées, par clé.
+     * @param zone     Zone du dessin couverte par les tuiles.
+     * @param derniere Indique que ce sont les dernières tuiles de la demande.
+     */
+    private void recevoir(Demande d, Map<Long, BufferedImage> lot, Rectangle zone, boolean derniere) {
+        if (fermee) {
+            return;
+        }
+        for (Map.Entry<Long, BufferedImage> entree : lot.entrySet()) {
+            BufferedImage ancienne = tuiles.put(entree.getKey(), entree.getValue());
+            if (ancienne != null) {
+                octets -= taille(ancienne);
+            }
+            octets += taille(entree.getValue());
+        }
+        Iterator<BufferedImage> anciennes = tuiles.values().iterator();
+        while (octets > octetsMax && anciennes.hasNext()) {
+            octets -= taille(anciennes.next());
+            anciennes.remove();
+        }
+        if (derniere && demande == d) {
+            demande = null;
+        }
+        rafraichir.accept(zone);
+    }
+
+    /**
+     * Ferme l'image : la demande en cours est interrompue, le cache vidé, et le
+     * lecteur fermé sur le fil de décodage.
+     */
+    public void fermer() {
+        if (fermee) {
+            return;
+        }
+        fermee = true;
+        demande = null;
+        tuiles.clear();
+        octets = 0;
+        apercu = null;
+        decodeur.execute(() -> {
+            lecteur.dispose();
+            try {
+                flux.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+        decodeur.shutdown();
+    }
+
+    /**
+     * Recopie une partie d'une image décodée dans une image de pixels entiers,
+     * le format que Java2D recopie le plus vite, avec alpha prémultiplié si
+     * l'image est transparente.
+     *
+     * @param source Image décodée.
+     * @param x      Abscisse de la partie recopiée.
+     * @param y      Ordonnée de la partie recopiée.
+     * @param w      Largeur de la partie recopiée.
+     * @param h      Hauteur de la partie recopiée.
+     * @return La copie.
+     */
+    private static BufferedImage convertir(BufferedImage source, int x, int y, int w, int h) {
+        int type = source.getColorModel().hasAlpha() ? BufferedImage.TYPE_INT_ARGB_PRE : BufferedImage.TYPE_INT_RGB;
+        BufferedImage copie = new BufferedImage(w, h, type);
+        Graphics2D g2d = copie.createGraphics();
+        try {
+            g2d.setComposite(AlphaComposite.Src);
+            g2d.drawImage(source, -x, -y, null);
+        } finally {
+            g2d.dispose();
+        }
+        return copie;
+    }
+
+    /**
+     * Retourne la taille en octets d'une tuile.
+     */
+    private static long taille(BufferedImage tuile) {
+        return 4L * tuile.getWidth() * tuile.getHeight();
+    }
+
+    /**
+     * Calcule la clé d'une tuile à partir de son niveau et de ses indices.
+     */
+    private static long cle(int niveau, int tx, int ty) {
+        return ((long) niveau << 56) | ((long) ty << 28) | tx;
+    }
+}
@@ -1,7 +1,8 @@
 /**
  * Classe représentant le panneau principal de l'application.
- * Ce panneau utilise un layout `BorderLayout` et contient deux sous-panneaux :
- * un panneau central pour le dessin et un panneau supérieur pour les outils.
+ * Ce panneau utilise un layout `BorderLayout` et contient trois sous-panneaux :
+ * un panneau central pour le dessin, un panneau supérieur pour les outils et
+ * un panneau latéral pour les calques.
  *
  * @author Baptiste Borie
  */
@@ -12,11 +13,17 @@ import javax.swing.*;
 
 public class MainPannel extends JPanel {
 
+    /**
+     * Panneau de dessin de l'application.
+     */
+    private final PanneauDessin pan;
+
     /**
      * Constructeur par défaut de `MainPannel`.
-     * Configure un layout `BorderLayout` et ajoute deux sous-panneaux :
+     * Configure un layout `BorderLayout` et ajoute trois sous-panneaux :
      * - `PanneauDessin` au centre, pour les opérations de dessin.
      * - `PanneauOutils` en haut, pour les outils liés au dessin.
+     * - `PanneauCalques` à droite, pour la gestion des calques.
      */
     public MainPannel() {
         super();
@@ -25,11 +32,24 @@ public class MainPannel extends JPanel {
         this.setLayout(new BorderLayout());
 
         // Panneau de dessin ajouté au centre
-        PanneauDessin pan = new PanneauDessin();
+        pan = new PanneauDessin();
         this.add(pan, BorderLayout.CENTER);
 
         // Panneau d'outils ajouté en haut
         PanneauOutils outils = new PanneauOutils(pan);
         this.add(outils, BorderLayout.NORTH);
+
+        // Panneau des calques ajouté à droite
+        PanneauCalques calques = new PanneauCalques(pan);
+        this.add(calques, BorderLayout.EAST);
+    }
+
+    /**
+     * Retourne le panneau de dessin.
+     *
+     * @return Le panneau de dessin.
+     */
+    public PanneauDessin getPanneauDessin() {
+        return pan;
     }
 }
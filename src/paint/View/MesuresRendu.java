@@ -0,0 +1,365 @@
+/**
+ * Instrumentation du panneau de dessin : durée de chaque peinture, nombre de
+ * formes rastérisées, latence entre un événement souris et la peinture qui
+ * l'affiche, et débit de points saisis pendant un tracé.
+ *
+ * Les mesures sont publiées sous forme d'événements JFR (catégorie "Paint"),
+ * visibles dans JDK Mission Control après un enregistrement lancé par exemple
+ * avec {@code -XX:StartFlightRecording}. Elles peuvent aussi être affichées
+ * en surimpression sur le dessin, avec les percentiles des dernières peintures.
+ * Quand aucun enregistrement JFR n'est actif et que la surimpression est
+ * masquée, aucune horloge n'est lue et aucune mesure n'est conservée.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.util.Arrays;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+public class MesuresRendu {
+
+    /**
+     * Nombre de peintures et de latences conservées pour les percentiles.
+     */
+    private static final int TAILLE_HISTORIQUE = 240;
+
+    /**
+     * Événement JFR émis à chaque peinture du panneau. Sa durée est celle de
+     * {@code paintComponent}.
+     */
+    @Name("paint.Peinture")
+    @Label("Peinture du panneau")
+    @Category("Paint")
+    @StackTrace(false)
+    @Description("Exécution de paintComponent sur le panneau de dessin")
+    static final class Peinture extends Event {
+        @Label("Formes rastérisées")
+        int formesDessinees;
+
+        @Label("Tuiles rastérisées")
+        int tuilesRasterisees;
+
+        @Label("Surface peinte")
+        @Description("Surface de la zone à rafraîchir, en pixels")
+        long surface;
+    }
+
+    /**
+     * Événement JFR émis à la première peinture qui suit un événement souris.
+     */
+    @Name("paint.LatenceSaisie")
+    @Label("Latence de saisie")
+    @Category("Paint")
+    @StackTrace(false)
+    @Description("Délai entre un événement souris et la fin de la peinture qui l'affiche")
+    static final class LatenceSaisie extends Event {
+        @Label("Latence")
+        @Timespan(Timespan.NANOSECONDS)
+        long latence;
+
+        @Label("Attente dans la file d'événements")
+        @Description("Délai entre la création de l'événement souris et son traitement, à la milliseconde près")
+        @Timespan(Timespan.MILLISECONDS)
+        long attente;
+    }
+
+    /**
+     * Événement JFR émis à la fin d'un tracé à main levée. Sa durée est celle du
+     * tracé, de l'appui au relâchement.
+     */
+    @Name("paint.Trace")
+    @Label("Tracé à main levée")
+    @Category("Paint")
+    @StackTrace(false)
+    static final class Trace extends Event {
+        @Label("Points saisis")
+        int pointsSaisis;
+
+        @Label("Points conservés")
+        @Description("Points restant après simplification du tracé")
+        int pointsConserves;
+
+        @Label("Points par seconde")
+        double pointsParSeconde;
+    }
+
+    private static final EventType TYPE_PEINTURE = EventType.getEventType(Peinture.class);
+    private static final EventType TYPE_LATENCE = EventType.getEventType(LatenceSaisie.class);
+    private static final EventType TYPE_TRACE = EventType.getEventType(Trace.class);
+
+    /**
+     * Indique si la surimpression est affichée.
+     */
+    private boolean hudVisible;
+
+    /**
+     * Durées des dernières peintures et latences des dernières saisies, en
+     * nanosecondes, dans des tampons circulaires.
+     */
+    private final long[] durees = new long[TAILLE_HISTORIQUE];
+    private final long[] latences = new long[TAILLE_HISTORIQUE];
+    private long nbDurees, nbLatences;
+
+    /**
+     * Événement JFR de la peinture en cours, ou {@code null}.
+     */
+    private Peinture peinture;
+
+    /**
+     * Événement JFR du tracé en cours, ou {@code null}.
+     */
+    private Trace trace;
+
+    /**
+     * Formes rastérisées lors de la dernière peinture.
+     */
+    private int dernieresFormes;
+
+    /**
+     * Instant du plus ancien événement souris pas encore affiché, ou {@code 0}.
+     */
+    private long debutSaisie;
+
+    /**
+     * Attente dans la file du plus ancien événement souris pas encore affiché.
+     */
+    private long attenteSaisie;
+
+    /**
+     * Instant de début et nombre de points saisis du tracé en cours.
+     */
+    private long debutTrace;
+    private int pointsTrace;
+
+    /**
+     * Débit du tracé en cours ou du dernier tracé, en points par seconde.
+     */
+    private double pointsParSeconde;
+
+    /**
+     * Indique si des mesures doivent être prises : surimpression affichée ou
+     * enregistrement JFR en cours.
+     *
+     * @return {@code true} si les mesures sont utiles.
+     */
+    public boolean estActif() {
+        return hudVisible || TYPE_PEINTURE.isEnabled() || TYPE_LATENCE.isEnabled() || TYPE_TRACE.isEnabled();
+    }
+
+    /**
+     * Affiche ou masque la surimpression.
+     *
+     * @param visible {@code true} pour l'afficher.
+     */
+    public void setHudVisible(boolean visible) {
+        this.hudVisible = visible;
+        if (!visible) {
+            nbDurees = 0;
+            nbLatences = 0;
+        }
+    }
+
+    /**
+     * Indique si la surimpression est affichée.
+     *
+     * @return {@code true} si elle est affichée.
+     */
+    public boolean isHudVisible() {
+        return hudVisible;
+    }
+
+    /**
+     * Note l'arrivée d'un événement souris. Seul le plus ancien événement pas
+     * encore affiché est retenu, pour mesurer la latence la plus longue.
+     *
+     * @param quand Instant de création de l'événement, en millisecondes
+     *              ({@code MouseEvent.getWhen()}).
+     */
+    public void saisie(long quand) {
+        if (debutSaisie == 0 && estActif()) {
+            debutSaisie = System.nanoTime();
+            attenteSaisie = Math.max(0, System.currentTimeMillis() - quand);
+        }
+    }
+
+    /**
+     * Note le début d'un tracé à main levée.
+     */
+    public void debutTrace() {
+        pointsTrace = 0;
+        debutTrace = estActif() ? System.nanoTime() : 0;
+        if (TYPE_TRACE.isEnabled()) {
+            trace = new Trace();
+            trace.begin();
+        }
+    }
+
+    /**
+     * Note un point saisi pendant le tracé en cours.
+     */
+    public void pointTrace() {
+        pointsTrace++;
+    }
+
+    /**
+     * Note la fin d'un tracé à main levée.
+     *
+     * @param pointsConserves Nombre de points conservés après simplification.
+     */
+    public void finTrace(int pointsConserves) {
+        if (debutTrace == 0) {
+            return;
+        }
+        long duree = System.nanoTime() - debutTrace;
+        pointsParSeconde = duree > 0 ? pointsTrace * 1e9 / duree : 0;
+        debutTrace = 0;
+
+        if (trace != null) {
+            trace.pointsSaisis = pointsTrace;
+            trace.pointsConserves = pointsConserves;
+            trace.pointsParSeconde = pointsParSeconde;
+            trace.commit();
+            trace = null;
+        }
+    }
+
+    /**
+     * Retourne l'instant de début d'une peinture à mesurer.
+     *
+     * @return L'instant en nanosecondes, ou {@code 0} si les mesures sont
+     *         inactives.
+     */
+    public long debutPeinture() {
+        if (!estActif()) {
+            return 0;
+        }
+        if (TYPE_PEINTURE.isEnabled()) {
+            peinture = new Peinture();
+            peinture.begin();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Enregistre une peinture terminée et la latence de la saisie qu'elle
+     * affiche.
+     *
+     * @param debut             Instant retourné par {@link #debutPeinture()}.
+     * @param formesDessinees   Formes rastérisées pendant la peinture.
+     * @param tuilesRasterisees Tuiles rastérisées pendant la peinture.
+     * @param zone              Zone peinte.
+     */
+    public void finPeinture(long debut, int formesDessinees, int tuilesRasterisees, Rectangle zone) {
+        if (debut == 0) {
+            return;
+        }
+        long fin = System.nanoTime();
+        dernieresFormes = formesDessinees;
+        if (hudVisible) {
+            durees[(int) (nbDurees++ % TAILLE_HISTORIQUE)] = fin - debut;
+        }
+
+        if (peinture != null) {
+            peinture.formesDessinees = formesDessinees;
+            peinture.tuilesRasterisees = tuilesRasterisees;
+            peinture.surface = (long) zone.width * zone.height;
+            peinture.commit();
+            peinture = null;
+        }
+
+        if (debutSaisie != 0) {
+            long latence = fin - debutSaisie;
+            debutSaisie = 0;
+            if (hudVisible) {
+                latences[(int) (nbLatences++ % TAILLE_HISTORIQUE)] = latence;
+            }
+            if (TYPE_LATENCE.isEnabled()) {
+                LatenceSaisie evenement = new LatenceSaisie();
+                evenement.latence = latence;
+                evenement.attente = attenteSaisie;
+                evenement.commit();
+            }
+        }
+    }
+
+    /**
+     * Dessine la surimpression dans le coin supérieur gauche : percentiles des
+     * durées de peinture et des latences, formes rastérisées à la dernière
+     * peinture et débit du tracé.
+     *
+     * @param g Contexte graphique du panneau.
+     */
+    public void dessinerHud(Graphics g) {
+        if (!hudVisible) {
+            return;
+        }
+        if (debutTrace != 0) {
+            long duree = System.nanoTime() - debutTrace;
+            pointsParSeconde = duree > 0 ? pointsTrace * 1e9 / duree : 0;
+        }
+
+        String[] lignes = {
+                "peinture  " + percentiles(durees, nbDurees),
+                "latence   " + percentiles(latences, nbLatences),
+                String.format("formes %d   points/s %.0f", dernieresFormes, pointsParSeconde) };
+
+        Rectangle zone = getZoneHud();
+        g.setColor(new Color(0, 0, 0, 170));
+        g.fillRect(zone.x, zone.y, zone.width, zone.height);
+        g.setColor(Color.WHITE);
+        g.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        for (int i = 0; i < lignes.length; i++) {
+            g.drawString(lignes[i], zone.x + 6, zone.y + 16 + i * 15);
+        }
+    }
+
+    /**
+     * Retourne la zone occupée par la surimpression.
+     *
+     * @return Rectangle de la surimpression.
+     */
+    public Rectangle getZoneHud() {
+        return new Rectangle(4, 4, 330, 54);
+    }
+
+    /**
+     * Formate les percentiles 50, 95 et 99 des mesures conservées.
+     *
+     * @param mesures Tampon circulaire des mesures, en nanosecondes.
+     * @param nombre  Nombre de mesures enregistrées depuis le début.
+     * @return Les percentiles en millisecondes.
+     */
+    private static String percentiles(long[] mesures, long nombre) {
+        int n = (int) Math.min(nombre, mesures.length);
+        if (n == 0) {
+            return "-";
+        }
+        long[] tri = Arrays.copyOf(mesures, n);
+        Arrays.sort(tri);
+        return String.format("p50 %.2f  p95 %.2f  p99 %.2f ms",
+                rang(tri, 0.50) / 1e6, rang(tri, 0.95) / 1e6, rang(tri, 0.99) / 1e6);
+    }
+
+    /**
+     * Retourne le percentile d'une série triée, par la méthode du rang le plus
+     * proche.
+     *
+     * @param tri        Mesures triées, au moins une.
+     * @param percentile Percentile voulu, entre 0 et 1.
+     * @return La mesure correspondante.
+     */
+    private static long rang(long[] tri, double percentile) {
+        int i = (int) Math.ceil(percentile * tri.length) - 1;
+        return tri[Math.max(0, i)];
+    }
+}
@@ -8,6 +8,7 @@
 package paint.View;
 
 import java.awt.event.*;
+import javax.swing.SwingUtilities;
 
 public class MousePannelInfo implements MouseListener {
 
@@ -25,29 +26,55 @@ public class MousePannelInfo implements MouseListener {
 
     /**
      * Méthode appelée lorsque le bouton de la souris est pressé.
-     * Initialise les coordonnées de début du dessin et active le mode de dessin.
+     * Le bouton du milieu déplace la vue. Supprime une forme avec clic droit ou
+     * Ctrl + clic gauche, sinon initialise les coordonnées de début du dessin,
+     * dans le repère du dessin, et active le mode de dessin.
      *
      * @param e l'événement de souris associé.
      */
     @Override
     public void mousePressed(MouseEvent e) {
-        pan.startX = e.getX();
-        pan.startY = e.getY();
+        pan.getMesures().saisie(e.getWhen());
+        if (SwingUtilities.isMiddleMouseButton(e)) {
+            pan.commencerDeplacementVue(e.getPoint());
+            return;
+        }
+        if (SwingUtilities.isRightMouseButton(e)
+                || (e.isControlDown() && SwingUtilities.isLeftMouseButton(e))) {
+            pan.supprimerForme(pan.versDessin(e.getPoint()));
+            return;
+        }
+
+        pan.startX = pan.versDessinX(e.getX());
+        pan.startY = pan.versDessinY(e.getY());
+        pan.endX = pan.startX;
+        pan.endY = pan.startY;
         pan.isDrawing = true;
+        pan.commencerTrace();
     }
 
     /**
      * Méthode appelée lorsque le bouton de la souris est relâché.
-     * Finalise les coordonnées de la forme, dessine la forme sur le panneau,
+     * Finalise les coordonnées de la forme, l'ajoute au dessin,
      * et désactive le mode de dessin.
      *
      * @param e l'événement de souris associé.
      */
     @Override
     public void mouseReleased(MouseEvent e) {
-        pan.endX = e.getX();
-        pan.endY = e.getY();
-        pan.drawOnCanvas();
+        pan.getMesures().saisie(e.getWhen());
+        if (SwingUtilities.isMiddleMouseButton(e)) {
+            pan.terminerDeplacementVue();
+            return;
+        }
+        if (!pan.isDrawing) {
+            return; // Relâchement d'un clic de suppression
+        }
+
+        // Les dernières positions du glissement sont appliquées avant la forme
+        pan.appliquerSaisies();
+        pan.endX = pan.versDessinX(e.getX());
+        pan.endY = pan.versDessinY(e.getY());
         pan.isDrawing = false;
 
         // Création de la forme après le relâchement de la souris
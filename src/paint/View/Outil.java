@@ -0,0 +1,125 @@
+/**
+ * Outils de dessin du panneau. Chaque outil sait créer la forme qu'il trace et
+ * fournit son curseur, construit une seule fois : le changement d'outil ou de
+ * curseur pendant un glissement ne charge ni n'alloue rien.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import javax.swing.ImageIcon;
+
+import paint.Model.*;
+
+public enum Outil {
+
+    FREEHAND("FreeHand"),
+    LIGNE("Ligne"),
+    RECTANGLE("Rectangle"),
+    TRIANGLE("Triangle"),
+    CERCLE("Cercle"),
+    GOMME("Gomme"),
+    REMPLISSAGE("Remplissage");
+
+    /**
+     * Nom de l'outil, tel qu'il apparaît dans les réglages.
+     */
+    private final String nom;
+
+    /**
+     * Curseur de l'outil, construit au premier appel de {@link #getCurseur()}.
+     */
+    private Cursor curseur;
+
+    Outil(String nom) {
+        this.nom = nom;
+    }
+
+    /**
+     * Retourne le nom de l'outil.
+     *
+     * @return Le nom de l'outil.
+     */
+    public String getNom() {
+        return nom;
+    }
+
+    /**
+     * Retourne l'outil correspondant à un nom.
+     *
+     * @param nom Le nom de l'outil.
+     * @return L'outil, ou {@code null} si le nom est inconnu.
+     */
+    public static Outil depuisNom(String nom) {
+        for (Outil outil : values()) {
+            if (outil.nom.equals(nom)) {
+                return outil;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indique si l'outil trace une forme géométrique définie par deux points,
+     * prévisualisée pendant le glissement.
+     *
+     * @return {@code true} pour une ligne, un rectangle, un triangle ou un
+     *         cercle.
+     */
+    public boolean isGeometrique() {
+        return this != FREEHAND && this != GOMME && this != REMPLISSAGE;
+    }
+
+    /**
+     * Crée la forme géométrique tracée par l'outil.
+     *
+     * @param startX Coordonnée X du point de départ.
+     * @param startY Coordonnée Y du point de départ.
+     * @param endX   Coordonnée X du point de fin.
+     * @param endY   Coordonnée Y du point de fin.
+     * @param color  Couleur de la forme.
+     * @return La forme, ou {@code null} si l'outil ne trace pas de forme
+     *         géométrique.
+     */
+    public Forme creerForme(int startX, int startY, int endX, int endY, Color color) {
+        switch (this) {
+            case LIGNE:
+                return new LigneForme(startX, startY, endX, endY, color);
+            case RECTANGLE:
+                return new RectangleForme(startX, startY, endX, endY, color);
+            case TRIANGLE:
+                return new TriangleForme(startX, startY, endX, endY, color);
+            case CERCLE:
+                return new CircleForme(startX, startY, endX, endY, color);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Retourne le curseur de l'outil : une croix pour le dessin libre et le
+     * remplissage, l'icône de gomme pour la gomme, le curseur par défaut sinon. L'icône de gomme
+     * n'est lue qu'une fois ; sans écran, le curseur par défaut la remplace.
+     *
+     * @return Le curseur de l'outil.
+     */
+    public Cursor getCurseur() {
+        if (curseur == null) {
+            if (this == FREEHAND || this == REMPLISSAGE) {
+                curseur = Cursor.getPredefinedCursor(Cursor.CROSSHAIR_CURSOR);
+            } else if (this == GOMME) {
+                try {
+                    ImageIcon eraserIcon = new ImageIcon("assets/eraser-solid-24.png");
+                    curseur = Toolkit.getDefaultToolkit().createCustomCursor(
+                            eraserIcon.getImage(), new Point(0, 0), "eraser");
+                } catch (HeadlessException e) {
+                    curseur = Cursor.getDefaultCursor();
+                }
+            } else {
+                curseur = Cursor.getDefaultCursor();
+            }
+        }
+        return curseur;
+    }
+}
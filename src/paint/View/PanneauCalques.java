@@ -0,0 +1,195 @@
+/**
+ * Classe représentant le panneau des calques : la liste des calques, du plus
+ * haut au plus bas, et les commandes pour en ajouter, en supprimer, les
+ * déplacer, les masquer, les verrouiller, régler leur opacité et les renommer.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.awt.event.*;
+import java.util.List;
+import javax.swing.*;
+
+import paint.Model.Calque;
+
+public class PanneauCalques extends JPanel {
+
+    /**
+     * Panneau de dessin dont les calques sont affichés.
+     */
+    private final PanneauDessin pan;
+
+    /**
+     * Calques affichés, du plus haut au plus bas.
+     */
+    private final DefaultListModel<Calque> modele;
+
+    /**
+     * Liste des calques ; la sélection est le calque actif.
+     */
+    private final JList<Calque> liste;
+
+    private final JCheckBox visibleCase;
+    private final JCheckBox verrouCase;
+    private final JSlider opaciteCurseur;
+
+    /**
+     * Indique que les composants sont mis à jour depuis le dessin, pour ignorer
+     * les événements qu'ils émettent alors.
+     */
+    private boolean miseAJour;
+
+    /**
+     * Constructeur du panneau des calques.
+     *
+     * @param pan le panneau de dessin dont les calques sont gérés.
+     */
+    public PanneauCalques(PanneauDessin pan) {
+        super(new BorderLayout());
+        this.pan = pan;
+        this.setPreferredSize(new Dimension(180, 0));
+        this.setBorder(BorderFactory.createTitledBorder("Calques"));
+
+        modele = new DefaultListModel<>();
+        liste = new JList<>(modele);
+        liste.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        liste.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                    boolean isSelected, boolean cellHasFocus) {
+                Calque calque = (Calque) value;
+                String texte = calque.getNom();
+                if (!calque.isVisible()) {
+                    texte += " (masqué)";
+                }
+                if (calque.isVerrouille()) {
+                    texte += " (verrouillé)";
+                }
+                return super.getListCellRendererComponent(list, texte, index, isSelected, cellHasFocus);
+            }
+        });
+        liste.addListSelectionListener(e -> {
+            if (!miseAJour && !e.getValueIsAdjusting() && liste.getSelectedIndex() >= 0) {
+                pan.setCalqueActif(position(liste.getSelectedIndex()));
+            }
+        });
+        // Un double clic renomme le calque
+        liste.addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    renommer();
+                }
+            }
+        });
+        this.add(new JScrollPane(liste), BorderLayout.CENTER);
+
+        JPanel boutons = new JPanel(new GridLayout(1, 4));
+        boutons.add(createButton("+", "Ajouter un calque", e -> pan.ajouterCalque()));
+        boutons.add(createButton("-", "Supprimer le calque", e -> pan.supprimerCalque()));
+        boutons.add(createButton("▲", "Monter le calque", e -> deplacer(1)));
+        boutons.add(createButton("▼", "Descendre le calque", e -> deplacer(-1)));
+
+        visibleCase = new JCheckBox("Visible");
+        visibleCase.addActionListener(e -> {
+            if (!miseAJour) {
+                pan.setCalqueVisible(pan.getCalqueActif(), visibleCase.isSelected());
+            }
+        });
+        verrouCase = new JCheckBox("Verrouillé");
+        verrouCase.addActionListener(e -> {
+            if (!miseAJour) {
+                pan.setCalqueVerrouille(pan.getCalqueActif(), verrouCase.isSelected());
+            }
+        });
+        opaciteCurseur = new JSlider(0, 100, 100);
+        opaciteCurseur.setToolTipText("Opacité du calque (%)");
+        opaciteCurseur.addChangeListener(e -> {
+            if (!miseAJour) {
+                pan.setOpaciteCalque(pan.getCalqueActif(), opaciteCurseur.getValue());
+            }
+        });
+
+        JPanel proprietes = new JPanel(new GridLayout(4, 1));
+        proprietes.add(boutons);
+        proprietes.add(visibleCase);
+        proprietes.add(verrouCase);
+        proprietes.add(opaciteCurseur);
+        this.add(proprietes, BorderLayout.SOUTH);
+
+        pan.addPropertyChangeListener(PanneauDessin.PROPRIETE_CALQUES, e -> rafraichir());
+        rafraichir();
+    }
+
+    /**
+     * Met la liste et les commandes à jour d'après les calques du dessin.
+     */
+    private void rafraichir() {
+        miseAJour = true;
+        try {
+            List<Calque> calques = pan.getCalques();
+            modele.clear();
+            for (int i = calques.size() - 1; i >= 0; i--) {
+                modele.addElement(calques.get(i));
+            }
+            int actif = pan.getCalqueActif();
+            liste.setSelectedIndex(position(actif));
+            Calque calque = calques.get(actif);
+            visibleCase.setSelected(calque.isVisible());
+            verrouCase.setSelected(calque.isVerrouille());
+            opaciteCurseur.setValue(calque.getOpacite());
+        } finally {
+            miseAJour = false;
+        }
+    }
+
+    /**
+     * Convertit une ligne de la liste en position dans l'empilement, et
+     * inversement : la liste montre le calque le plus haut en premier.
+     *
+     * @param i Ligne de la liste ou position du calque.
+     * @return Position du calque ou ligne de la liste.
+     */
+    private int position(int i) {
+        return modele.getSize() - 1 - i;
+    }
+
+    /**
+     * Déplace le calque actif dans l'empilement.
+     *
+     * @param sens {@code 1} pour le monter, {@code -1} pour le descendre.
+     */
+    private void deplacer(int sens) {
+        int actif = pan.getCalqueActif();
+        pan.deplacerCalque(actif, actif + sens);
+    }
+
+    /**
+     * Demande un nouveau nom pour le calque actif.
+     */
+    private void renommer() {
+        int actif = pan.getCalqueActif();
+        String nom = JOptionPane.showInputDialog(this, "Nom du calque :", pan.getCalques().get(actif).getNom());
+        if (nom != null && !nom.isBlank()) {
+            pan.renommerCalque(actif, nom.strip());
+        }
+    }
+
+    /**
+     * Crée un bouton texte avec une info-bulle et une action.
+     *
+     * @param texte   le texte du bouton.
+     * @param aide    l'info-bulle du bouton.
+     * @param action  l'action à effectuer lors du clic.
+     * @return un bouton JButton configuré.
+     */
+    private JButton createButton(String texte, String aide, ActionListener action) {
+        JButton button = new JButton(texte);
+        button.setToolTipText(aide);
+        button.setFocusable(false);
+        button.addActionListener(action);
+        return button;
+    }
+}
@@ -10,30 +10,93 @@ package paint.View;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
-import javax.imageio.ImageIO;
 import javax.swing.*;
 
 import paint.Model.*;
 
 public class PanneauDessin extends JPanel {
 
+    /**
+     * Nombre de formes publiées à la fois lors d'un chargement progressif.
+     */
+    private static final int TAILLE_LOT_CHARGEMENT = 4096;
+
+    /**
+     * Rayon en pixels de l'écran de la gomme.
+     */
+    private static final int RAYON_GOMME = 4;
+
+    /**
+     * Bornes du facteur de zoom de la vue.
+     */
+    private static final double ZOOM_MIN = 1.0 / 32, ZOOM_MAX = 32;
+
+    /**
+     * Facteur de zoom appliqué par cran de molette.
+     */
+    private static final double PAS_ZOOM = 1.15;
+
+    /**
+     * Délai en millisecondes sans nouveau zoom avant de rastériser les calques à
+     * la nouvelle échelle.
+     */
+    private static final int DELAI_ZOOM = 150;
+
+    /**
+     * Côté maximal en pixels du dessin de la zone où un remplissage est cherché.
+     */
+    private static final int TAILLE_MAX_REMPLISSAGE = 4096;
+
+    /**
+     * Taille maximale du cache de tuiles de chaque calque, en octets, réglable
+     * avec {@code -Dpaint.tuiles.mo=<Mo>}.
+     */
+    private static final long OCTETS_TUILES = Long.getLong("paint.tuiles.mo", 64) << 20;
+
+    /**
+     * Exécuteur des enregistrements et exports en arrière-plan. Un seul fil
+     * d'exécution, pour que les écritures successives se fassent dans l'ordre.
+     */
+    private static final ExecutorService EXECUTEUR = Executors.newSingleThreadExecutor(r -> {
+        Thread fil = new Thread(r, "paint-enregistrement");
+        fil.setDaemon(true);
+        return fil;
+    });
+
     /**
      * Coordonnées de début et de fin pour dessiner une forme.
      */
     protected int startX, startY, endX, endY;
 
     /**
-     * Type de forme actuellement sélectionné. Par défaut : FreeHand.
+     * Outil actuellement sélectionné. Par défaut : FreeHand.
      */
-    protected String forme = "FreeHand";
+    private Outil outil = Outil.FREEHAND;
+
+    /**
+     * Forme de prévisualisation de chaque outil géométrique, redéfinie à chaque
+     * image du glissement : tracer une forme n'alloue rien avant le
+     * relâchement de la souris, qui crée seul la forme validée.
+     */
+    private final EnumMap<Outil, Forme> apercus = new EnumMap<>(Outil.class);
+
+    /**
+     * Zones de la prévisualisation, réutilisées d'une image à l'autre.
+     */
+    private final Rectangle zoneApercu = new Rectangle();
+    private final Rectangle ancienneZoneApercu = new Rectangle();
 
     /**
      * Indique si l'utilisateur est en train de dessiner.
@@ -41,9 +104,47 @@ public class PanneauDessin extends JPanel {
     protected boolean isDrawing = false;
 
     /**
-     * Image de fond du panneau de dessin.
+     * Nom de la propriété signalée à chaque changement des calques : ajout,
+     * suppression, déplacement, propriétés ou calque actif.
+     */
+    public static final String PROPRIETE_CALQUES = "calques";
+
+    /**
+     * Calque du dessin avec son index spatial et son cache raster découpé en
+     * tuiles. Chaque calque a son propre cache : modifier un calque ne fait
+     * rastériser que ses formes, les autres calques recopient leurs tuiles.
+     */
+    private static final class Couche {
+        private final Calque calque;
+        private final GrilleSpatiale index;
+        private final RenduTuiles rendu;
+
+        private Couche(Calque calque, boolean accelere) {
+            this.calque = calque;
+            this.index = new GrilleSpatiale();
+            this.rendu = new RenduTuiles(index, accelere, OCTETS_TUILES);
+        }
+    }
+
+    /**
+     * Calques du dessin, du plus bas au plus haut.
+     */
+    private final List<Couche> couches;
+
+    /**
+     * Position du calque actif, qui reçoit les nouvelles formes.
+     */
+    private int actif;
+
+    /**
+     * Numéro donné au nom du prochain calque ajouté.
+     */
+    private int numeroCalque;
+
+    /**
+     * Indique si les caches des calques sont recopiés par des images accélérées.
      */
-    protected BufferedImage canvas;
+    private final boolean accelere;
 
     /**
      * Couleur actuelle utilisée pour dessiner les formes.
@@ -51,12 +152,38 @@ public class PanneauDessin extends JPanel {
     protected Color color;
 
     /**
-     * Liste des formes de dessin.
+     * Tolérance de lissage des tracés à main levée, en pixels.
      */
-    private ArrayList<Forme> formes;
+    private double toleranceLissage = 1.0;
 
     /**
-     * Forme active de dessin
+     * Écart de couleur toléré par le remplissage, par composante (0 à 255).
+     */
+    private int toleranceRemplissage = 0;
+
+    /**
+     * Chargement de projet en cours, ou {@code null}.
+     */
+    private SwingWorker<Void, LotCharge> chargement;
+
+    /**
+     * Filtre en cours d'application, ou {@code null}.
+     */
+    private SwingWorker<ImageForme, Void> filtrage;
+
+    /**
+     * Image de fond affichée sous les calques, ou {@code null}.
+     */
+    private ImageFond fond;
+
+    /**
+     * Import d'une image de fond en cours, ou {@code null}.
+     */
+    private SwingWorker<ImageFond, Void> importFond;
+
+    /**
+     * Forme active de dessin : la prévisualisation de l'outil géométrique
+     * sélectionné pendant un glissement, {@code null} sinon.
      */
     private Forme currentForme;
 
@@ -66,345 +193,1819 @@ public class PanneauDessin extends JPanel {
     private FreeHandForme freeHandForme;
 
     /**
-     * Constructeur du panneau de dessin.
-     * Initialise le canvas, les paramètres de dessin, et ajoute les gestionnaires
-     * d'événements pour les interactions utilisateur.
+     * Historique des modifications, pour annuler et rétablir.
      */
-    public PanneauDessin() {
-        super();
-        this.formes = new ArrayList<>();
-        this.setBackground(Color.WHITE);
+    private final Historique historique;
 
-        Dimension tailleMoniteur = Toolkit.getDefaultToolkit().getScreenSize();
-        int longueur = tailleMoniteur.width * 2 / 3;
-        int hauteur = tailleMoniteur.height * 2 / 3;
+    /**
+     * Application des étapes de l'historique au dessin.
+     */
+    private final Historique.Cible cibleHistorique;
 
-        this.canvas = new BufferedImage(longueur, hauteur, BufferedImage.TYPE_INT_ARGB);
-        this.color = Color.RED;
+    /**
+     * Journal de sauvegarde automatique, ou {@code null} s'il est désactivé.
+     */
+    private Journal journal;
 
-        this.addMouseListener(new MousePannelInfo(this));
+    /**
+     * Instrumentation des peintures et de la saisie.
+     */
+    private final MesuresRendu mesures;
 
-        // Gérer le dessin en glissant la souris
-        this.addMouseMotionListener(new MouseMotionAdapter() {
+    /**
+     * Minuteur de rafraîchissement de la surimpression des mesures.
+     */
+    private final Timer rafraichissementHud;
+
+    /**
+     * Positions de souris reçues pendant le glissement en cours et pas encore
+     * appliquées.
+     */
+    private final SaisiesEnAttente saisies = new SaisiesEnAttente();
+
+    /**
+     * Minuteur cadencé sur la fréquence de l'écran qui applique les positions en
+     * attente, une fois par image.
+     */
+    private final Timer cadence;
+
+    /**
+     * Facteur de zoom de la vue : nombre de pixels de l'écran par pixel du
+     * dessin.
+     */
+    private double zoom = 1;
+
+    /**
+     * Décalage de la vue en pixels de l'écran : un point du dessin (x, y)
+     * apparaît en (x * zoom - decalageX, y * zoom - decalageY).
+     */
+    private int decalageX, decalageY;
+
+    /**
+     * Échelle à laquelle les caches des calques sont rastérisés. Pendant un
+     * zoom, elle reste l'ancienne et les tuiles sont recopiées agrandies ou
+     * réduites, jusqu'à ce que le zoom se stabilise.
+     */
+    private double zoomRendu = 1;
+
+    /**
+     * Minuteur qui rastérise les calques à la nouvelle échelle une fois le zoom
+     * stabilisé.
+     */
+    private final Timer finZoom;
+
+    /**
+     * Dernière position de la souris pendant un déplacement de la vue, ou
+     * {@code null}.
+     */
+    private Point ancrageVue;
+
+    /**
+     * Constructeur du panneau de dessin.
+     * Initialise le cache de rendu, les paramètres de dessin, et ajoute les gestionnaires
+     * d'événements pour les interactions utilisateur.
+     */
+    public PanneauDessin() {
+        super();
+        this.accelere = "accelere".equals(System.getProperty("paint.rendu"));
+        this.couches = new ArrayList<>();
+        this.couches.add(new Couche(new Calque(Calque.nomParDefaut(1)), accelere));
+        this.numeroCalque = 2;
+        for (Outil o : Outil.values()) {
+            if (o.isGeometrique()) {
+                apercus.put(o, o.creerForme(0, 0, 0, 0, Color.BLACK));
+            }
+        }
+        this.historique = new Historique(Long.getLong("paint.historique.mo", 64) << 20);
+        this.cibleHistorique = new Historique.Cible() {
             @Override
-            public void mouseDragged(MouseEvent e) {
-                endX = e.getX();
-                endY = e.getY();
-
-                if (isDrawing) {
-                    if (forme.equals("FreeHand") && freeHandForme != null) {
-                        changeCursor("FreeHand");
-                        freeHandForme.addPoint(endX, endY); // Ajout de points pour FreeHand
-                    } else if (forme.equals("Gomme")) {
-                        changeCursor("Gomme");
-                        // Dessiner en blanc avec la gomme
-                        if (freeHandForme == null) {
-                            freeHandForme = new FreeHandForme(endX, endY, Color.WHITE, 8); // Début du dessin de gomme
-                        } else {
-                            freeHandForme.addPoint(endX, endY); // Ajouter à la forme existante
-                        }
-                    } else {
-                        // Autres formes géométriques comme Rectangle, Ligne, etc.
-                        changeCursor("default");
-                        switch (forme) {
-                            case "Rectangle":
-                                currentForme = new RectangleForme(startX, startY, endX, endY, color);
-                                break;
-                            case "Ligne":
-                                currentForme = new LigneForme(startX, startY, endX, endY, color);
-                                break;
-                            case "Triangle":
-                                currentForme = new TriangleForme(startX, startY, endX, endY, color);
-                                break;
-                            case "Cercle":
-                                currentForme = new CircleForme(startX, startY, endX, endY, color);
-                                break;
-                        }
-                    }
+            public void insererForme(Calque calque, int position, Forme forme, long ordre) {
+                int i = positionCalque(calque);
+                Couche couche = couches.get(i);
+                calque.getFormes().add(position, forme);
+                couche.index.ajouter(forme, ordre);
+                invaliderZone(couche, forme.getBounds());
+                if (journal != null) {
+                    journal.insertion(i, position, forme);
                 }
-
-                repaint();
             }
-        });
 
-        // Supprimer ou commencer une nouvelle forme avec la souris
-        this.addMouseListener(new MouseAdapter() {
             @Override
-            public void mousePressed(MouseEvent e) {
-                // Supprimer une forme avec clic droit ou Ctrl + clic gauche
-                if (SwingUtilities.isRightMouseButton(e)
-                        || (e.isControlDown() && SwingUtilities.isLeftMouseButton(e))) {
-                    Point point = e.getPoint();
-                    supprimerForme(point);
-                } else {
-                    isDrawing = true;
-                    startX = e.getX();
-                    startY = e.getY();
-
-                    if (forme.equals("FreeHand")) {
-                        freeHandForme = new FreeHandForme(startX, startY, color);
-                        formes.add(freeHandForme); // Ajouter immédiatement à la liste
-                    } else if (forme.equals("Gomme")) {
-                        // Si c'est la gomme, créez une nouvelle forme FreeHand en blanc
-
-                        freeHandForme = new FreeHandForme(startX, startY, Color.WHITE, 8);
-                        formes.add(freeHandForme); // Ajouter la gomme au dessin
-                    }
+            public void retirerForme(Calque calque, int position) {
+                int i = positionCalque(calque);
+                Couche couche = couches.get(i);
+                Forme forme = calque.getFormes().remove(position);
+                couche.index.retirer(forme);
+                invaliderZone(couche, forme.getBounds());
+                if (journal != null) {
+                    journal.retrait(i, position);
                 }
             }
 
             @Override
-            public void mouseReleased(MouseEvent e) {
-                isDrawing = false;
+            public void insererCalque(int position, Calque calque, List<Forme> formes, long[] ordres) {
+                Couche couche = new Couche(calque, accelere);
+                calque.getFormes().addAll(formes);
+                for (int i = 0; i < formes.size(); i++) {
+                    couche.index.ajouter(formes.get(i), ordres[i]);
+                }
+                couches.add(position, couche);
+                actif = position;
+                if (journal != null) {
+                    journal.insertionCalque(position, calque);
+                }
+                calquesModifies();
+            }
 
-                if (!forme.equals("FreeHand") && currentForme != null) {
-                    formes.add(currentForme); // Ajout de la forme finale à la liste
-                    currentForme = null;
+            @Override
+            public void retirerCalque(int position) {
+                Couche couche = couches.remove(position);
+                couche.calque.getFormes().clear();
+                couche.rendu.vider();
+                if (actif > position || actif == couches.size()) {
+                    actif--;
                 }
+                if (journal != null) {
+                    journal.retraitCalque(position);
+                }
+                calquesModifies();
+            }
 
-                if (forme.equals("FreeHand")) {
-                    freeHandForme = null;
+            @Override
+            public void deplacerCalque(int depart, int arrivee) {
+                couches.add(arrivee, couches.remove(depart));
+                actif = arrivee;
+                if (journal != null) {
+                    journal.deplacementCalque(depart, arrivee);
                 }
+                calquesModifies();
+            }
+        };
+        this.setBackground(Color.WHITE);
+        this.color = Color.RED;
+        this.mesures = new MesuresRendu();
+        this.rafraichissementHud = new Timer(250, e -> repaint(mesures.getZoneHud()));
+        this.cadence = new Timer(1000 / frequenceEcran(), e -> appliquerSaisies());
+        this.finZoom = new Timer(DELAI_ZOOM, e -> {
+            zoomRendu = zoom;
+            repaint();
+        });
+        this.finZoom.setRepeats(false);
 
-                repaint();
+        this.addMouseListener(new MousePannelInfo(this));
+
+        // F3 affiche ou masque la surimpression des mesures
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0), "hud");
+        getActionMap().put("hud", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setHudVisible(!mesures.isHudVisible());
+            }
+        });
+        // Ctrl+Z annule, Ctrl+Y ou Ctrl+Maj+Z rétablit
+        int ctrl = InputEvent.CTRL_DOWN_MASK;
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ctrl), "annuler");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ctrl), "retablir");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(
+                KeyStroke.getKeyStroke(KeyEvent.VK_Z, ctrl | InputEvent.SHIFT_DOWN_MASK), "retablir");
+        getActionMap().put("annuler", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                annuler();
+            }
+        });
+        getActionMap().put("retablir", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                retablir();
             }
         });
 
-        // Redimensionner le canvas si la fenêtre change de taille
-        this.addComponentListener(new ComponentAdapter() {
+        // Ctrl+0 revient à la vue d'origine, Ctrl+Plus et Ctrl+Moins zooment
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_0, ctrl), "vueOrigine");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_ADD, ctrl), "zoomAvant");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, ctrl), "zoomAvant");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_SUBTRACT, ctrl), "zoomArriere");
+        getInputMap(WHEN_IN_FOCUSED_WINDOW).put(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, ctrl), "zoomArriere");
+        getActionMap().put("vueOrigine", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                reinitialiserVue();
+            }
+        });
+        getActionMap().put("zoomAvant", new AbstractAction() {
             @Override
-            public void componentResized(ComponentEvent e) {
-                int newWidth = getWidth();
-                int newHeight = getHeight();
+            public void actionPerformed(ActionEvent e) {
+                zoomer(PAS_ZOOM * PAS_ZOOM, getWidth() / 2, getHeight() / 2);
+            }
+        });
+        getActionMap().put("zoomArriere", new AbstractAction() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                zoomer(1 / (PAS_ZOOM * PAS_ZOOM), getWidth() / 2, getHeight() / 2);
+            }
+        });
+
+        if (Boolean.getBoolean("paint.hud")) {
+            setHudVisible(true);
+        }
 
-                BufferedImage newCanvas = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_ARGB);
+        // La molette zoome autour du curseur
+        this.addMouseWheelListener(e -> {
+            if (!isDrawing) {
+                zoomer(Math.pow(PAS_ZOOM, -e.getPreciseWheelRotation()), e.getX(), e.getY());
+            }
+        });
 
-                Graphics2D g2d = newCanvas.createGraphics();
-                g2d.drawImage(canvas, 0, 0, null);
-                g2d.dispose();
+        // Les positions du glissement sont mises en file et appliquées au rythme
+        // de l'écran
+        this.addMouseMotionListener(new MouseMotionAdapter() {
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                mesures.saisie(e.getWhen());
+                if (ancrageVue != null) {
+                    // Glissement du bouton du milieu : la vue suit la souris
+                    deplacerVue(ancrageVue.x - e.getX(), ancrageVue.y - e.getY());
+                    ancrageVue = e.getPoint();
+                    return;
+                }
+                if (!isDrawing) {
+                    return;
+                }
 
-                canvas = newCanvas;
-                repaint();
+                saisies.ajouter(versDessinX(e.getX()), versDessinY(e.getY()));
+                if (!cadence.isRunning()) {
+                    // Première position après une pause : affichée sans attendre
+                    appliquerSaisies();
+                    cadence.start();
+                }
             }
         });
     }
 
     /**
-     * Définit la forme à dessiner.
+     * Définit l'outil de dessin.
      *
-     * @param forme Le type de forme à dessiner (Rectangle, Ligne, Triangle,
-     *              FreeHand).
+     * @param outil L'outil à utiliser (Rectangle, Ligne, Triangle, Cercle,
+     *              FreeHand ou Gomme).
      */
-    public void setForme(String forme) {
-        this.forme = forme;
+    public void setOutil(Outil outil) {
+        this.outil = outil;
     }
 
     /**
-     * Retourne le type de forme actuellement sélectionné.
-     * 
-     * @return Le type de forme actuellement sélectionné.
+     * Retourne l'outil actuellement sélectionné.
+     *
+     * @return L'outil actuellement sélectionné.
      */
-    public String getForme() {
-        return forme;
+    public Outil getOutil() {
+        return outil;
     }
 
     /**
-     * Dessine la forme en cours sur le canvas.
+     * Retourne le facteur de zoom de la vue.
+     *
+     * @return Nombre de pixels de l'écran par pixel du dessin.
      */
-    public void drawOnCanvas() {
-        if (forme.equals("FreeHand") || forme.equals("Gomme")) {
-            return; // Le mode FreeHand est déjà géré via mouseDragged
-        }
-
-        if (currentForme != null) {
-            Graphics2D g2d = this.canvas.createGraphics();
-            g2d.setColor(currentForme.getColor());
-
-            currentForme.draw(g2d);
-            g2d.dispose();
+    public double getZoom() {
+        return zoom;
+    }
 
-            currentForme = null;
-            repaint();
+    /**
+     * Zoome la vue autour d'un point de l'écran, qui reste sous le même point du
+     * dessin. Les calques ne sont rastérisés à la nouvelle échelle qu'une fois
+     * le zoom stabilisé ; en attendant, leurs tuiles sont recopiées à l'échelle
+     * de la vue.
+     *
+     * @param facteur Facteur multiplié au zoom actuel.
+     * @param x       Coordonnée X du point fixe, à l'écran.
+     * @param y       Coordonnée Y du point fixe, à l'écran.
+     */
+    public void zoomer(double facteur, int x, int y) {
+        double nouveau = Math.max(ZOOM_MIN, Math.min(ZOOM_MAX, zoom * facteur));
+        if (nouveau == zoom) {
+            return;
         }
+        double dessinX = (x + decalageX) / zoom;
+        double dessinY = (y + decalageY) / zoom;
+        zoom = nouveau;
+        decalageX = (int) Math.round(dessinX * zoom - x);
+        decalageY = (int) Math.round(dessinY * zoom - y);
+        finZoom.restart();
+        repaint();
     }
 
     /**
-     * Réinitialise le canvas en le vidant de toutes les formes.
+     * Déplace la vue. Seules les tuiles qui entrent dans la vue sont
+     * rastérisées, les autres sont recopiées depuis le cache.
+     *
+     * @param dx Déplacement horizontal, en pixels de l'écran.
+     * @param dy Déplacement vertical, en pixels de l'écran.
      */
-    public void resetCanvas() {
-        Graphics2D g2d = this.canvas.createGraphics();
-        g2d.setColor(Color.WHITE);
-        g2d.fillRect(0, 0, this.canvas.getWidth(), this.canvas.getHeight());
-        g2d.dispose();
+    public void deplacerVue(int dx, int dy) {
+        decalageX += dx;
+        decalageY += dy;
+        repaint();
+    }
 
-        this.formes.clear();
+    /**
+     * Revient à la vue d'origine : zoom 1, sans décalage.
+     */
+    public void reinitialiserVue() {
+        zoom = 1;
+        decalageX = 0;
+        decalageY = 0;
+        finZoom.stop();
+        zoomRendu = 1;
         repaint();
     }
 
     /**
-     * Crée une nouvelle forme basée sur les coordonnées de la souris et le type de
-     * forme sélectionné.
+     * Commence un déplacement de la vue à la souris.
+     *
+     * @param point Position de la souris à l'écran.
      */
-    public void createForme() {
-        switch (forme) {
-            case "Rectangle":
-                this.currentForme = new RectangleForme(startX, startY, endX, endY, color);
-                break;
-            case "Ligne":
-                this.currentForme = new LigneForme(startX, startY, endX, endY, color);
-                break;
-            case "Triangle":
-                this.currentForme = new TriangleForme(startX, startY, endX, endY, color);
-                break;
-            case "Cercle":
-                this.currentForme = new CircleForme(startX, startY, endX, endY, color);
-                break;
-            case "FreeHand":
-                this.currentForme = new FreeHandForme(startX, startY, color);
-                break;
-        }
-        if (this.currentForme != null) {
-            this.formes.add(this.currentForme);
-            repaint();
-        }
+    void commencerDeplacementVue(Point point) {
+        ancrageVue = point;
+    }
+
+    /**
+     * Termine le déplacement de la vue à la souris.
+     */
+    void terminerDeplacementVue() {
+        ancrageVue = null;
     }
 
     /**
-     * Supprime une forme contenant un point donné.
+     * Convertit une coordonnée X de l'écran en coordonnée du dessin.
      *
-     * @param point Le point à vérifier pour suppression.
+     * @param x Coordonnée à l'écran.
+     * @return Coordonnée dans le dessin.
      */
-    private void supprimerForme(Point point) {
-        for (int i = formes.size() - 1; i >= 0; i--) {
-            Forme forme = formes.get(i);
-            if (forme.contient(point)) {
-                this.formes.remove(i);
-                repaint();
-                return;
-            }
-        }
+    int versDessinX(int x) {
+        return (int) Math.floor((x + decalageX) / zoom);
     }
 
     /**
-     * Définit la couleur utilisée pour dessiner les formes.
+     * Convertit une coordonnée Y de l'écran en coordonnée du dessin.
      *
-     * @param color La nouvelle couleur à utiliser.
+     * @param y Coordonnée à l'écran.
+     * @return Coordonnée dans le dessin.
      */
-    public void setColor(Color color) {
-        this.color = color;
+    int versDessinY(int y) {
+        return (int) Math.floor((y + decalageY) / zoom);
     }
 
     /**
-     * Redessine les composants graphiques sur le panneau.
+     * Convertit un point de l'écran en point du dessin.
      *
-     * @param g l'objet Graphics utilisé pour dessiner sur le composant.
+     * @param point Point à l'écran.
+     * @return Point dans le dessin.
      */
-    @Override
-    protected void paintComponent(Graphics g) {
-        super.paintComponent(g);
+    Point versDessin(Point point) {
+        return new Point(versDessinX(point.x), versDessinY(point.y));
+    }
 
-        for (Forme forme : formes) {
-            forme.draw(g);
+    /**
+     * Demande le rafraîchissement d'une zone du dessin, convertie en zone de
+     * l'écran.
+     *
+     * @param zone Zone en coordonnées du dessin.
+     */
+    private void repaintDessin(Rectangle zone) {
+        if (zone == null) {
+            return;
         }
-
-        if (isDrawing && currentForme != null) {
-            currentForme.draw(g);
+        if (zoom == 1) {
+            repaint(zone.x - decalageX, zone.y - decalageY, zone.width, zone.height);
+            return;
         }
+        int x1 = (int) Math.floor(zone.x * zoom) - decalageX - 1;
+        int y1 = (int) Math.floor(zone.y * zoom) - decalageY - 1;
+        int x2 = (int) Math.ceil((zone.x + zone.width) * zoom) - decalageX + 1;
+        int y2 = (int) Math.ceil((zone.y + zone.height) * zoom) - decalageY + 1;
+        repaint(x1, y1, x2 - x1, y2 - y1);
     }
 
     /**
-     * Change le curseur du panneau en fonction de l'outil sélectionné.
+     * Dessine une forme validée sur les tuiles du cache du calque actif qu'elle
+     * touche. Les tuiles à reconstruire de toute façon sont ignorées.
      *
-     * @param cursor une chaîne représentant le type d'outil, par exemple
-     *               "FreeHand" pour un curseur en croix ou "Gomme" pour une icône
-     *               de gomme.
+     * @param forme La forme à ajouter au cache.
      */
-    public void changeCursor(String cursor) {
-        switch (cursor) {
-            case "FreeHand":
-                setCursor(new Cursor(Cursor.CROSSHAIR_CURSOR));
-                break;
-            case "Gomme":
-                ImageIcon eraserIcon = new ImageIcon("assets/eraser-solid-24.png");
-                Cursor eraserCursor = Toolkit.getDefaultToolkit().createCustomCursor(
-                        eraserIcon.getImage(), new Point(0, 0), "eraser");
-                setCursor(eraserCursor);
-                break;
-            default:
-                setCursor(new Cursor(Cursor.DEFAULT_CURSOR));
+    public void drawOnCanvas(Forme forme) {
+        couches.get(actif).rendu.dessiner(forme);
+    }
+
+    /**
+     * Réinitialise le canvas : tous les calques sont remplacés par un calque
+     * vide. La réinitialisation peut être annulée.
+     */
+    public void resetCanvas() {
+        if (couches.size() == 1 && couches.get(0).calque.getFormes().isEmpty()) {
+            return;
+        }
+        List<Calque> anciens = new ArrayList<>();
+        List<long[]> ordres = new ArrayList<>();
+        for (Couche couche : couches) {
+            anciens.add(couche.calque);
+            ordres.add(ordres(couche));
+            couche.rendu.vider();
         }
+        Calque nouveau = new Calque(Calque.nomParDefaut(1));
+        couches.clear();
+        couches.add(new Couche(nouveau, accelere));
+        actif = 0;
+        numeroCalque = 2;
+        // L'historique garde les formes des anciens calques
+        historique.reinitialisation(anciens, ordres, nouveau);
+        if (journal != null) {
+            journal.instantane();
+        }
+        calquesModifies();
     }
 
     /**
-     * Sauvegarde le projet actuel dans un fichier.
+     * Remplace les calques du dessin, sans passer par l'historique. Les formes
+     * des calques donnés sont recopiées, avec de nouveaux numéros d'ordre.
      *
-     * @param file le fichier où les données du projet doivent être sauvegardées.
+     * @param calques Les nouveaux calques, du plus bas au plus haut.
      */
-    public void sauvegarderProjet(File file) {
-        try (ObjectOutputStream oos = new ObjectOutputStream(new FileOutputStream(file))) {
-            oos.writeObject(formes); // Sérialisation de la liste des formes
-            oos.writeObject(color); // Sauvegarde de la couleur actuelle
-            oos.writeInt(canvas.getWidth()); // Sauvegarde de la largeur du canvas
-            oos.writeInt(canvas.getHeight()); // Sauvegarde de la hauteur du canvas
-        } catch (IOException e) {
-            e.printStackTrace();
+    private void installerCalques(List<Calque> calques) {
+        for (Couche couche : couches) {
+            couche.rendu.vider();
+        }
+        couches.clear();
+        for (Calque calque : calques) {
+            Calque copie = new Calque(calque.getNom(), new ArrayList<>(calque.getFormes()));
+            copie.copierProprietes(calque);
+            Couche couche = new Couche(copie, accelere);
+            for (Forme forme : copie.getFormes()) {
+                couche.index.ajouter(forme);
+            }
+            couches.add(couche);
         }
+        actif = couches.size() - 1;
+        numeroCalque = couches.size() + 1;
+        calquesModifies();
     }
 
     /**
-     * Charge un projet sauvegardé à partir d'un fichier.
+     * Retourne les numéros d'ordre des formes d'un calque, dans l'ordre de sa
+     * liste.
      *
-     * @param file le fichier contenant les données du projet à charger.
+     * @param couche Le calque.
+     * @return Les numéros d'ordre.
      */
-    public void chargerProjet(File file) {
-        try (ObjectInputStream ois = new ObjectInputStream(new FileInputStream(file))) {
-
-            formes = (ArrayList<Forme>) ois.readObject(); // Récupérer la liste des formes
-            color = (Color) ois.readObject(); // Récupérer la couleur sauvegardée
-
-            // Récupérer les dimensions du canvas
-            int width = ois.readInt();
-            int height = ois.readInt();
+    private static long[] ordres(Couche couche) {
+        List<Forme> formes = couche.calque.getFormes();
+        long[] ordres = new long[formes.size()];
+        for (int i = 0; i < ordres.length; i++) {
+            ordres[i] = couche.index.getOrdre(formes.get(i));
+        }
+        return ordres;
+    }
 
-            // Réinitialisation du canvas
-            canvas = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-            repaint();
-        } catch (IOException | ClassNotFoundException e) {
-            e.printStackTrace();
+    /**
+     * Retourne la position d'un calque dans l'empilement.
+     *
+     * @param calque Le calque.
+     * @return Sa position, du bas vers le haut.
+     */
+    private int positionCalque(Calque calque) {
+        for (int i = 0; i < couches.size(); i++) {
+            if (couches.get(i).calque == calque) {
+                return i;
+            }
         }
+        throw new IllegalArgumentException("Calque absent du dessin : " + calque.getNom());
     }
 
     /**
-     * Exporte le contenu actuel du canvas en tant qu'image PNG.
+     * Copie figée des calques du dessin, pour un enregistrement ou un export en
+     * arrière-plan.
      *
-     * @param file Le fichier où l'image sera exportée.
+     * @return Les copies des calques, du plus bas au plus haut.
      */
-    public void exporterImage(File file) {
-        try {
-            // Crée une image contenant le rendu actuel du panneau de dessin
-            BufferedImage exportImage = new BufferedImage(this.getWidth(), this.getHeight(),
-                    BufferedImage.TYPE_INT_ARGB);
-            Graphics2D g2d = exportImage.createGraphics();
+    private List<Calque> copieCalques() {
+        List<Calque> copies = new ArrayList<>(couches.size());
+        for (Couche couche : couches) {
+            copies.add(couche.calque.copie());
+        }
+        return copies;
+    }
 
-            // Dessine le panneau sur l'image
-            this.paint(g2d);
-            g2d.dispose();
+    /**
+     * Signale un changement des calques et redessine le panneau.
+     */
+    private void calquesModifies() {
+        repaint();
+        firePropertyChange(PROPRIETE_CALQUES, null, couches.size());
+    }
 
-            // Vérifie si l'extension est déjà présente, sinon ajoute ".png"
-            if (!file.getName().toLowerCase().endsWith(".png")) {
-                file = new File(file.getAbsolutePath() + ".png");
-            }
+    /**
+     * Retourne les calques du dessin. Ils ne doivent être modifiés qu'au travers
+     * du panneau.
+     *
+     * @return Les calques, du plus bas au plus haut.
+     */
+    public List<Calque> getCalques() {
+        List<Calque> calques = new ArrayList<>(couches.size());
+        for (Couche couche : couches) {
+            calques.add(couche.calque);
+        }
+        return calques;
+    }
 
-            // Écrit l'image dans le fichier
-            ImageIO.write(exportImage, "png", file);
+    /**
+     * Retourne la position du calque actif.
+     *
+     * @return La position, du bas vers le haut.
+     */
+    public int getCalqueActif() {
+        return actif;
+    }
 
-            JOptionPane.showMessageDialog(this, "Image exportée avec succès : " + file.getAbsolutePath(),
-                    "Export Réussi", JOptionPane.INFORMATION_MESSAGE);
-        } catch (IOException ex) {
-            JOptionPane.showMessageDialog(this, "Erreur lors de l'exportation de l'image : " + ex.getMessage(),
-                    "Erreur d'Export", JOptionPane.ERROR_MESSAGE);
-            ex.printStackTrace();
+    /**
+     * Choisit le calque qui reçoit les nouvelles formes.
+     *
+     * @param position Position du calque, du bas vers le haut.
+     */
+    public void setCalqueActif(int position) {
+        if (position >= 0 && position < couches.size() && position != actif) {
+            actif = position;
+            firePropertyChange(PROPRIETE_CALQUES, null, couches.size());
         }
     }
 
+    /**
+     * Ajoute un calque vide au-dessus du calque actif et le rend actif. L'ajout
+     * peut être annulé.
+     */
+    public void ajouterCalque() {
+        if (isDrawing || chargementEnCours()) {
+            return;
+        }
+        Calque calque = new Calque(Calque.nomParDefaut(numeroCalque++));
+        int position = actif + 1;
+        couches.add(position, new Couche(calque, accelere));
+        actif = position;
+        historique.ajoutCalque(calque, position);
+        if (journal != null) {
+            journal.insertionCalque(position, calque);
+        }
+        calquesModifies();
+    }
+
+    /**
+     * Supprime le calque actif et ses formes. Le dernier calque restant ne peut
+     * pas être supprimé. La suppression peut être annulée.
+     */
+    public void supprimerCalque() {
+        if (isDrawing || chargementEnCours() || couches.size() == 1) {
+            return;
+        }
+        int position = actif;
+        Couche couche = couches.remove(position);
+        couche.rendu.vider();
+        if (actif == couches.size()) {
+            actif--;
+        }
+        historique.suppressionCalque(couche.calque, ordres(couche), position);
+        if (journal != null) {
+            journal.retraitCalque(position);
+        }
+        calquesModifies();
+    }
+
+    /**
+     * Déplace un calque dans l'empilement ; il devient le calque actif. Le
+     * déplacement peut être annulé.
+     *
+     * @param depart  Position actuelle du calque.
+     * @param arrivee Nouvelle position du calque.
+     */
+    public void deplacerCalque(int depart, int arrivee) {
+        if (isDrawing || chargementEnCours() || depart == arrivee
+                || depart < 0 || depart >= couches.size() || arrivee < 0 || arrivee >= couches.size()) {
+            return;
+        }
+        cibleHistorique.deplacerCalque(depart, arrivee);
+        historique.deplacementCalque(depart, arrivee);
+    }
+
+    /**
+     * Affiche ou masque un calque.
+     *
+     * @param position Position du calque.
+     * @param visible  {@code true} pour l'afficher.
+     */
+    public void setCalqueVisible(int position, boolean visible) {
+        couches.get(position).calque.setVisible(visible);
+        proprietesModifiees(position);
+    }
+
+    /**
+     * Verrouille ou déverrouille un calque. Un calque verrouillé ne peut ni
+     * recevoir de formes ni être gommé.
+     *
+     * @param position   Position du calque.
+     * @param verrouille {@code true} pour le verrouiller.
+     */
+    public void setCalqueVerrouille(int position, boolean verrouille) {
+        couches.get(position).calque.setVerrouille(verrouille);
+        proprietesModifiees(position);
+    }
+
+    /**
+     * Définit l'opacité d'un calque. Seule la recopie du calque change : ses
+     * tuiles ne sont pas rastérisées à nouveau.
+     *
+     * @param position Position du calque.
+     * @param opacite  Opacité en pourcentage.
+     */
+    public void setOpaciteCalque(int position, int opacite) {
+        couches.get(position).calque.setOpacite(opacite);
+        proprietesModifiees(position);
+    }
+
+    /**
+     * Renomme un calque.
+     *
+     * @param position Position du calque.
+     * @param nom      Nouveau nom.
+     */
+    public void renommerCalque(int position, String nom) {
+        couches.get(position).calque.setNom(nom);
+        proprietesModifiees(position);
+    }
+
+    /**
+     * Journalise les propriétés d'un calque modifiées et signale le changement.
+     *
+     * @param position Position du calque.
+     */
+    private void proprietesModifiees(int position) {
+        if (journal != null) {
+            journal.proprietesCalque(position, couches.get(position).calque);
+        }
+        calquesModifies();
+    }
+
+    /**
+     * Indique si le calque actif peut être modifié : visible et non verrouillé.
+     *
+     * @return {@code true} si le calque actif est modifiable.
+     */
+    private boolean calqueActifModifiable() {
+        Calque calque = couches.get(actif).calque;
+        return calque.isVisible() && !calque.isVerrouille();
+    }
+
+    /**
+     * Active la sauvegarde automatique du dessin dans un journal. Si la session
+     * précédente ne s'est pas terminée normalement, propose de récupérer son
+     * dessin. Les fichiers du journal ne sont supprimés que par
+     * {@link #fermerJournal()}, à la fermeture de la fenêtre ; un arrêt de la
+     * machine virtuelle par un signal ou une fin de session termine seulement
+     * les écritures en attente, pour que le dessin puisse être récupéré. Si une
+     * écriture du journal échoue en cours de session, l'utilisateur est
+     * prévenu que la sauvegarde automatique est arrêtée.
+     *
+     * @param dossier Dossier des fichiers du journal.
+     */
+    public void activerJournal(Path dossier) {
+        try {
+            journal = new Journal(dossier, () -> new Projet(copieCalques(), color, getWidth(), getHeight()),
+                    e -> SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this,
+                            "La sauvegarde automatique est désactivée : " + e.getMessage(),
+                            "Sauvegarde automatique", JOptionPane.WARNING_MESSAGE)));
+        } catch (IOException e) {
+            e.printStackTrace();
+            JOptionPane.showMessageDialog(this,
+                    "La sauvegarde automatique est désactivée : " + e.getMessage(),
+                    "Sauvegarde automatique", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        Projet recupere = journal.getRecuperation();
+        if (recupere != null && (recupere.getNbFormes() > 0 || recupere.getCalques().size() > 1)) {
+            int choix = JOptionPane.showConfirmDialog(this,
+                    "La session précédente ne s'est pas terminée correctement.\n"
+                            + "Récupérer son dessin (" + recupere.getNbFormes() + " formes, "
+                            + recupere.getCalques().size() + " calques) ?",
+                    "Récupération", JOptionPane.YES_NO_OPTION);
+            if (choix == JOptionPane.YES_OPTION) {
+                installerCalques(recupere.getCalques());
+                color = recupere.getCouleur();
+            }
+        }
+        // La nouvelle session repart d'un instantané du dessin actuel
+        journal.instantane();
+
+        Journal ouvert = journal;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                ouvert.liberer();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }, "paint-fermeture-journal"));
+    }
+
+    /**
+     * Ferme le journal et supprime ses fichiers, à la fin d'une session
+     * terminée par l'utilisateur. Sans effet si le journal n'est pas actif.
+     */
+    public void fermerJournal() {
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        journal = null;
+    }
+
+    /**
+     * Annule la dernière modification du dessin. Sans effet pendant un tracé ou
+     * un chargement.
+     */
+    public void annuler() {
+        if (!isDrawing && !chargementEnCours()) {
+            historique.annuler(cibleHistorique);
+        }
+    }
+
+    /**
+     * Rétablit la dernière modification annulée. Sans effet pendant un tracé ou
+     * un chargement.
+     */
+    public void retablir() {
+        if (!isDrawing && !chargementEnCours()) {
+            historique.retablir(cibleHistorique);
+        }
+    }
+
+    /**
+     * Indique si un projet est en cours de chargement.
+     *
+     * @return {@code true} pendant un chargement.
+     */
+    private boolean chargementEnCours() {
+        return chargement != null && !chargement.isDone();
+    }
+
+    /**
+     * Commence un nouveau tracé à main levée si l'outil sélectionné le demande
+     * (FreeHand ou Gomme). Le tracé reste une prévisualisation jusqu'au
+     * relâchement de la souris. Rien n'est tracé sur un calque masqué ou
+     * verrouillé.
+     */
+    public void commencerTrace() {
+        if (!calqueActifModifiable()) {
+            isDrawing = false;
+            return;
+        }
+        if (outil == Outil.FREEHAND) {
+            freeHandForme = new FreeHandForme(startX, startY, color);
+        } else if (outil == Outil.GOMME) {
+            // Tout ce qu'efface un passage de gomme s'annule d'un coup
+            historique.ouvrirGroupe();
+            effacerAutour(startX, startY);
+            return;
+        } else if (outil == Outil.REMPLISSAGE) {
+            remplir(startX, startY);
+            return;
+        } else {
+            return;
+        }
+        freeHandForme.setTolerance(toleranceLissage);
+        mesures.debutTrace();
+    }
+
+    /**
+     * Crée une nouvelle forme basée sur les coordonnées de la souris et l'outil
+     * sélectionné, puis l'ajoute au dessin. La prévisualisation reste à
+     * l'outil pour le prochain tracé : la forme validée est une forme neuve.
+     */
+    public void createForme() {
+        Forme nouvelle = null;
+        switch (outil) {
+            case RECTANGLE:
+            case LIGNE:
+            case TRIANGLE:
+            case CERCLE:
+                nouvelle = outil.creerForme(startX, startY, endX, endY, color);
+                break;
+            case GOMME:
+                historique.fermerGroupe();
+                break;
+            case REMPLISSAGE:
+                break; // Zone déjà remplie au clic
+            case FREEHAND:
+                if (freeHandForme != null) {
+                    freeHandForme.terminer(); // Simplification du tracé validé
+                    mesures.finTrace(freeHandForme.getNbPoints());
+                }
+                nouvelle = freeHandForme;
+                freeHandForme = null;
+                break;
+        }
+        this.currentForme = null;
+
+        if (nouvelle != null) {
+            validerForme(nouvelle);
+        }
+    }
+
+    /**
+     * Ajoute une forme tracée par l'utilisateur au calque actif, en l'inscrivant
+     * dans l'historique et dans le journal.
+     *
+     * @param nouvelle La forme à ajouter.
+     */
+    private void validerForme(Forme nouvelle) {
+        Couche couche = couches.get(actif);
+        int position = couche.calque.getFormes().size();
+        ajouterForme(nouvelle);
+        historique.ajout(couche.calque, List.of(nouvelle), new long[] { couche.index.getOrdre(nouvelle) }, position);
+        if (journal != null) {
+            journal.insertion(actif, position, nouvelle);
+        }
+    }
+
+    /**
+     * Remplit avec la couleur courante la zone de couleur voisine d'un point,
+     * telle qu'elle apparaît à l'échelle 1 dans les calques visibles. La zone
+     * est cherchée dans la partie visible du dessin, limitée à
+     * {@link #TAILLE_MAX_REMPLISSAGE} pixels de côté autour du point, puis
+     * ajoutée au calque actif comme une forme.
+     *
+     * @param x Coordonnée X du point dans le dessin.
+     * @param y Coordonnée Y du point dans le dessin.
+     */
+    private void remplir(int x, int y) {
+        Rectangle zone = zoneRemplissage(x, y);
+        if (!zone.contains(x, y)) {
+            return;
+        }
+
+        // Image du dessin sur fond blanc opaque, lue directement par son tableau
+        BufferedImage image = new BufferedImage(zone.width, zone.height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2 = image.createGraphics();
+        g2.setColor(Color.WHITE);
+        g2.fillRect(0, 0, zone.width, zone.height);
+        g2.translate(-zone.x, -zone.y);
+        for (Couche couche : couches) {
+            Calque calque = couche.calque;
+            if (!calque.isVisible() || calque.getOpacite() == 0) {
+                continue;
+            }
+            g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, calque.getOpacite() / 100f));
+            for (Forme forme : couche.index.rechercher(zone)) {
+                forme.draw(g2);
+            }
+        }
+        g2.dispose();
+
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        RemplissageForme remplissage = Remplissage.remplir(pixels, zone.width, zone.height, x - zone.x, y - zone.y,
+                toleranceRemplissage, zone.x, zone.y, color);
+        if (remplissage != null) {
+            validerForme(remplissage);
+        }
+    }
+
+    /**
+     * Calcule la zone du dessin où chercher un remplissage : la partie visible
+     * du dessin, réduite autour du point si elle dépasse
+     * {@link #TAILLE_MAX_REMPLISSAGE} pixels de côté.
+     *
+     * @param x Coordonnée X du point dans le dessin.
+     * @param y Coordonnée Y du point dans le dessin.
+     * @return La zone, en coordonnées du dessin.
+     */
+    private Rectangle zoneRemplissage(int x, int y) {
+        Rectangle zone = new Rectangle(versDessinX(0), versDessinY(0),
+                (int) Math.ceil(getWidth() / zoom), (int) Math.ceil(getHeight() / zoom));
+        if (zone.width > TAILLE_MAX_REMPLISSAGE) {
+            zone.x = Math.max(zone.x, Math.min(x - TAILLE_MAX_REMPLISSAGE / 2,
+                    zone.x + zone.width - TAILLE_MAX_REMPLISSAGE));
+            zone.width = TAILLE_MAX_REMPLISSAGE;
+        }
+        if (zone.height > TAILLE_MAX_REMPLISSAGE) {
+            zone.y = Math.max(zone.y, Math.min(y - TAILLE_MAX_REMPLISSAGE / 2,
+                    zone.y + zone.height - TAILLE_MAX_REMPLISSAGE));
+            zone.height = TAILLE_MAX_REMPLISSAGE;
+        }
+        return zone;
+    }
+
+    /**
+     * Retourne le rectangle englobant les formes du calque actif.
+     *
+     * @return Le rectangle, en coordonnées du dessin, ou {@code null} si le
+     *         calque est vide.
+     */
+    public Rectangle getLimitesCalqueActif() {
+        return limites(couches.get(actif).calque.getFormes());
+    }
+
+    /**
+     * Calcule le rectangle englobant des formes.
+     *
+     * @param formes Les formes.
+     * @return Le rectangle, ou {@code null} s'il n'y a pas de forme.
+     */
+    private static Rectangle limites(List<Forme> formes) {
+        Rectangle zone = null;
+        for (Forme forme : formes) {
+            if (zone == null) {
+                zone = forme.getBounds();
+            } else {
+                zone.add(forme.getBounds());
+            }
+        }
+        return zone;
+    }
+
+    /**
+     * Applique un filtre d'image au calque actif. Le calque est rendu à
+     * l'échelle 1 dans une image, avec la marge du filtre, puis filtré en
+     * arrière-plan ; il est ensuite remplacé par un calque de mêmes nom et
+     * propriétés qui ne contient que l'image filtrée. Le remplacement s'annule
+     * d'un coup. Si le calque change pendant le filtrage, le résultat est
+     * abandonné.
+     *
+     * @param filtre Le filtre à appliquer.
+     */
+    public void appliquerFiltre(Filtre filtre) {
+        if (isDrawing || chargementEnCours() || (filtrage != null && !filtrage.isDone())) {
+            return;
+        }
+        if (!calqueActifModifiable()) {
+            JOptionPane.showMessageDialog(this, "Le calque actif est masqué ou verrouillé.",
+                    "Filtre", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        Couche couche = couches.get(actif);
+        List<Forme> formes = new ArrayList<>(couche.calque.getFormes());
+        Rectangle zone = limites(formes);
+        if (zone == null) {
+            return;
+        }
+        zone.grow(filtre.getMarge(), filtre.getMarge());
+        if (zone.width > ImageForme.TAILLE_MAX || zone.height > ImageForme.TAILLE_MAX) {
+            JOptionPane.showMessageDialog(this,
+                    "Le calque est trop grand pour être filtré (" + ImageForme.TAILLE_MAX
+                            + " pixels de côté au plus, marge du filtre comprise).",
+                    "Filtre", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        filtrage = new SwingWorker<ImageForme, Void>() {
+            @Override
+            protected ImageForme doInBackground() {
+                BufferedImage image = RenduImage.rendreZone(formes, zone, 1);
+                int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+                filtre.appliquer(pixels, zone.width, zone.height);
+                return new ImageForme(zone.x, zone.y, zone.width, zone.height, pixels);
+            }
+
+            @Override
+            protected void done() {
+                setCursor(outil.getCurseur());
+                try {
+                    ImageForme image = get();
+                    if (!couches.contains(couche) || !couche.calque.getFormes().equals(formes)) {
+                        JOptionPane.showMessageDialog(PanneauDessin.this,
+                                "Le calque a été modifié pendant le filtrage : le filtre n'est pas appliqué.",
+                                "Filtre", JOptionPane.WARNING_MESSAGE);
+                        return;
+                    }
+                    remplacerCalque(couche, image);
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(PanneauDessin.this,
+                            "Erreur lors du filtrage : " + cause.getMessage(),
+                            "Erreur de filtre", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        EXECUTEUR.execute(filtrage);
+    }
+
+    /**
+     * Remplace un calque par un calque de mêmes nom et propriétés ne contenant
+     * qu'une forme, en une seule étape de l'historique. Le nouveau calque
+     * devient le calque actif.
+     *
+     * @param couche Le calque remplacé.
+     * @param forme  La forme du nouveau calque.
+     */
+    private void remplacerCalque(Couche couche, Forme forme) {
+        int position = couches.indexOf(couche);
+        Calque calque = new Calque(couche.calque.getNom());
+        calque.copierProprietes(couche.calque);
+        Couche nouvelle = new Couche(calque, accelere);
+
+        historique.ouvrirGroupe();
+        couches.add(position + 1, nouvelle);
+        historique.ajoutCalque(calque, position + 1);
+        if (journal != null) {
+            journal.insertionCalque(position + 1, calque);
+        }
+        calque.getFormes().add(forme);
+        nouvelle.index.ajouter(forme);
+        historique.ajout(calque, List.of(forme), new long[] { nouvelle.index.getOrdre(forme) }, 0);
+        if (journal != null) {
+            journal.insertion(position + 1, 0, forme);
+        }
+
+        couches.remove(position);
+        couche.rendu.vider();
+        historique.suppressionCalque(couche.calque, ordres(couche), position);
+        if (journal != null) {
+            journal.retraitCalque(position);
+        }
+        historique.fermerGroupe();
+
+        actif = position;
+        calquesModifies();
+    }
+
+    /**
+     * Ajoute une forme validée au calque actif et la rastérise dans son cache.
+     *
+     * @param nouvelle La forme à ajouter.
+     */
+    public void ajouterForme(Forme nouvelle) {
+        Couche couche = couches.get(actif);
+        couche.calque.getFormes().add(nouvelle);
+        couche.index.ajouter(nouvelle);
+        couche.rendu.dessiner(nouvelle);
+        repaintDessin(nouvelle.getBounds());
+    }
+
+    /**
+     * Ajoute un lot de formes validées au calque actif et les rastérise dans
+     * son cache.
+     *
+     * @param lot Les formes à ajouter, de la plus basse à la plus haute.
+     */
+    public void ajouterFormes(List<Forme> lot) {
+        ajouterFormes(couches.get(actif), lot);
+    }
+
+    /**
+     * Ajoute un lot de formes validées à un calque et les rastérise dans son
+     * cache.
+     *
+     * @param couche Le calque.
+     * @param lot    Les formes à ajouter, de la plus basse à la plus haute.
+     */
+    private void ajouterFormes(Couche couche, List<Forme> lot) {
+        if (lot.isEmpty()) {
+            return;
+        }
+
+        Rectangle zone = null;
+        for (Forme nouvelle : lot) {
+            couche.calque.getFormes().add(nouvelle);
+            couche.index.ajouter(nouvelle);
+            couche.rendu.dessiner(nouvelle);
+            if (zone == null) {
+                zone = nouvelle.getBounds();
+            } else {
+                zone.add(nouvelle.getBounds());
+            }
+        }
+        repaintDessin(zone);
+    }
+
+    /**
+     * Supprime la forme la plus haute du calque actif contenant un point donné.
+     * Seules les formes proches du point, d'après l'index spatial, sont testées,
+     * et sa position dans la liste est retrouvée par son numéro d'ordre.
+     *
+     * @param point Le point à vérifier pour suppression.
+     */
+    protected void supprimerForme(Point point) {
+        if (!calqueActifModifiable()) {
+            return;
+        }
+        Couche couche = couches.get(actif);
+        Forme forme = couche.index.formeAuPoint(point, (int) Math.ceil(Forme.TOLERANCE_SELECTION / zoom));
+        if (forme != null) {
+            int position = couche.index.position(couche.calque.getFormes(), forme);
+            historique.suppression(couche.calque, forme, couche.index.getOrdre(forme), position);
+            couche.calque.getFormes().remove(position);
+            couche.index.retirer(forme);
+            invaliderZone(couche, forme.getBounds());
+            if (journal != null) {
+                journal.retrait(actif, position);
+            }
+        }
+    }
+
+    /**
+     * Applique les positions de souris en attente. Un tracé à main levée reçoit
+     * chacune d'elles et la gomme passe par toutes, mais la prévisualisation
+     * d'une forme géométrique n'est reconstruite qu'une fois, pour la dernière.
+     * Le minuteur de cadence s'arrête quand aucune position n'est arrivée depuis
+     * l'image précédente.
+     */
+    void appliquerSaisies() {
+        int n = saisies.taille();
+        if (n == 0) {
+            cadence.stop();
+            return;
+        }
+
+        int precX = endX;
+        int precY = endY;
+        endX = saisies.getX(n - 1);
+        endY = saisies.getY(n - 1);
+
+        appliquerCurseur(outil);
+        if (outil == Outil.FREEHAND && freeHandForme != null) {
+            // Zone couverte par les nouveaux segments
+            int minX = precX;
+            int minY = precY;
+            int maxX = precX;
+            int maxY = precY;
+            for (int i = 0; i < n; i++) {
+                int x = saisies.getX(i);
+                int y = saisies.getY(i);
+                freeHandForme.addPoint(x, y); // Ajout de points pour FreeHand
+                mesures.pointTrace();
+                minX = Math.min(minX, x);
+                minY = Math.min(minY, y);
+                maxX = Math.max(maxX, x);
+                maxY = Math.max(maxY, y);
+            }
+            int marge = freeHandForme.getLineWidth() / 2 + 1;
+            zoneApercu.setBounds(minX - marge, minY - marge, maxX - minX + 2 * marge + 1, maxY - minY + 2 * marge + 1);
+            repaintDessin(zoneApercu);
+        } else if (outil == Outil.GOMME) {
+            // La gomme avance par pas d'un demi-rayon pour ne rien sauter
+            for (int i = 0; i < n; i++) {
+                int x = saisies.getX(i);
+                int y = saisies.getY(i);
+                double distance = Math.hypot(x - precX, y - precY);
+                int pas = Math.max(1, (int) Math.ceil(distance * 2 / rayonGomme()));
+                for (int k = 1; k <= pas; k++) {
+                    effacerAutour(precX + (x - precX) * k / pas, precY + (y - precY) * k / pas);
+                }
+                precX = x;
+                precY = y;
+            }
+        } else {
+            // Autres formes géométriques comme Rectangle, Ligne, etc. : la
+            // prévisualisation de l'outil est redéfinie sur place
+            Forme apercu = apercus.get(outil);
+            if (apercu != null) {
+                boolean ancienne = currentForme == apercu;
+                if (ancienne) {
+                    apercu.getBounds(ancienneZoneApercu);
+                }
+                apercu.redefinir(startX, startY, endX, endY, color);
+                currentForme = apercu;
+                apercu.getBounds(zoneApercu);
+                if (ancienne) {
+                    zoneApercu.add(ancienneZoneApercu);
+                }
+                repaintDessin(zoneApercu);
+            }
+        }
+        saisies.vider();
+    }
+
+    /**
+     * Retourne la fréquence de rafraîchissement de l'écran principal.
+     *
+     * @return La fréquence en Hz, 60 si elle est inconnue ou sans écran.
+     */
+    private static int frequenceEcran() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return 60;
+        }
+        int frequence = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice()
+                .getDisplayMode().getRefreshRate();
+        return frequence == DisplayMode.REFRESH_RATE_UNKNOWN ? 60 : Math.max(24, frequence);
+    }
+
+    /**
+     * Efface la partie des formes du calque actif couverte par la gomme autour
+     * d'un point. Seules les formes proches, d'après l'index spatial, sont
+     * testées ; chaque forme touchée est remplacée, à la même place dans
+     * l'empilement, par les morceaux qui en restent.
+     *
+     * @param x Coordonnée X du centre de la gomme.
+     * @param y Coordonnée Y du centre de la gomme.
+     */
+    private void effacerAutour(int x, int y) {
+        Couche couche = couches.get(actif);
+        List<Forme> formes = couche.calque.getFormes();
+        GrilleSpatiale index = couche.index;
+        int rayon = rayonGomme();
+        Rectangle zone = new Rectangle(x - rayon, y - rayon, 2 * rayon + 1, 2 * rayon + 1);
+        for (Forme touchee : index.rechercher(zone)) {
+            List<Forme> morceaux = Gomme.effacer(touchee, x, y, rayon);
+            if (morceaux == null) {
+                continue;
+            }
+
+            int position = index.position(formes, touchee);
+            long ordre = index.getOrdre(touchee);
+            index.retirer(touchee);
+            historique.suppression(couche.calque, touchee, ordre, position);
+            if (journal != null) {
+                journal.retrait(actif, position);
+            }
+
+            // Les morceaux remplacent la forme d'un seul décalage de la liste
+            if (morceaux.isEmpty()) {
+                formes.remove(position);
+            } else {
+                formes.set(position, morceaux.get(0));
+                formes.addAll(position + 1, morceaux.subList(1, morceaux.size()));
+            }
+
+            // Les morceaux prennent le numéro d'ordre de la forme d'origine
+            long[] ordres = new long[morceaux.size()];
+            for (int i = 0; i < morceaux.size(); i++) {
+                Forme morceau = morceaux.get(i);
+                ordres[i] = ordre;
+                index.ajouter(morceau, ordre);
+                if (journal != null) {
+                    journal.insertion(actif, position + i, morceau);
+                }
+            }
+            if (!morceaux.isEmpty()) {
+                historique.ajout(couche.calque, morceaux, ordres, position);
+            }
+
+            // Un tracé ou une ligne ne change que sous la gomme ; les autres formes
+            // sont redessinées sous forme de tracés
+            if (touchee instanceof FreeHandForme || touchee instanceof LigneForme) {
+                int marge = rayon + touchee.getLineWidth() + 2;
+                invaliderZone(couche, new Rectangle(x - marge, y - marge, 2 * marge + 1, 2 * marge + 1));
+            } else {
+                invaliderZone(couche, touchee.getBounds());
+            }
+        }
+    }
+
+    /**
+     * Retourne le rayon de la gomme dans le dessin, pour qu'elle garde la même
+     * taille à l'écran quel que soit le zoom.
+     *
+     * @return Le rayon en pixels du dessin.
+     */
+    private int rayonGomme() {
+        return Math.max(1, (int) Math.round(RAYON_GOMME / zoom));
+    }
+
+    /**
+     * Marque une zone du cache d'un calque comme obsolète et demande le
+     * rafraîchissement de cette seule zone. Les caches des autres calques
+     * restent valides.
+     *
+     * @param couche Le calque modifié.
+     * @param zone   La zone à redessiner.
+     */
+    private void invaliderZone(Couche couche, Rectangle zone) {
+        couche.rendu.invalider(zone);
+        repaintDessin(zone);
+    }
+
+    /**
+     * Définit la tolérance de lissage appliquée aux prochains tracés à main levée.
+     *
+     * @param tolerance Écart maximal en pixels entre le tracé conservé et les
+     *                  points saisis, {@code 0} pour conserver tous les points.
+     */
+    public void setToleranceLissage(double tolerance) {
+        this.toleranceLissage = tolerance;
+    }
+
+    /**
+     * Retourne la tolérance de lissage des tracés à main levée.
+     *
+     * @return La tolérance en pixels.
+     */
+    public double getToleranceLissage() {
+        return toleranceLissage;
+    }
+
+    /**
+     * Définit l'écart de couleur toléré par les prochains remplissages.
+     *
+     * @param tolerance Écart maximal par composante, ramené entre 0 et 255 ;
+     *                  {@code 0} ne remplit que la couleur exacte.
+     */
+    public void setToleranceRemplissage(int tolerance) {
+        this.toleranceRemplissage = Math.max(0, Math.min(255, tolerance));
+    }
+
+    /**
+     * Retourne l'écart de couleur toléré par le remplissage.
+     *
+     * @return L'écart maximal par composante, entre 0 et 255.
+     */
+    public int getToleranceRemplissage() {
+        return toleranceRemplissage;
+    }
+
+    /**
+     * Définit la couleur utilisée pour dessiner les formes.
+     *
+     * @param color La nouvelle couleur à utiliser.
+     */
+    public void setColor(Color color) {
+        this.color = color;
+    }
+
+    /**
+     * Retourne l'instrumentation des peintures et de la saisie.
+     *
+     * @return Les mesures du panneau.
+     */
+    public MesuresRendu getMesures() {
+        return mesures;
+    }
+
+    /**
+     * Affiche ou masque la surimpression des mesures (durées de peinture,
+     * latences de saisie et débit de points).
+     *
+     * @param visible {@code true} pour l'afficher.
+     */
+    public void setHudVisible(boolean visible) {
+        mesures.setHudVisible(visible);
+        if (visible) {
+            rafraichissementHud.start();
+        } else {
+            rafraichissementHud.stop();
+        }
+        repaint(mesures.getZoneHud());
+    }
+
+    /**
+     * Redessine les composants graphiques sur le panneau.
+     *
+     * @param g l'objet Graphics utilisé pour dessiner sur le composant.
+     */
+    @Override
+    protected void paintComponent(Graphics g) {
+        super.paintComponent(g);
+
+        // Seules les tuiles touchées par la zone à rafraîchir sont recopiées
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        // Les rafraîchissements de la seule surimpression ne sont pas mesurés
+        Rectangle zoneHud = mesures.getZoneHud();
+        long debut = zoneHud.contains(clip) ? 0 : mesures.debutPeinture();
+        int formesRasterisees = 0;
+        int tuilesRasterisees = 0;
+        // Les tuiles sont en pixels de l'écran à l'échelle des caches ; pendant
+        // un zoom, elles sont recopiées agrandies ou réduites sans être
+        // rastérisées
+        boolean apercu = zoomRendu != zoom;
+        double facteur = zoom / zoomRendu;
+        Rectangle zoneTuiles = apercu
+                ? zoneApercu(clip, facteur)
+                : new Rectangle(clip.x + decalageX, clip.y + decalageY, clip.width, clip.height);
+        // Image de fond sous les calques, décodée selon la vue entière
+        if (fond != null) {
+            fond.peindre(g, clip, new Rectangle(0, 0, getWidth(), getHeight()), zoom, decalageX,
+                    decalageY);
+        }
+        for (Couche couche : couches) {
+            Calque calque = couche.calque;
+            if (!calque.isVisible() || calque.getOpacite() == 0) {
+                continue;
+            }
+            Graphics2D g2 = (Graphics2D) g.create();
+            if (calque.getOpacite() < 100) {
+                g2.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, calque.getOpacite() / 100f));
+            }
+            g2.translate(-decalageX, -decalageY);
+            if (apercu) {
+                g2.scale(facteur, facteur);
+                couche.rendu.peindreApercu(g2, zoneTuiles);
+            } else {
+                couche.rendu.setEchelle(zoom);
+                couche.rendu.peindre(g2, zoneTuiles);
+                formesRasterisees += couche.rendu.getFormesRasterisees();
+                tuilesRasterisees += couche.rendu.getTuilesRasterisees();
+            }
+            g2.dispose();
+        }
+
+        // Prévisualisation de la forme en cours, hors cache
+        Rectangle zoneDessin = new Rectangle(versDessinX(clip.x), versDessinY(clip.y),
+                (int) Math.ceil(clip.width / zoom) + 2, (int) Math.ceil(clip.height / zoom) + 2);
+        boolean previsualisation = isDrawing && currentForme != null && currentForme.intersecte(zoneDessin);
+        boolean trace = freeHandForme != null && freeHandForme.intersecte(zoneDessin);
+        if (previsualisation || trace) {
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.translate(-decalageX, -decalageY);
+            g2.scale(zoom, zoom);
+            if (previsualisation) {
+                currentForme.draw(g2);
+            }
+            if (trace) {
+                freeHandForme.draw(g2);
+            }
+            g2.dispose();
+        }
+
+        mesures.finPeinture(debut, formesRasterisees, tuilesRasterisees, clip);
+        if (mesures.isHudVisible() && zoneHud.intersects(clip)) {
+            mesures.dessinerHud(g);
+        }
+    }
+
+    /**
+     * Calcule la zone des tuiles à l'ancienne échelle qui couvre une zone de
+     * l'écran pendant un zoom.
+     *
+     * @param clip    Zone de l'écran.
+     * @param facteur Rapport entre le zoom de la vue et l'échelle des caches.
+     * @return Zone en pixels des tuiles.
+     */
+    private Rectangle zoneApercu(Rectangle clip, double facteur) {
+        int x1 = (int) Math.floor((clip.x + decalageX) / facteur);
+        int y1 = (int) Math.floor((clip.y + decalageY) / facteur);
+        int x2 = (int) Math.ceil((clip.x + clip.width + decalageX) / facteur);
+        int y2 = (int) Math.ceil((clip.y + clip.height + decalageY) / facteur);
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Affiche le curseur d'un outil, s'il n'est pas déjà affiché. Les curseurs
+     * sont construits une fois par outil.
+     *
+     * @param outil L'outil dont le curseur est affiché.
+     */
+    private void appliquerCurseur(Outil outil) {
+        Cursor curseur = outil.getCurseur();
+        if (getCursor() != curseur) {
+            setCursor(curseur);
+        }
+    }
+
+    /**
+     * Sauvegarde le projet actuel dans un fichier, au format binaire compact.
+     * L'écriture se fait en arrière-plan sur une copie figée des calques : le
+     * dessin peut continuer pendant l'enregistrement.
+     *
+     * @param file le fichier où les données du projet doivent être sauvegardées.
+     */
+    public void sauvegarderProjet(File file) {
+        Projet projet = new Projet(copieCalques(), color, getWidth(), getHeight());
+
+        executerEnFond("Enregistrement de " + file.getName(),
+                suivi -> FormatProjet.ecrire(file.toPath(), projet, suivi),
+                "Projet enregistré : " + file.getAbsolutePath(), "Enregistrement");
+    }
+
+    /**
+     * Charge un projet sauvegardé à partir d'un fichier, au format binaire ou
+     * dans l'ancien format sérialisé. Le dessin courant est vidé, puis le fichier
+     * est lu en arrière-plan et les formes apparaissent par lots au fur et à
+     * mesure. Une fenêtre de progression permet d'annuler le chargement ; les
+     * formes déjà lues sont alors conservées.
+     *
+     * @param file le fichier contenant les données du projet à charger.
+     */
+    public void chargerProjet(File file) {
+        if (chargement != null) {
+            chargement.cancel(true);
+        }
+        // Un projet chargé remplace le dessin : l'historique repart de zéro
+        installerCalques(List.of(new Calque(Calque.nomParDefaut(1))));
+        historique.vider();
+        if (journal != null) {
+            journal.instantane();
+        }
+
+        ProgressMonitor moniteur = new ProgressMonitor(this, "Chargement de " + file.getName(), null, 0, 100);
+        moniteur.setMillisToDecideToPopup(200);
+
+        SwingWorker<Void, LotCharge> tache = new SwingWorker<Void, LotCharge>() {
+            @Override
+            protected Void doInBackground() throws IOException {
+                try (LecteurProjet lecteur = new LecteurProjet(file.toPath())) {
+                    SwingUtilities.invokeLater(() -> {
+                        if (!isCancelled()) {
+                            appliquerEntete(lecteur.getCouleur(), lecteur.getCalques());
+                        }
+                    });
+
+                    // Un premier petit lot pour afficher rapidement le début du dessin
+                    int taille = 256;
+                    for (int calque = 0; calque < lecteur.getCalques().size() && !isCancelled(); calque++) {
+                        int reste = lecteur.getNbFormes(calque);
+                        while (reste > 0 && !isCancelled()) {
+                            List<Forme> lot = lecteur.lireFormes(Math.min(taille, reste));
+                            reste -= lot.size();
+                            publish(new LotCharge(calque, lot));
+                            setProgress((int) (lecteur.getProgression() * 100));
+                            taille = TAILLE_LOT_CHARGEMENT;
+                        }
+                    }
+                }
+                return null;
+            }
+
+            @Override
+            protected void process(List<LotCharge> lots) {
+                if (isCancelled()) {
+                    return;
+                }
+                for (LotCharge lot : lots) {
+                    ajouterFormes(couches.get(lot.calque), lot.formes);
+                }
+            }
+
+            @Override
+            protected void done() {
+                moniteur.close();
+                if (chargement == this) {
+                    chargement = null;
+                }
+                // Le dessin chargé n'est pas journalisé forme par forme
+                if (journal != null) {
+                    journal.instantane();
+                }
+                try {
+                    get();
+                } catch (CancellationException e) {
+                    // Chargement interrompu : les formes déjà lues restent affichées
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(PanneauDessin.this,
+                            "Erreur lors du chargement du projet : " + cause.getMessage(),
+                            "Erreur de Chargement", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        tache.addPropertyChangeListener(e -> {
+            if (moniteur.isCanceled()) {
+                tache.cancel(true);
+            } else if ("progress".equals(e.getPropertyName())) {
+                moniteur.setProgress((Integer) e.getNewValue());
+            }
+        });
+
+        chargement = tache;
+        tache.execute();
+    }
+
+    /**
+     * Lot de formes lues d'un calque pendant un chargement.
+     */
+    private static final class LotCharge {
+        private final int calque;
+        private final List<Forme> formes;
+
+        private LotCharge(int calque, List<Forme> formes) {
+            this.calque = calque;
+            this.formes = formes;
+        }
+    }
+
+    /**
+     * Applique l'en-tête d'un projet chargé : la couleur courante et les calques,
+     * encore vides. Le cache par tuiles n'a pas de taille fixe, les dimensions
+     * enregistrées sont ignorées.
+     *
+     * @param couleur Couleur de dessin enregistrée.
+     * @param calques Calques enregistrés, sans leurs formes.
+     */
+    private void appliquerEntete(Color couleur, List<Calque> calques) {
+        color = couleur; // Récupérer la couleur sauvegardée
+        installerCalques(calques);
+    }
+
+    /**
+     * Importe une image PNG ou JPEG comme fond du dessin, à décalquer. Seules
+     * les dimensions et un aperçu réduit sont lus, en arrière-plan ; les
+     * tuiles à pleine résolution sont ensuite décodées selon la vue. Le fond
+     * ne fait partie ni du projet enregistré, ni de l'historique, ni de l'export.
+     *
+     * @param file Le fichier de l'image.
+     */
+    public void importerFond(File file) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        SwingWorker<ImageFond, Void> tache = new SwingWorker<ImageFond, Void>() {
+            @Override
+            protected ImageFond doInBackground() throws IOException {
+                ImageFond image = new ImageFond(file, Long.getLong("paint.fond.mo", 128) << 20,
+                        PanneauDessin.this::repaintDessin);
+                try {
+                    image.decoderApercu();
+                } catch (IOException | RuntimeException e) {
+                    image.fermer();
+                    throw e;
+                }
+                return image;
+            }
+
+            @Override
+            protected void done() {
+                // Un import remplacé par un autre est abandonné
+                if (importFond != this) {
+                    fermerSiLue(this);
+                    return;
+                }
+                importFond = null;
+                setCursor(outil.getCurseur());
+                try {
+                    ImageFond image = get();
+                    if (fond != null) {
+                        fond.fermer();
+                    }
+                    fond = image;
+                    repaint();
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(PanneauDessin.this,
+                            "Erreur lors de l'import de l'image : " + cause.getMessage(),
+                            "Erreur d'import", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+        importFond = tache;
+        tache.execute();
+    }
+
+    /**
+     * Ferme l'image lue par un import abandonné, si elle a pu être lue.
+     *
+     * @param tache L'import abandonné, terminé.
+     */
+    private static void fermerSiLue(SwingWorker<ImageFond, Void> tache) {
+        try {
+            tache.get().fermer();
+        } catch (InterruptedException | ExecutionException e) {
+            // Import en échec : rien à fermer
+        }
+    }
+
+    /**
+     * Retire l'image de fond.
+     */
+    public void retirerFond() {
+        if (fond != null) {
+            fond.fermer();
+            fond = null;
+            repaint();
+        }
+    }
+
+    /**
+     * Indique si une image de fond est affichée.
+     *
+     * @return {@code true} si le dessin a une image de fond.
+     */
+    public boolean hasFond() {
+        return fond != null;
+    }
+
+    /**
+     * Exporte le contenu actuel du canvas en tant qu'image PNG.
+     * Le rendu et l'encodage se font en arrière-plan sur une copie figée des
+     * calques ; les calques masqués n'apparaissent pas.
+     *
+     * @param file Le fichier où l'image sera exportée.
+     */
+    public void exporterImage(File file) {
+        // Vérifie si l'extension est déjà présente, sinon ajoute ".png"
+        File destination = file.getName().toLowerCase().endsWith(".png") ? file
+                : new File(file.getAbsolutePath() + ".png");
+
+        List<Calque> copie = copieCalques();
+        int largeur = Math.max(1, getWidth());
+        int hauteur = Math.max(1, getHeight());
+
+        executerEnFond("Export de " + destination.getName(), suivi -> {
+            // Le rendu compte pour la première moitié de la progression, l'encodage
+            // pour la seconde
+            BufferedImage exportImage = RenduImage.rendreCalques(copie, largeur, hauteur,
+                    sousSuivi(suivi, 0, 0.5));
+            RenduImage.ecrirePng(exportImage, destination, sousSuivi(suivi, 0.5, 0.5));
+        }, "Image exportée avec succès : " + destination.getAbsolutePath(), "Export");
+    }
+
+    /**
+     * Travail exécuté en arrière-plan par {@link #executerEnFond}.
+     */
+    @FunctionalInterface
+    private interface TravailFond {
+        /**
+         * Exécute le travail.
+         *
+         * @param suivi Suivi de l'avancement et de l'annulation.
+         * @throws Exception En cas d'erreur.
+         */
+        void executer(SuiviProgression suivi) throws Exception;
+    }
+
+    /**
+     * Exécute un travail sur l'exécuteur d'arrière-plan, avec une fenêtre de
+     * progression permettant de l'annuler, puis signale le résultat.
+     *
+     * @param description   Texte de la fenêtre de progression.
+     * @param travail       Le travail à exécuter.
+     * @param messageSucces Message affiché une fois le travail terminé.
+     * @param operation     Nom de l'opération, pour les titres des messages.
+     */
+    private void executerEnFond(String description, TravailFond travail, String messageSucces, String operation) {
+        ProgressMonitor moniteur = new ProgressMonitor(this, description, null, 0, 100);
+        moniteur.setMillisToDecideToPopup(200);
+
+        SwingWorker<Void, Void> tache = new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() throws Exception {
+                travail.executer(new SuiviProgression() {
+                    @Override
+                    public void avancer(double fraction) {
+                        setProgress((int) Math.round(Math.min(1, fraction) * 100));
+                    }
+
+                    @Override
+                    public boolean estAnnule() {
+                        return isCancelled();
+                    }
+                });
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                moniteur.close();
+                try {
+                    get();
+                    JOptionPane.showMessageDialog(PanneauDessin.this, messageSucces,
+                            operation + " Réussi", JOptionPane.INFORMATION_MESSAGE);
+                } catch (CancellationException e) {
+                    // Opération annulée par l'utilisateur
+                } catch (InterruptedException | ExecutionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    cause.printStackTrace();
+                    JOptionPane.showMessageDialog(PanneauDessin.this,
+                            "Erreur lors de l'opération : " + cause.getMessage(),
+                            "Erreur d'" + operation, JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        };
+
+        tache.addPropertyChangeListener(e -> {
+            if (moniteur.isCanceled()) {
+                tache.cancel(false);
+            } else if ("progress".equals(e.getPropertyName())) {
+                moniteur.setProgress((Integer) e.getNewValue());
+            }
+        });
+
+        EXECUTEUR.execute(tache);
+    }
+
+    /**
+     * Retourne un suivi qui reporte l'avancement d'une étape dans une portion de
+     * l'avancement global.
+     *
+     * @param suivi  Suivi global.
+     * @param debut  Avancement global au début de l'étape.
+     * @param part   Part de l'étape dans l'avancement global.
+     * @return Suivi de l'étape.
+     */
+    private static SuiviProgression sousSuivi(SuiviProgression suivi, double debut, double part) {
+        return new SuiviProgression() {
+            @Override
+            public void avancer(double fraction) {
+                suivi.avancer(debut + fraction * part);
+            }
+
+            @Override
+            public boolean estAnnule() {
+                return suivi.estAnnule();
+            }
+        };
+    }
+
 }
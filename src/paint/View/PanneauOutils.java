@@ -4,14 +4,15 @@ import java.awt.*;
 import java.awt.event.*;
 import java.io.File;
 import javax.swing.*;
-import java.util.HashMap;
+import javax.swing.filechooser.FileNameExtensionFilter;
+import java.util.EnumMap;
 import java.util.Map;
 
 public class PanneauOutils extends JPanel {
     /**
      * Map des boutons par mode de dessin.
      */
-    private Map<String, JButton> modeButtons;
+    private Map<Outil, JButton> modeButtons;
 
     /**
      * Constructeur pour initialiser le panneau d'outils.
@@ -20,18 +21,46 @@ public class PanneauOutils extends JPanel {
      */
     public PanneauOutils(PanneauDessin pan) {
         super();
-        this.setLayout(new GridLayout(1, 11));
+        this.setLayout(new GridLayout(1, 12));
 
-        modeButtons = new HashMap<>(); // Initialisation de la Map
+        modeButtons = new EnumMap<>(Outil.class); // Initialisation de la Map
 
         // Création des boutons avec des actions associées
         JButton resetButton = createIconButton("assets/reset.png", e -> pan.resetCanvas());
-        JButton rubberButton = createModeButton("Gomme", "assets/eraser-solid-24.png", pan);
-        JButton freeHandButton = createModeButton("FreeHand", "assets/pen.png", pan);
-        JButton circleButton = createModeButton("Cercle", "assets/circle-regular-24.png", pan);
-        JButton rectangleButton = createModeButton("Rectangle", "assets/rectangle-regular-24.png", pan);
-        JButton triangleButton = createModeButton("Triangle", "assets/triangle.png", pan);
-        JButton lineButton = createModeButton("Ligne", "assets/line.png", pan);
+        JButton rubberButton = createModeButton(Outil.GOMME, "assets/eraser-solid-24.png", pan);
+        JButton freeHandButton = createModeButton(Outil.FREEHAND, "assets/pen.png", pan);
+        JButton circleButton = createModeButton(Outil.CERCLE, "assets/circle-regular-24.png", pan);
+        JButton rectangleButton = createModeButton(Outil.RECTANGLE, "assets/rectangle-regular-24.png", pan);
+        JButton triangleButton = createModeButton(Outil.TRIANGLE, "assets/triangle.png", pan);
+        JButton lineButton = createModeButton(Outil.LIGNE, "assets/line.png", pan);
+        JButton fillButton = createModeButton(Outil.REMPLISSAGE, "assets/fill-drip-24.png", pan);
+
+        // Filtres d'image du calque actif, avec aperçu
+        JButton filterButton = createIconButton("assets/filter-24.png", e -> DialogueFiltres.ouvrir(this, pan));
+        filterButton.setToolTipText("Filtres du calque actif");
+
+        // Image de fond à décalquer : import, remplacement ou retrait
+        JButton backgroundButton = createIconButton("assets/image-24.png", e -> {
+            if (pan.hasFond()) {
+                Object[] options = { "Remplacer", "Retirer", "Annuler" };
+                int choix = JOptionPane.showOptionDialog(this, "Une image de fond est déjà affichée.",
+                        "Image de fond", JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null,
+                        options, options[0]);
+                if (choix == 1) {
+                    pan.retirerFond();
+                }
+                if (choix != 0) {
+                    return;
+                }
+            }
+            JFileChooser fileChooser = new JFileChooser();
+            fileChooser.setDialogTitle("Import Background Image");
+            fileChooser.setFileFilter(new FileNameExtensionFilter("Images PNG, JPEG", "png", "jpg", "jpeg"));
+            if (fileChooser.showOpenDialog(null) == JFileChooser.APPROVE_OPTION) {
+                pan.importerFond(fileChooser.getSelectedFile());
+            }
+        });
+        backgroundButton.setToolTipText("Image de fond");
 
         JButton colorButton = createIconButton("assets/palette.png", e -> {
             Color color = JColorChooser.showDialog(null, "Choose a color", Color.BLACK);
@@ -58,6 +87,20 @@ public class PanneauOutils extends JPanel {
             }
         });
 
+        // Tolérance de lissage des tracés à main levée, en pixels
+        JSpinner lissageSpinner = new JSpinner(
+                new SpinnerNumberModel(pan.getToleranceLissage(), 0.0, 5.0, 0.25));
+        lissageSpinner.setToolTipText("Tolérance de lissage du trait (px)");
+        lissageSpinner.addChangeListener(
+                e -> pan.setToleranceLissage(((Number) lissageSpinner.getValue()).doubleValue()));
+
+        // Écart de couleur toléré par le remplissage, par composante
+        JSpinner remplissageSpinner = new JSpinner(
+                new SpinnerNumberModel(pan.getToleranceRemplissage(), 0, 255, 8));
+        remplissageSpinner.setToolTipText("Tolérance de couleur du remplissage (0-255)");
+        remplissageSpinner.addChangeListener(
+                e -> pan.setToleranceRemplissage(((Number) remplissageSpinner.getValue()).intValue()));
+
         JButton exportButton = createIconButton("assets/export.png", e -> {
             JFileChooser fileChooser = new JFileChooser();
             fileChooser.setDialogTitle("Export Image");
@@ -74,6 +117,11 @@ public class PanneauOutils extends JPanel {
         this.add(triangleButton);
         this.add(circleButton);
         this.add(rubberButton);
+        this.add(fillButton);
+        this.add(lissageSpinner);
+        this.add(remplissageSpinner);
+        this.add(filterButton);
+        this.add(backgroundButton);
         this.add(colorButton);
         this.add(resetButton);
         this.add(saveButton);
@@ -81,7 +129,7 @@ public class PanneauOutils extends JPanel {
         this.add(exportButton);
 
         // Mise à jour de l'état initial
-        updateActiveButton(pan.getForme());
+        updateActiveButton(pan.getOutil());
     }
 
     /**
@@ -92,9 +140,9 @@ public class PanneauOutils extends JPanel {
      * @param pan      le panneau de dessin.
      * @return un bouton JButton configuré pour le mode.
      */
-    private JButton createModeButton(String mode, String iconPath, PanneauDessin pan) {
+    private JButton createModeButton(Outil mode, String iconPath, PanneauDessin pan) {
         JButton button = createIconButton(iconPath, e -> {
-            pan.setForme(mode);
+            pan.setOutil(mode);
             updateActiveButton(mode); // Mettre à jour l'apparence des boutons
         });
         modeButtons.put(mode, button); // Ajouter à la Map
@@ -128,10 +176,10 @@ public class PanneauOutils extends JPanel {
      *
      * @param activeMode le mode actuellement actif.
      */
-    private void updateActiveButton(String activeMode) {
-        for (Map.Entry<String, JButton> entry : modeButtons.entrySet()) {
+    private void updateActiveButton(Outil activeMode) {
+        for (Map.Entry<Outil, JButton> entry : modeButtons.entrySet()) {
             JButton button = entry.getValue();
-            if (entry.getKey().equals(activeMode)) {
+            if (entry.getKey() == activeMode) {
                 // Style du bouton actif
                 button.setBackground(new Color(200, 200, 200)); // Couleur grise
                 button.setBorder(BorderFactory.createLineBorder(Color.GRAY, 1));
@@ -0,0 +1,248 @@
+/**
+ * Classe utilitaire qui rend une liste de formes, ou les calques d'un dessin,
+ * dans une image et l'écrit en PNG, indépendamment du panneau de dessin. Elle peut donc être utilisée hors
+ * du thread de l'interface, sur une copie figée de la liste des formes.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Iterator;
+import java.util.List;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriter;
+import javax.imageio.event.IIOWriteProgressListener;
+import javax.imageio.stream.ImageOutputStream;
+
+import paint.Model.Calque;
+import paint.Model.Forme;
+import paint.Model.SuiviProgression;
+
+public final class RenduImage {
+
+    private RenduImage() {
+    }
+
+    /**
+     * Dessine des formes sur un fond blanc, dans une nouvelle image.
+     *
+     * @param formes  Les formes à dessiner, de la plus basse à la plus haute.
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     * @param suivi   Suivi de l'avancement et de l'annulation.
+     * @return L'image rendue.
+     * @throws InterruptedIOException Si le rendu a été annulé.
+     */
+    public static BufferedImage rendre(List<Forme> formes, int largeur, int hauteur, SuiviProgression suivi)
+            throws InterruptedIOException {
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, largeur, hauteur);
+
+            Rectangle zone = new Rectangle(0, 0, largeur, hauteur);
+            for (int i = 0; i < formes.size(); i++) {
+                Forme forme = formes.get(i);
+                if (forme.intersecte(zone)) {
+                    forme.draw(g2d);
+                }
+
+                if (i % 1024 == 0) {
+                    if (suivi.estAnnule()) {
+                        throw new InterruptedIOException("Rendu annulé");
+                    }
+                    suivi.avancer((double) i / formes.size());
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        suivi.avancer(1);
+        return image;
+    }
+
+    /**
+     * Dessine les formes d'une zone du dessin sur un fond transparent, dans une
+     * nouvelle image ARGB prémultipliée, le format des filtres.
+     *
+     * @param formes  Les formes à dessiner, de la plus basse à la plus haute.
+     * @param zone    Zone du dessin rendue.
+     * @param echelle Échelle du rendu : l'image mesure la zone multipliée par
+     *                l'échelle, arrondie au pixel supérieur.
+     * @return L'image rendue.
+     */
+    public static BufferedImage rendreZone(List<Forme> formes, Rectangle zone, double echelle) {
+        int largeur = Math.max(1, (int) Math.ceil(zone.width * echelle));
+        int hauteur = Math.max(1, (int) Math.ceil(zone.height * echelle));
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g2d = image.createGraphics();
+        try {
+            g2d.scale(echelle, echelle);
+            g2d.translate(-zone.x, -zone.y);
+            for (Forme forme : formes) {
+                if (forme.intersecte(zone)) {
+                    forme.draw(g2d);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        return image;
+    }
+
+    /**
+     * Dessine les calques visibles d'un dessin sur un fond blanc, dans une
+     * nouvelle image. Un calque partiellement transparent est d'abord rendu à
+     * part, puis appliqué avec son opacité, comme à l'écran.
+     *
+     * @param calques Les calques, du plus bas au plus haut.
+     * @param largeur Largeur de l'image.
+     * @param hauteur Hauteur de l'image.
+     * @param suivi   Suivi de l'avancement et de l'annulation.
+     * @return L'image rendue.
+     * @throws InterruptedIOException Si le rendu a été annulé.
+     */
+    public static BufferedImage rendreCalques(List<Calque> calques, int largeur, int hauteur,
+            SuiviProgression suivi) throws InterruptedIOException {
+        int total = 0;
+        for (Calque calque : calques) {
+            if (calque.isVisible()) {
+                total += calque.getFormes().size();
+            }
+        }
+
+        BufferedImage image = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g2d = image.createGraphics();
+        BufferedImage intermediaire = null;
+        try {
+            g2d.setColor(Color.WHITE);
+            g2d.fillRect(0, 0, largeur, hauteur);
+
+            Rectangle zone = new Rectangle(0, 0, largeur, hauteur);
+            int dessinees = 0;
+            for (Calque calque : calques) {
+                if (!calque.isVisible() || calque.getOpacite() == 0) {
+                    continue;
+                }
+
+                Graphics2D cible = g2d;
+                if (calque.getOpacite() < 100) {
+                    if (intermediaire == null) {
+                        intermediaire = new BufferedImage(largeur, hauteur, BufferedImage.TYPE_INT_ARGB);
+                    }
+                    cible = intermediaire.createGraphics();
+                    cible.setComposite(AlphaComposite.Clear);
+                    cible.fillRect(0, 0, largeur, hauteur);
+                    cible.setComposite(AlphaComposite.SrcOver);
+                }
+
+                try {
+                    for (Forme forme : calque.getFormes()) {
+                        if (forme.intersecte(zone)) {
+                            forme.draw(cible);
+                        }
+
+                        if (dessinees++ % 1024 == 0) {
+                            if (suivi.estAnnule()) {
+                                throw new InterruptedIOException("Rendu annulé");
+                            }
+                            suivi.avancer((double) dessinees / total);
+                        }
+                    }
+                } finally {
+                    if (cible != g2d) {
+                        cible.dispose();
+                    }
+                }
+
+                if (cible != g2d) {
+                    g2d.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, calque.getOpacite() / 100f));
+                    g2d.drawImage(intermediaire, 0, 0, null);
+                    g2d.setComposite(AlphaComposite.SrcOver);
+                }
+            }
+        } finally {
+            g2d.dispose();
+        }
+        suivi.avancer(1);
+        return image;
+    }
+
+    /**
+     * Écrit une image au format PNG en signalant l'avancement de l'encodage.
+     *
+     * @param image   L'image à écrire.
+     * @param fichier Le fichier de destination.
+     * @param suivi   Suivi de l'avancement et de l'annulation.
+     * @throws InterruptedIOException Si l'écriture a été annulée.
+     * @throws IOException            En cas d'erreur d'écriture.
+     */
+    public static void ecrirePng(BufferedImage image, File fichier, SuiviProgression suivi) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("png");
+        if (!writers.hasNext()) {
+            throw new IOException("Aucun encodeur PNG disponible");
+        }
+
+        ImageWriter writer = writers.next();
+        writer.addIIOWriteProgressListener(new IIOWriteProgressListener() {
+            @Override
+            public void imageProgress(ImageWriter source, float pourcentage) {
+                if (suivi.estAnnule()) {
+                    source.abort();
+                } else {
+                    suivi.avancer(pourcentage / 100);
+                }
+            }
+
+            @Override
+            public void imageStarted(ImageWriter source, int imageIndex) {
+            }
+
+            @Override
+            public void imageComplete(ImageWriter source) {
+            }
+
+            @Override
+            public void thumbnailStarted(ImageWriter source, int imageIndex, int thumbnailIndex) {
+            }
+
+            @Override
+            public void thumbnailProgress(ImageWriter source, float percentageDone) {
+            }
+
+            @Override
+            public void thumbnailComplete(ImageWriter source) {
+            }
+
+            @Override
+            public void writeAborted(ImageWriter source) {
+            }
+        });
+
+        boolean termine = false;
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(fichier)) {
+            if (out == null) {
+                throw new IOException("Impossible d'écrire " + fichier);
+            }
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), null);
+            termine = !suivi.estAnnule();
+        } finally {
+            writer.dispose();
+            if (!termine) {
+                fichier.delete();
+            }
+        }
+        if (!termine) {
+            throw new InterruptedIOException("Export annulé");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * Point d'entrée en ligne de commande pour convertir des projets enregistrés en
+ * images PNG sans interface graphique.
+ * Un fichier ou un dossier entier de projets peut être traité ; les fichiers
+ * d'un dossier sont rendus en parallèle sur tous les cœurs disponibles et la
+ * durée de chaque conversion est affichée.
+ *
+ * Utilisation : {@code java -cp build paint.View.RenduLot <projet|dossier> [dossier de sortie]}
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import paint.Model.FormatProjet;
+import paint.Model.Forme;
+import paint.Model.Projet;
+import paint.Model.SuiviProgression;
+
+public class RenduLot {
+
+    /**
+     * Point d'entrée du rendu par lot.
+     * Le premier argument est un projet ou un dossier de projets ; le second,
+     * optionnel, est le dossier où écrire les images (par défaut, à côté des
+     * projets). Le programme se termine avec le code 1 si une conversion a
+     * échoué.
+     *
+     * @param args Arguments de la ligne de commande.
+     */
+    public static void main(String[] args) {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Utilisation : RenduLot <projet|dossier> [dossier de sortie]");
+            System.exit(2);
+        }
+
+        // Aucun affichage n'est nécessaire pour rendre dans une image
+        System.setProperty("java.awt.headless", "true");
+
+        Path source = Paths.get(args[0]);
+        Path sortie = args.length > 1 ? Paths.get(args[1]) : null;
+
+        List<Path> projets;
+        try {
+            projets = listerProjets(source);
+            if (sortie != null) {
+                Files.createDirectories(sortie);
+            }
+        } catch (IOException e) {
+            System.err.println("Erreur : " + e.getMessage());
+            System.exit(1);
+            return;
+        }
+
+        int coeurs = Runtime.getRuntime().availableProcessors();
+        ExecutorService executeur = Executors.newFixedThreadPool(Math.min(coeurs, Math.max(1, projets.size())));
+        long debut = System.nanoTime();
+
+        List<Future<String>> conversions = new ArrayList<>(projets.size());
+        for (Path projet : projets) {
+            Path parent = projet.toAbsolutePath().getParent();
+            Path image = (sortie != null ? sortie : parent).resolve(nomImage(projet));
+            conversions.add(executeur.submit(() -> convertir(projet, image)));
+        }
+
+        int echecs = 0;
+        for (int i = 0; i < conversions.size(); i++) {
+            try {
+                System.out.println(conversions.get(i).get());
+            } catch (ExecutionException e) {
+                echecs++;
+                System.err.println(projets.get(i) + " : échec (" + e.getCause().getMessage() + ")");
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        executeur.shutdown();
+
+        System.out.printf("%d projet(s) rendu(s), %d échec(s) en %d ms sur %d cœur(s)%n",
+                projets.size() - echecs, echecs, (System.nanoTime() - debut) / 1_000_000, coeurs);
+        if (echecs > 0) {
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Charge un projet, le rend puis l'écrit en PNG.
+     *
+     * @param projet Chemin du projet.
+     * @param image  Chemin de l'image à écrire.
+     * @return Ligne de compte rendu avec la durée de chaque étape.
+     * @throws IOException En cas d'erreur de lecture ou d'écriture.
+     */
+    static String convertir(Path projet, Path image) throws IOException {
+        long t0 = System.nanoTime();
+        Projet lu = FormatProjet.lire(projet);
+        long t1 = System.nanoTime();
+
+        Rectangle taille = taille(lu);
+        BufferedImage rendu = RenduImage.rendreCalques(lu.getCalques(), taille.width, taille.height,
+                SuiviProgression.AUCUN);
+        long t2 = System.nanoTime();
+
+        RenduImage.ecrirePng(rendu, image.toFile(), SuiviProgression.AUCUN);
+        long t3 = System.nanoTime();
+
+        return String.format("%s : %d formes, %dx%d, lecture %d ms, rendu %d ms, écriture %d ms",
+                projet.getFileName(), lu.getNbFormes(), taille.width, taille.height,
+                (t1 - t0) / 1_000_000, (t2 - t1) / 1_000_000, (t3 - t2) / 1_000_000);
+    }
+
+    /**
+     * Retourne la taille de l'image à produire : celle du canvas enregistrée dans
+     * le projet, ou à défaut celle qui englobe toutes les formes.
+     *
+     * @param projet Le projet à rendre.
+     * @return Rectangle dont seules la largeur et la hauteur sont utilisées.
+     */
+    private static Rectangle taille(Projet projet) {
+        if (projet.getLargeur() > 0 && projet.getHauteur() > 0) {
+            return new Rectangle(projet.getLargeur(), projet.getHauteur());
+        }
+        Rectangle englobant = new Rectangle(1, 1);
+        for (Forme forme : projet.getFormes()) {
+            Rectangle bounds = forme.getBounds();
+            englobant.add(new Rectangle(0, 0, bounds.x + bounds.width, bounds.y + bounds.height));
+        }
+        return englobant;
+    }
+
+    /**
+     * Liste les projets à convertir : le fichier lui-même, ou les fichiers
+     * ordinaires d'un dossier hors images PNG et fichiers temporaires.
+     *
+     * @param source Fichier ou dossier donné en argument.
+     * @return Les projets à convertir, triés par nom.
+     * @throws IOException Si la source n'existe pas ou ne peut être lue.
+     */
+    private static List<Path> listerProjets(Path source) throws IOException {
+        if (!Files.isDirectory(source)) {
+            if (!Files.isRegularFile(source)) {
+                throw new IOException("Fichier introuvable : " + source);
+            }
+            return List.of(source);
+        }
+        try (Stream<Path> fichiers = Files.list(source)) {
+            return fichiers.filter(Files::isRegularFile)
+                    .filter(f -> {
+                        String nom = f.getFileName().toString().toLowerCase();
+                        return !nom.startsWith(".") && !nom.endsWith(".png") && !nom.endsWith(".tmp");
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Retourne le nom de l'image correspondant à un projet.
+     *
+     * @param projet Chemin du projet.
+     * @return Nom du projet sans son extension, suivi de ".png".
+     */
+    private static String nomImage(Path projet) {
+        String nom = projet.getFileName().toString();
+        int point = nom.lastIndexOf('.');
+        return (point > 0 ? nom.substring(0, point) : nom) + ".png";
+    }
+}
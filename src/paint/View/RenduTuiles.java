@@ -0,0 +1,622 @@
+/**
+ * Moteur de rendu par tuiles du panneau de dessin.
+ * Le plan de dessin est découpé en tuiles carrées de taille fixe, chacune avec
+ * sa propre image en cache. Une modification n'invalide que les tuiles touchées
+ * par le rectangle englobant de la forme concernée ; au moment de peindre, les
+ * tuiles invalides visibles sont rastérisées en parallèle sur un pool
+ * ForkJoin, puis toutes les tuiles visibles sont recopiées sur l'écran. Une
+ * tuile qui ne contient aucune forme n'a pas d'image : elle ne coûte ni
+ * mémoire ni recopie, ce qui compte quand plusieurs calques sont empilés.
+ *
+ * En mode accéléré, chaque tuile a en plus une copie dans une
+ * {@link VolatileImage} compatible avec l'écran, gardée en mémoire vidéo : la
+ * recopie sur l'écran n'a alors plus de conversion de format à faire. La
+ * rastérisation reste logicielle, sur l'image de la tuile, qui est renvoyée
+ * vers sa copie accélérée après chaque modification ou perte de la surface
+ * (changement de mode d'affichage, verrouillage de session...). Si les images
+ * accélérées ne peuvent pas être créées, le rendu repasse en mode logiciel.
+ *
+ * Le cache est borné en octets : au-delà, les tuiles hors de la vue les moins
+ * récemment utilisées sont oubliées, avec leur copie accélérée, et seront
+ * rastérisées à nouveau si elles reviennent dans la vue. Parcourir un grand
+ * dessin ne fait donc pas grossir la mémoire sans limite.
+ *
+ * Les tuiles sont rastérisées à une échelle donnée, celle du zoom de la vue :
+ * leurs coordonnées sont en pixels de l'écran, et chaque tuile ne dessine que
+ * les formes que l'index trouve dans la zone du dessin qu'elle couvre. En
+ * dessous de l'échelle 1, les tracés à main levée sont dessinés avec un niveau
+ * de détail réduit. Changer d'échelle vide le cache.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.VolatileImage;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import paint.Model.Forme;
+import paint.Model.FreeHandForme;
+import paint.Model.GrilleSpatiale;
+
+public class RenduTuiles {
+
+    /**
+     * Taille en pixels du côté d'une tuile.
+     */
+    public static final int TAILLE_TUILE = 256;
+
+    /**
+     * Taille en octets de l'image d'une tuile, ou de sa copie accélérée.
+     */
+    private static final long OCTETS_IMAGE = 4L * TAILLE_TUILE * TAILLE_TUILE;
+
+    /**
+     * Taille comptée pour une tuile sans image, qui garde sa place dans le
+     * cache.
+     */
+    private static final long OCTETS_TUILE = 128;
+
+    /**
+     * Taille maximale par défaut du cache, en octets.
+     */
+    public static final long OCTETS_MAX_DEFAUT = 64L << 20;
+
+    /**
+     * Pool utilisé pour rastériser les tuiles en parallèle.
+     */
+    private static final ForkJoinPool POOL = ForkJoinPool.commonPool();
+
+    /**
+     * Index spatial des formes à rendre.
+     */
+    private final GrilleSpatiale index;
+
+    /**
+     * Tuiles déjà créées, indexées par leurs coordonnées, de la moins
+     * récemment utilisée à la plus récente.
+     */
+    private final LinkedHashMap<Long, Tuile> tuiles;
+
+    /**
+     * Taille des tuiles du cache et taille au-delà de laquelle les tuiles hors
+     * de la vue sont oubliées, en octets.
+     */
+    private long octets;
+    private final long octetsMax;
+
+    /**
+     * Numéro de la dernière peinture, qui marque les tuiles visibles.
+     */
+    private int peinture;
+
+    /**
+     * Indique si les tuiles sont recopiées depuis des images accélérées.
+     */
+    private boolean accelere;
+
+    /**
+     * Échelle de rastérisation : nombre de pixels des tuiles par pixel du
+     * dessin.
+     */
+    private double echelle = 1;
+
+    /**
+     * Nombre de tuiles et de formes rastérisées lors du dernier appel à
+     * {@link #peindre(Graphics, Rectangle)}.
+     */
+    private int tuilesRasterisees, formesRasterisees;
+
+    /**
+     * Tuile du plan de dessin et son image en cache, ou {@code null} si elle ne
+     * contient aucune forme.
+     */
+    private static final class Tuile {
+        private final Rectangle zone;
+        private BufferedImage image;
+        private boolean sale;
+
+        /**
+         * Copie accélérée de l'image, ou {@code null}, et indicateur de copie
+         * périmée.
+         */
+        private VolatileImage copie;
+        private boolean copiePerimee = true;
+
+        /**
+         * Taille de la tuile comptée dans le cache, et numéro de la dernière
+         * peinture où elle était visible.
+         */
+        private long octets;
+        private int peinture;
+
+        private Tuile(int tx, int ty) {
+            this.zone = new Rectangle(tx * TAILLE_TUILE, ty * TAILLE_TUILE, TAILLE_TUILE, TAILLE_TUILE);
+            this.sale = true;
+        }
+    }
+
+    /**
+     * Constructeur de la classe RenduTuiles.
+     *
+     * @param index Index spatial des formes à rendre.
+     */
+    public RenduTuiles(GrilleSpatiale index) {
+        this(index, false);
+    }
+
+    /**
+     * Constructeur de la classe RenduTuiles.
+     *
+     * @param index    Index spatial des formes à rendre.
+     * @param accelere {@code true} pour recopier les tuiles depuis des images
+     *                 accélérées.
+     */
+    public RenduTuiles(GrilleSpatiale index, boolean accelere) {
+        this(index, accelere, OCTETS_MAX_DEFAUT);
+    }
+
+    /**
+     * Constructeur de la classe RenduTuiles.
+     *
+     * @param index     Index spatial des formes à rendre.
+     * @param accelere  {@code true} pour recopier les tuiles depuis des images
+     *                  accélérées.
+     * @param octetsMax Taille du cache au-delà de laquelle les tuiles hors de
+     *                  la vue sont oubliées, en octets. Les tuiles visibles
+     *                  sont toujours gardées.
+     */
+    public RenduTuiles(GrilleSpatiale index, boolean accelere, long octetsMax) {
+        this.index = index;
+        this.tuiles = new LinkedHashMap<>(64, 0.75f, true);
+        this.accelere = accelere;
+        this.octetsMax = octetsMax;
+    }
+
+    /**
+     * Indique si le rendu accéléré est actif. Il peut avoir été désactivé si les
+     * images accélérées n'ont pas pu être créées.
+     *
+     * @return {@code true} en mode accéléré.
+     */
+    public boolean isAccelere() {
+        return accelere;
+    }
+
+    /**
+     * Retourne l'échelle de rastérisation des tuiles.
+     *
+     * @return Nombre de pixels des tuiles par pixel du dessin.
+     */
+    public double getEchelle() {
+        return echelle;
+    }
+
+    /**
+     * Définit l'échelle de rastérisation des tuiles. Les tuiles existantes,
+     * rastérisées à l'ancienne échelle, sont supprimées.
+     *
+     * @param echelle Nombre de pixels des tuiles par pixel du dessin.
+     */
+    public void setEchelle(double echelle) {
+        if (echelle != this.echelle) {
+            vider();
+            this.echelle = echelle;
+        }
+    }
+
+    /**
+     * Invalide toutes les tuiles.
+     */
+    public void invaliderTout() {
+        for (Tuile tuile : tuiles.values()) {
+            tuile.sale = true;
+        }
+    }
+
+    /**
+     * Invalide les tuiles touchées par une zone.
+     *
+     * @param modifiee La zone modifiée, en coordonnées du dessin.
+     */
+    public void invalider(Rectangle modifiee) {
+        Rectangle zone = versTuiles(modifiee);
+        for (int ty = indice(zone.y); ty <= indice(zone.y + zone.height - 1); ty++) {
+            for (int tx = indice(zone.x); tx <= indice(zone.x + zone.width - 1); tx++) {
+                Tuile tuile = tuiles.get(cle(tx, ty));
+                if (tuile != null) {
+                    tuile.sale = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Dessine une forme ajoutée au-dessus des autres directement sur les tuiles
+     * valides qu'elle touche, sans les rastériser à nouveau.
+     *
+     * @param forme La forme ajoutée.
+     */
+    public void dessiner(Forme forme) {
+        Rectangle zone = versTuiles(forme.getBounds());
+        Rectangle limites = new Rectangle();
+        for (int ty = indice(zone.y); ty <= indice(zone.y + zone.height - 1); ty++) {
+            for (int tx = indice(zone.x); tx <= indice(zone.x + zone.width - 1); tx++) {
+                Tuile tuile = tuiles.get(cle(tx, ty));
+                if (tuile != null && !tuile.sale) {
+                    if (tuile.image == null) {
+                        tuile.image = new BufferedImage(TAILLE_TUILE, TAILLE_TUILE, BufferedImage.TYPE_INT_ARGB);
+                        compter(tuile);
+                    }
+                    Graphics2D g2d = tuile.image.createGraphics();
+                    g2d.clipRect(0, 0, TAILLE_TUILE, TAILLE_TUILE); // Découpage connu des formes
+                    g2d.translate(-tuile.zone.x, -tuile.zone.y);
+                    if (echelle != 1) {
+                        g2d.scale(echelle, echelle);
+                    }
+                    dessinerForme(g2d, forme, limites);
+                    g2d.dispose();
+                    tuile.copiePerimee = true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Peint les tuiles visibles dans une zone, après avoir rastérisé en parallèle
+     * celles qui sont invalides.
+     *
+     * @param g    Contexte graphique du panneau, en pixels des tuiles.
+     * @param zone Zone à peindre, en pixels des tuiles.
+     */
+    public void peindre(Graphics g, Rectangle zone) {
+        List<Tuile> visibles = new ArrayList<>();
+        List<Tuile> sales = new ArrayList<>();
+        peinture++;
+
+        for (int ty = indice(zone.y); ty <= indice(zone.y + zone.height - 1); ty++) {
+            for (int tx = indice(zone.x); tx <= indice(zone.x + zone.width - 1); tx++) {
+                Tuile tuile = tuiles.computeIfAbsent(cle(tx, ty), this::creerTuile);
+                tuile.peinture = peinture;
+                visibles.add(tuile);
+                if (tuile.sale) {
+                    sales.add(tuile);
+                }
+            }
+        }
+
+        tuilesRasterisees = sales.size();
+        if (sales.size() == 1) {
+            formesRasterisees = rasteriser(sales.get(0));
+        } else if (!sales.isEmpty()) {
+            AtomicInteger formes = new AtomicInteger();
+            List<Callable<Void>> rasterisations = new ArrayList<>(sales.size());
+            for (Tuile tuile : sales) {
+                rasterisations.add(() -> {
+                    formes.addAndGet(rasteriser(tuile));
+                    return null;
+                });
+            }
+            POOL.invokeAll(rasterisations);
+            formesRasterisees = formes.get();
+        } else {
+            formesRasterisees = 0;
+        }
+        // Les tailles ne sont comptées que sur ce fil, après la rastérisation
+        for (Tuile tuile : sales) {
+            compter(tuile);
+        }
+
+        GraphicsConfiguration gc = accelere && g instanceof Graphics2D
+                ? ((Graphics2D) g).getDeviceConfiguration()
+                : null;
+        for (Tuile tuile : visibles) {
+            if (tuile.image == null) {
+                libererCopie(tuile);
+                continue;
+            }
+            if (gc == null || !peindreCopie(g, tuile, gc)) {
+                g.drawImage(tuile.image, tuile.zone.x, tuile.zone.y, null);
+            }
+        }
+        borner();
+    }
+
+    /**
+     * Oublie les tuiles hors de la dernière peinture les moins récemment
+     * utilisées, avec leur copie accélérée, tant que le cache dépasse sa taille
+     * maximale.
+     */
+    private void borner() {
+        Iterator<Tuile> anciennes = tuiles.values().iterator();
+        while (octets > octetsMax && anciennes.hasNext()) {
+            Tuile tuile = anciennes.next();
+            if (tuile.peinture != peinture) {
+                libererCopie(tuile);
+                octets -= tuile.octets;
+                anciennes.remove();
+            }
+        }
+    }
+
+    /**
+     * Met à jour la taille comptée d'une tuile après la création ou la
+     * libération de son image ou de sa copie accélérée.
+     *
+     * @param tuile La tuile.
+     */
+    private void compter(Tuile tuile) {
+        long taille = OCTETS_TUILE + (tuile.image != null ? OCTETS_IMAGE : 0)
+                + (tuile.copie != null ? OCTETS_IMAGE : 0);
+        octets += taille - tuile.octets;
+        tuile.octets = taille;
+    }
+
+    /**
+     * Peint les tuiles déjà rastérisées dans une zone, sans en rastériser
+     * aucune : les tuiles manquantes restent vides. Sert d'aperçu pendant un
+     * zoom, en recopiant les tuiles de l'ancienne échelle avec une
+     * transformation.
+     *
+     * @param g    Contexte graphique, en pixels des tuiles.
+     * @param zone Zone à peindre, en pixels des tuiles.
+     */
+    public void peindreApercu(Graphics g, Rectangle zone) {
+        for (int ty = indice(zone.y); ty <= indice(zone.y + zone.height - 1); ty++) {
+            for (int tx = indice(zone.x); tx <= indice(zone.x + zone.width - 1); tx++) {
+                Tuile tuile = tuiles.get(cle(tx, ty));
+                if (tuile != null && tuile.image != null) {
+                    g.drawImage(tuile.image, tuile.zone.x, tuile.zone.y, null);
+                }
+            }
+        }
+    }
+
+    /**
+     * Recopie une tuile depuis sa copie accélérée, en la recréant ou en la
+     * mettant à jour si besoin. Une surface perdue pendant la recopie est
+     * restaurée et la recopie recommencée.
+     *
+     * @param g     Contexte graphique du panneau.
+     * @param tuile La tuile à peindre.
+     * @param gc    Configuration graphique de l'écran.
+     * @return {@code false} si la tuile n'a pas pu être peinte ainsi et doit
+     *         l'être depuis son image logicielle.
+     */
+    private boolean peindreCopie(Graphics g, Tuile tuile, GraphicsConfiguration gc) {
+        for (int essai = 0; essai < 3; essai++) {
+            VolatileImage copie = tuile.copie;
+            int etat = copie == null ? VolatileImage.IMAGE_INCOMPATIBLE : copie.validate(gc);
+            if (etat == VolatileImage.IMAGE_INCOMPATIBLE) {
+                if (copie != null) {
+                    copie.flush();
+                }
+                try {
+                    copie = gc.createCompatibleVolatileImage(TAILLE_TUILE, TAILLE_TUILE, Transparency.TRANSLUCENT);
+                } catch (RuntimeException e) {
+                    e.printStackTrace();
+                    copie = null;
+                }
+                if (copie == null) {
+                    desactiverAcceleration();
+                    return false;
+                }
+                tuile.copie = copie;
+                tuile.copiePerimee = true;
+                compter(tuile);
+            } else if (etat == VolatileImage.IMAGE_RESTORED) {
+                tuile.copiePerimee = true;
+            }
+
+            if (tuile.copiePerimee) {
+                Graphics2D g2d = copie.createGraphics();
+                g2d.setComposite(AlphaComposite.Src);
+                g2d.drawImage(tuile.image, 0, 0, null);
+                g2d.dispose();
+                tuile.copiePerimee = false;
+            }
+            g.drawImage(copie, tuile.zone.x, tuile.zone.y, null);
+            if (!copie.contentsLost()) {
+                return true;
+            }
+            tuile.copiePerimee = true;
+        }
+        return false;
+    }
+
+    /**
+     * Repasse en mode logiciel et libère les copies accélérées.
+     */
+    private void desactiverAcceleration() {
+        System.err.println("Rendu accéléré indisponible, passage en rendu logiciel");
+        accelere = false;
+        for (Tuile tuile : tuiles.values()) {
+            libererCopie(tuile);
+        }
+    }
+
+    /**
+     * Libère la copie accélérée d'une tuile.
+     *
+     * @param tuile La tuile.
+     */
+    private void libererCopie(Tuile tuile) {
+        if (tuile.copie != null) {
+            tuile.copie.flush();
+            tuile.copie = null;
+            compter(tuile);
+        }
+        tuile.copiePerimee = true;
+    }
+
+    /**
+     * Retourne le nombre de tuiles rastérisées lors de la dernière peinture.
+     *
+     * @return Nombre de tuiles.
+     */
+    public int getTuilesRasterisees() {
+        return tuilesRasterisees;
+    }
+
+    /**
+     * Retourne le nombre de formes dessinées pour rastériser les tuiles lors de
+     * la dernière peinture. Une forme à cheval sur plusieurs tuiles compte une
+     * fois par tuile.
+     *
+     * @return Nombre de formes.
+     */
+    public int getFormesRasterisees() {
+        return formesRasterisees;
+    }
+
+    /**
+     * Supprime toutes les tuiles, par exemple lorsque le dessin est vidé.
+     */
+    public void vider() {
+        for (Tuile tuile : tuiles.values()) {
+            libererCopie(tuile);
+        }
+        tuiles.clear();
+        octets = 0;
+    }
+
+    /**
+     * Crée la tuile correspondant à une clé.
+     *
+     * @param cle Clé de la tuile.
+     * @return La nouvelle tuile, à rastériser.
+     */
+    private Tuile creerTuile(long cle) {
+        Tuile tuile = new Tuile((int) (cle >> 32), (int) cle);
+        compter(tuile);
+        return tuile;
+    }
+
+    /**
+     * Efface une tuile puis y dessine, dans l'ordre d'empilement, les formes qui
+     * la touchent. L'image d'une tuile sans formes est libérée.
+     *
+     * @param tuile La tuile à rastériser.
+     * @return Nombre de formes dessinées.
+     */
+    private int rasteriser(Tuile tuile) {
+        List<Forme> formes = index.rechercher(versDessin(tuile.zone));
+        tuile.sale = false;
+        if (formes.isEmpty()) {
+            tuile.image = null;
+            return 0;
+        }
+
+        if (tuile.image == null) {
+            tuile.image = new BufferedImage(TAILLE_TUILE, TAILLE_TUILE, BufferedImage.TYPE_INT_ARGB);
+        }
+        Graphics2D g2d = tuile.image.createGraphics();
+        g2d.setComposite(AlphaComposite.Clear);
+        g2d.fillRect(0, 0, TAILLE_TUILE, TAILLE_TUILE);
+        g2d.setComposite(AlphaComposite.SrcOver);
+        // Les formes étendues ne dessinent que leur part de la tuile
+        g2d.clipRect(0, 0, TAILLE_TUILE, TAILLE_TUILE);
+
+        g2d.translate(-tuile.zone.x, -tuile.zone.y);
+        if (echelle != 1) {
+            g2d.scale(echelle, echelle);
+        }
+        Rectangle limites = new Rectangle();
+        for (Forme forme : formes) {
+            dessinerForme(g2d, forme, limites);
+        }
+        g2d.dispose();
+        tuile.copiePerimee = true;
+        return formes.size();
+    }
+
+    /**
+     * Dessine une forme sur une tuile. En dessous de l'échelle 1, une forme
+     * plus petite qu'un pixel de la tuile n'est qu'un point de sa couleur, et
+     * un tracé à main levée est dessiné avec le niveau de détail de l'échelle.
+     *
+     * @param g2d     Contexte graphique de la tuile, en coordonnées du dessin.
+     * @param forme   La forme à dessiner.
+     * @param limites Rectangle réutilisé pour les limites de la forme.
+     */
+    private void dessinerForme(Graphics2D g2d, Forme forme, Rectangle limites) {
+        if (echelle >= 1) {
+            forme.draw(g2d);
+            return;
+        }
+        forme.getBounds(limites);
+        if (limites.width * echelle < 1 && limites.height * echelle < 1) {
+            int cote = (int) Math.ceil(1 / echelle);
+            g2d.setColor(forme.getColor());
+            g2d.fillRect(limites.x, limites.y, cote, cote);
+        } else if (forme instanceof FreeHandForme) {
+            ((FreeHandForme) forme).dessinerSimplifie(g2d, echelle);
+        } else {
+            forme.draw(g2d);
+        }
+    }
+
+    /**
+     * Convertit une zone du dessin en pixels des tuiles. Hors de l'échelle 1,
+     * la zone est élargie d'un pixel pour couvrir l'anticrénelage.
+     *
+     * @param zone Zone en coordonnées du dessin.
+     * @return Zone en pixels des tuiles.
+     */
+    private Rectangle versTuiles(Rectangle zone) {
+        if (echelle == 1) {
+            return zone;
+        }
+        int x1 = (int) Math.floor(zone.x * echelle) - 1;
+        int y1 = (int) Math.floor(zone.y * echelle) - 1;
+        int x2 = (int) Math.ceil((zone.x + zone.width) * echelle) + 1;
+        int y2 = (int) Math.ceil((zone.y + zone.height) * echelle) + 1;
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Convertit une zone en pixels des tuiles en coordonnées du dessin,
+     * élargie d'un pixel du dessin hors de l'échelle 1.
+     *
+     * @param zone Zone en pixels des tuiles.
+     * @return Zone en coordonnées du dessin.
+     */
+    private Rectangle versDessin(Rectangle zone) {
+        if (echelle == 1) {
+            return zone;
+        }
+        int x1 = (int) Math.floor(zone.x / echelle) - 1;
+        int y1 = (int) Math.floor(zone.y / echelle) - 1;
+        int x2 = (int) Math.ceil((zone.x + zone.width) / echelle) + 1;
+        int y2 = (int) Math.ceil((zone.y + zone.height) / echelle) + 1;
+        return new Rectangle(x1, y1, x2 - x1, y2 - y1);
+    }
+
+    /**
+     * Retourne l'indice de la tuile contenant une coordonnée.
+     *
+     * @param coordonnee Coordonnée en pixels.
+     * @return Indice de la tuile.
+     */
+    private static int indice(int coordonnee) {
+        return Math.floorDiv(coordonnee, TAILLE_TUILE);
+    }
+
+    /**
+     * Combine les indices d'une tuile en une clé unique.
+     *
+     * @param tx Indice horizontal de la tuile.
+     * @param ty Indice vertical de la tuile.
+     * @return Clé de la tuile.
+     */
+    private static long cle(int tx, int ty) {
+        return ((long) tx << 32) | (ty & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,70 @@
+/**
+ * File des positions de souris reçues pendant un glissement et pas encore
+ * appliquées au dessin. Les positions sont conservées dans des tableaux
+ * réutilisés d'une image à l'autre : la mise en file n'alloue rien une fois la
+ * capacité atteinte.
+ *
+ * @author Baptiste Borie
+ */
+package paint.View;
+
+import java.util.Arrays;
+
+public class SaisiesEnAttente {
+
+    private int[] xs = new int[64];
+    private int[] ys = new int[64];
+    private int taille;
+
+    /**
+     * Ajoute une position à la file.
+     *
+     * @param x Coordonnée X.
+     * @param y Coordonnée Y.
+     */
+    public void ajouter(int x, int y) {
+        if (taille == xs.length) {
+            xs = Arrays.copyOf(xs, taille * 2);
+            ys = Arrays.copyOf(ys, taille * 2);
+        }
+        xs[taille] = x;
+        ys[taille] = y;
+        taille++;
+    }
+
+    /**
+     * Retourne le nombre de positions en attente.
+     *
+     * @return Le nombre de positions.
+     */
+    public int taille() {
+        return taille;
+    }
+
+    /**
+     * Retourne la coordonnée X d'une position en attente.
+     *
+     * @param i Indice de la position, de la plus ancienne à la plus récente.
+     * @return La coordonnée X.
+     */
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    /**
+     * Retourne la coordonnée Y d'une position en attente.
+     *
+     * @param i Indice de la position, de la plus ancienne à la plus récente.
+     * @return La coordonnée Y.
+     */
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    /**
+     * Vide la file.
+     */
+    public void vider() {
+        taille = 0;
+    }
+}